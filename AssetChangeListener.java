@@ -0,0 +1,7 @@
+// Notified around every mutation of an asset, so listeners can subtract
+// the old contribution to a total and add the new one, and versioned
+// copies see every field change
+interface AssetChangeListener {
+    void beforeChange(FinancialAsset asset);
+    void afterChange(FinancialAsset asset);
+}
@@ -3,6 +3,8 @@ import java.util.List;
 // Interface definitions as mentioned in the requirements
 interface AssetManager {
     void addAsset(FinancialAsset asset);
+    // Adds a batch in one step, e.g. from a file import
+    void addAssets(List<? extends FinancialAsset> assets);
     void removeAsset(FinancialAsset asset);
     void updateAsset(FinancialAsset asset);
     List<FinancialAsset> getAllAssets();
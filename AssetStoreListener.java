@@ -0,0 +1,12 @@
+// Row-level change notifications from a ColumnarAssetManager
+interface AssetStoreListener {
+    void rowInserted(int row);
+
+    // The row's asset is about to change; rowUpdated follows once it has
+    default void rowChanging(int row) {
+    }
+
+    void rowUpdated(int row);
+    // The last row was moved into the removed row's position
+    void rowRemoved(int row, int lastRow);
+}
@@ -0,0 +1,142 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Headless batch mode: every report type for every portfolio file in a
+// directory. Files are handed to a fixed pool through a bounded queue, so a
+// directory of tens of thousands of portfolios is streamed rather than
+// queued up front.
+//
+//   java FinancialManager <portfolio-dir> [--out dir] [--threads n] [--paths n]
+final class BatchReportRunner {
+    static final String USAGE = "Usage: FinancialManager <portfolio-dir> [--out dir] [--threads n] [--paths n]";
+    // Fewer Monte Carlo paths than the desktop default; tens of thousands of files add up
+    static final int DEFAULT_BATCH_PATHS = 10_000;
+
+    private final Path outputDir;
+    private final int projectionPaths;
+    private final AtomicInteger filesDone = new AtomicInteger();
+    private final AtomicInteger filesFailed = new AtomicInteger();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    BatchReportRunner(Path outputDir, int projectionPaths) {
+        this.outputDir = outputDir;
+        this.projectionPaths = projectionPaths;
+    }
+
+    // Returns the process exit code: 0 when every file succeeded
+    static int run(String[] args) {
+        Path inputDir = null;
+        Path outputDir = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int paths = DEFAULT_BATCH_PATHS;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--out":
+                        outputDir = Paths.get(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--paths":
+                        paths = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        if (inputDir != null || args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+                        }
+                        inputDir = Paths.get(args[i]);
+                }
+            }
+            if (inputDir == null || threads < 1 || paths < 1) {
+                throw new IllegalArgumentException("A portfolio directory is required");
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        if (outputDir == null) {
+            outputDir = inputDir.resolve("reports");
+        }
+
+        try {
+            BatchReportRunner runner = new BatchReportRunner(outputDir, paths);
+            return runner.runAll(inputDir, threads) ? 0 : 1;
+        } catch (IOException e) {
+            System.err.println("Batch run failed: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    boolean runAll(Path inputDir, int threads) throws IOException, InterruptedException {
+        Files.createDirectories(outputDir);
+        // Callers run the task themselves when the queue is full, which throttles the directory walk
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4), new ThreadPoolExecutor.CallerRunsPolicy());
+
+        long start = System.nanoTime();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(inputDir, "*.csv")) {
+            for (Path file : files) {
+                executor.execute(() -> runFile(file));
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int done = filesDone.get();
+        System.out.println(String.format(Locale.US,
+                "Processed %d files (%d failed) in %.1f s: %.1f files/s, %.1f MB of reports on %d threads",
+                done, filesFailed.get(), seconds, done / Math.max(seconds, 1e-9),
+                bytesWritten.sum() / 1e6, threads));
+        // Per-report latency percentiles for the whole run
+        Metrics.writeSnapshot(outputDir.resolve("metrics.txt"));
+        return filesFailed.get() == 0;
+    }
+
+    // Loads one portfolio and writes each report next to the others in the output directory
+    void runFile(Path file) {
+        long start = System.nanoTime();
+        String baseName = file.getFileName().toString().replaceFirst("\\.csv$", "");
+        long bytes = 0;
+        try {
+            Portfolio portfolio = PortfolioFile.read(file);
+            ReportGenerator generator = new ReportGenerator(portfolio.getAssets(), portfolio.getLiabilities(),
+                    new LoanAnalytics(), projectionPaths);
+            for (String reportType : ReportGenerator.REPORT_TYPES) {
+                Path target = outputDir.resolve(baseName + "." + slug(reportType) + ".txt");
+                bytes += ReportExporter.export(generator, reportType, ReportExporter.Format.TEXT, target, percent -> { });
+            }
+
+            bytesWritten.add(bytes);
+            double millis = (System.nanoTime() - start) / 1e6;
+            System.out.println(String.format(Locale.US, "%s: %d assets, %d loans, %d reports in %.1f ms (%.0f KB/s)",
+                    file.getFileName(), portfolio.getAssets().size(), portfolio.getLiabilities().size(),
+                    ReportGenerator.REPORT_TYPES.length, millis, bytes / 1024.0 / Math.max(millis / 1000, 1e-9)));
+        } catch (IOException | RuntimeException e) {
+            filesFailed.incrementAndGet();
+            System.err.println(file.getFileName() + ": failed: " + e.getMessage());
+        } finally {
+            filesDone.incrementAndGet();
+        }
+    }
+
+    // "Net Worth Summary" -> "net-worth-summary"
+    static String slug(String reportType) {
+        return reportType.toLowerCase(Locale.ROOT).replace(' ', '-');
+    }
+}
@@ -0,0 +1,47 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+class BatchReportRunnerTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testPortfolioFileRoundTrip() throws Exception {
+        Portfolio portfolio = new Portfolio();
+        portfolio.getAssets().addAsset(new Stock("Apple, Inc.", 55000, new Date(), "AAPL", 100, 550.0));
+        portfolio.getAssets().addAsset(new Bond("Government Bond", 25000, new Date(), 4.8, new Date()));
+        portfolio.getLiabilities().addAsset(new Loan("Mortgage", 350000, new Date(), 3.5, 360, 24));
+
+        Path file = dir.resolve("client.csv");
+        PortfolioFile.write(file, portfolio);
+        Portfolio read = PortfolioFile.read(file);
+
+        assertEquals(2, read.getAssets().size(), "Asset count is incorrect");
+        assertEquals("Apple, Inc.", read.getAssets().get(0).getName(), "Quoted name not read back");
+        assertEquals(80000, read.getAssets().getAggregates().getTotalValue(), 0.001, "Asset total is incorrect");
+        assertEquals(24, read.getLiabilities().get(0).getPaymentsMade(), "Loan fields not read back");
+    }
+
+    @Test
+    void testRunsEveryReportForEveryFile() throws Exception {
+        Path input = Files.createDirectory(dir.resolve("in"));
+        Files.writeString(input.resolve("a.csv"), "Stock,Apple,1000.00,2024-01-02,AAPL,10,100.00\n");
+        Files.writeString(input.resolve("b.csv"), "# no holdings\nLoan,Car,5000.00,2024-01-02,4.5,60,12\n");
+        Files.writeString(input.resolve("broken.csv"), "Stock,Apple,not-a-number\n");
+        Path output = dir.resolve("out");
+
+        int exitCode = BatchReportRunner.run(new String[] {input.toString(), "--out", output.toString(),
+                "--threads", "2", "--paths", "100"});
+
+        assertEquals(1, exitCode, "Failed file should fail the run");
+        for (String reportType : ReportGenerator.REPORT_TYPES) {
+            Path report = output.resolve("a." + BatchReportRunner.slug(reportType) + ".txt");
+            assertTrue(Files.readString(report).startsWith("=== " + reportType + " ==="), "Missing report " + report);
+        }
+        assertTrue(Files.readString(output.resolve("b.debt-overview.txt")).contains("Car"), "Loan missing from debt report");
+    }
+}
@@ -11,9 +11,33 @@ class Bond extends FinancialAsset {
         setType("Bond");
     }
 
+    @Override
+    Bond copy() {
+        Bond copy = new Bond(getName(), 0, getPurchaseDate(), interestRate, maturityDate);
+        copy.copyState(this);
+        return copy;
+    }
+
+    @Override
+    protected void copyState(FinancialAsset from) {
+        super.copyState(from);
+        Bond bond = (Bond) from;
+        this.interestRate = bond.interestRate;
+        this.maturityDate = bond.maturityDate;
+    }
+
+    @Override
+    protected void revertState(FinancialAsset before, FinancialAsset after) {
+        super.revertState(before, after);
+        Bond was = (Bond) before;
+        Bond now = (Bond) after;
+        this.interestRate = revertField(interestRate, was.interestRate, now.interestRate);
+        this.maturityDate = revertField(maturityDate, was.maturityDate, now.maturityDate);
+    }
+
     @Override
     public double calculateInterest() {
-        return getValue() * (interestRate / 100);
+        return Money.toDouble(Money.applyRate(getValueCents(), interestRate, 1));
     }
 
     public double getInterestRate() {
@@ -21,7 +45,9 @@ class Bond extends FinancialAsset {
     }
 
     public void setInterestRate(double interestRate) {
+        fireBeforeChange();
         this.interestRate = interestRate;
+        fireAfterChange();
     }
 
     public Date getMaturityDate() {
@@ -29,6 +55,8 @@ class Bond extends FinancialAsset {
     }
 
     public void setMaturityDate(Date maturityDate) {
+        fireBeforeChange();
         this.maturityDate = maturityDate;
+        fireAfterChange();
     }
 }
@@ -0,0 +1,269 @@
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Java2D chart behind the DataVisualizer interface. Draws either a labelled
+// distribution (horizontal bars) or a line series. Rendering happens on a
+// background thread into a BufferedImage keyed by (data version, size);
+// paintComponent only blits that image, so repaints cost the same whatever
+// the data. Line series are reduced with LTTB to about two points per pixel
+// column before drawing, so a series of millions of points draws as fast as
+// one of a few thousand.
+class ChartPanel extends JComponent implements DataVisualizer {
+    static final int POINTS_PER_PIXEL = 2;
+    private static final Color[] PALETTE = {
+            new Color(66, 139, 202), new Color(92, 184, 92), new Color(240, 173, 78),
+            new Color(217, 83, 79), new Color(91, 192, 222), new Color(153, 102, 204)
+    };
+    private static final Executor RENDERER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chart-render");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Executor renderer;
+    private final AtomicBoolean renderScheduled = new AtomicBoolean();
+    // Replaced whole on each change; the render thread reads whichever is current
+    private volatile ChartData data = new ChartData(0, "", Map.of(), null, null);
+    private volatile RenderedChart rendered;
+    private long renders;
+
+    public ChartPanel() {
+        this(RENDERER);
+    }
+
+    ChartPanel(Executor renderer) {
+        this.renderer = renderer;
+        setOpaque(true);
+        setBackground(Color.WHITE);
+        setPreferredSize(new Dimension(300, 160));
+    }
+
+    // Shows the values as bars. Unchanged data keeps the current version, so
+    // callers can pass the same totals on every model change for free.
+    @Override
+    public synchronized void generateChart(String title, Map<String, Double> values) {
+        ChartData current = data;
+        if (current.xs == null && current.title.equals(title) && current.values.equals(values)) {
+            return;
+        }
+        data = new ChartData(current.version + 1, title, new LinkedHashMap<>(values), null, null);
+        requestRender();
+    }
+
+    // Shows a line series; xs must be non-decreasing. The arrays are not
+    // copied and must not change afterwards; pass new arrays for new data.
+    public synchronized void setSeries(String title, double[] xs, double[] ys) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Series lengths differ: " + xs.length + " and " + ys.length);
+        }
+        data = new ChartData(data.version + 1, title, Map.of(), xs, ys);
+        requestRender();
+    }
+
+    // Writes the chart as it is currently drawn to "<report-type>.png"
+    @Override
+    public void exportReport(String reportType) {
+        try {
+            exportImage(Paths.get(BatchReportRunner.slug(reportType) + ".png"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void exportImage(Path target) throws IOException {
+        int width = Math.max(getWidth(), getPreferredSize().width);
+        int height = Math.max(getHeight(), getPreferredSize().height);
+        ImageIO.write(render(data, width, height), "png", target.toFile());
+    }
+
+    public long getVersion() {
+        return data.version;
+    }
+
+    // Number of images rendered so far; repaints alone never add to it
+    public synchronized long getRenderCount() {
+        return renders;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        RenderedChart current = rendered;
+        if (current != null) {
+            g.drawImage(current.image, 0, 0, null);
+        } else {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+        }
+        if (current == null || !current.matches(data.version, getWidth(), getHeight())) {
+            // The stale image stays up until the new one is ready
+            requestRender();
+        }
+    }
+
+    private void requestRender() {
+        if (renderScheduled.compareAndSet(false, true)) {
+            renderer.execute(this::renderLatest);
+        }
+    }
+
+    // Runs on the render thread. A change made while it draws schedules
+    // another pass, and paintComponent asks again if the size moved on.
+    private void renderLatest() {
+        renderScheduled.set(false);
+        ChartData current = data;
+        int width = getWidth();
+        int height = getHeight();
+        RenderedChart last = rendered;
+        if (width <= 0 || height <= 0 || (last != null && last.matches(current.version, width, height))) {
+            return;
+        }
+        BufferedImage image = render(current, width, height);
+        synchronized (this) {
+            renders++;
+        }
+        rendered = new RenderedChart(current.version, width, height, image);
+        repaint();
+    }
+
+    static BufferedImage render(ChartData data, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.setFont(new Font("Arial", Font.PLAIN, 12));
+            if (data.xs != null) {
+                drawSeries(g, data, width, height);
+            } else {
+                drawBars(g, data.values, width, height);
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private static void drawBars(Graphics2D g, Map<String, Double> values, int width, int height) {
+        FontMetrics metrics = g.getFontMetrics();
+        if (values.isEmpty()) {
+            g.setColor(Color.GRAY);
+            g.drawString("No data", 10, metrics.getAscent() + 5);
+            return;
+        }
+
+        double total = 0;
+        double max = 0;
+        int labelWidth = 0;
+        for (Map.Entry<String, Double> entry : values.entrySet()) {
+            double value = Math.max(entry.getValue(), 0);
+            total += value;
+            max = Math.max(max, value);
+            labelWidth = Math.max(labelWidth, metrics.stringWidth(entry.getKey()));
+        }
+
+        int rowHeight = Math.max(metrics.getHeight() + 4, Math.min(32, height / values.size()));
+        int barX = labelWidth + 10;
+        int barSpace = Math.max(width - barX - 60, 1);
+        int y = 0;
+        int colour = 0;
+        for (Map.Entry<String, Double> entry : values.entrySet()) {
+            double value = Math.max(entry.getValue(), 0);
+            int barWidth = max > 0 ? (int) Math.round(value / max * barSpace) : 0;
+            int textY = y + (rowHeight + metrics.getAscent() - metrics.getDescent()) / 2;
+
+            g.setColor(Color.DARK_GRAY);
+            g.drawString(entry.getKey(), 0, textY);
+            g.setColor(PALETTE[colour++ % PALETTE.length]);
+            g.fillRect(barX, y + 3, barWidth, rowHeight - 6);
+
+            String share = total > 0
+                    ? FastFormat.appendFixed2(new StringBuilder(8), value * 100 / total).append('%').toString()
+                    : "-";
+            g.setColor(Color.DARK_GRAY);
+            g.drawString(share, barX + barWidth + 5, textY);
+            y += rowHeight;
+        }
+    }
+
+    private static void drawSeries(Graphics2D g, ChartData data, int width, int height) {
+        FontMetrics metrics = g.getFontMetrics();
+        int top = metrics.getHeight() + 4;
+        int plotHeight = height - top - 4;
+        if (data.xs.length == 0 || plotHeight <= 0) {
+            return;
+        }
+        g.setColor(Color.DARK_GRAY);
+        g.drawString(data.title, 0, metrics.getAscent());
+
+        int[] kept = Lttb.downsample(data.xs, data.ys, Math.max(width * POINTS_PER_PIXEL, 3));
+        double minX = data.xs[0];
+        double maxX = data.xs[data.xs.length - 1];
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i : kept) {
+            minY = Math.min(minY, data.ys[i]);
+            maxY = Math.max(maxY, data.ys[i]);
+        }
+        double spanX = maxX > minX ? maxX - minX : 1;
+        double spanY = maxY > minY ? maxY - minY : 1;
+
+        int[] px = new int[kept.length];
+        int[] py = new int[kept.length];
+        for (int k = 0; k < kept.length; k++) {
+            int i = kept[k];
+            px[k] = (int) Math.round((data.xs[i] - minX) / spanX * (width - 1));
+            py[k] = top + plotHeight - 1 - (int) Math.round((data.ys[i] - minY) / spanY * (plotHeight - 1));
+        }
+        g.setColor(PALETTE[0]);
+        g.setStroke(new BasicStroke(1.5f));
+        g.drawPolyline(px, py, kept.length);
+    }
+
+    // Immutable snapshot of what to draw; either values or xs/ys is in use
+    static final class ChartData {
+        final long version;
+        final String title;
+        final Map<String, Double> values;
+        final double[] xs;
+        final double[] ys;
+
+        ChartData(long version, String title, Map<String, Double> values, double[] xs, double[] ys) {
+            this.version = version;
+            this.title = title;
+            this.values = values;
+            this.xs = xs;
+            this.ys = ys;
+        }
+    }
+
+    private static final class RenderedChart {
+        final long version;
+        final int width;
+        final int height;
+        final BufferedImage image;
+
+        RenderedChart(long version, int width, int height, BufferedImage image) {
+            this.version = version;
+            this.width = width;
+            this.height = height;
+            this.image = image;
+        }
+
+        boolean matches(long version, int width, int height) {
+            return this.version == version && this.width == width && this.height == height;
+        }
+    }
+}
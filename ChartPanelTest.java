@@ -0,0 +1,50 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class ChartPanelTest {
+    @Test
+    void testRendersOnlyWhenDataChanges() {
+        // Render inline so the counts are deterministic
+        ChartPanel chart = new ChartPanel(Runnable::run);
+        chart.setSize(200, 100);
+        Map<String, Double> values = new LinkedHashMap<>();
+        values.put("Stocks", 20000.0);
+        values.put("Bonds", 10000.0);
+
+        chart.generateChart("Asset Distribution", values);
+        chart.generateChart("Asset Distribution", new LinkedHashMap<>(values));
+        assertEquals(1, chart.getVersion(), "Unchanged data should keep the version");
+        assertEquals(1, chart.getRenderCount(), "Chart should render once");
+
+        BufferedImage screen = new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB);
+        chart.paint(screen.getGraphics());
+        chart.paint(screen.getGraphics());
+        assertEquals(1, chart.getRenderCount(), "Repaints should reuse the cached image");
+
+        values.put("Bonds", 15000.0);
+        chart.generateChart("Asset Distribution", values);
+        assertEquals(2, chart.getRenderCount(), "New data should render again");
+
+        chart.setSize(300, 100);
+        chart.paint(screen.getGraphics());
+        assertEquals(3, chart.getRenderCount(), "A resize should render again");
+    }
+
+    @Test
+    void testDrawsLargeSeries() {
+        ChartPanel chart = new ChartPanel(Runnable::run);
+        chart.setSize(400, 200);
+        int n = 1_000_000;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = i;
+            ys[i] = i % 1000;
+        }
+        chart.setSeries("Net Worth", xs, ys);
+        assertEquals(1, chart.getRenderCount(), "Series should render once");
+    }
+}
@@ -0,0 +1,642 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+// Struct-of-arrays asset store. The numeric fields every total needs live in
+// primitive chunks, so aggregation is a linear scan over contiguous memory
+// instead of a pointer chase through the asset objects. Mutations may come
+// from the EDT and from the tick ingestion thread, so they are serialized on
+// the store; column reads are unlocked.
+//
+// Unlocked reads are published through size, which is volatile and written
+// after the row's cells, and through the column directories, which are
+// volatile and only ever replaced by a copy holding the same chunks. A
+// reader takes size first and each directory once, so every row below that
+// size is fully written when seen. Such reads are safe from any thread but
+// not consistent: a row moved by a concurrent removal may be seen twice or
+// missed. Readers needing exact figures use getAggregates(), or walk the
+// store under the lock after awaitSettled().
+//
+// An asset's setter writes its fields between beforeChange and afterChange,
+// outside the lock, so holding the lock alone does not keep an asset still.
+// Readers that walk the assets under the lock call awaitSettled() first,
+// which waits out changes in flight; no new one can start while they hold
+// the lock. getAllAssets() does this, so its copy is one consistent set.
+//
+// Secondary indexes are kept in step with every mutation: a ticker hash
+// index, a bucket of rows per asset type, an order-statistics tree on
+// value and the row of each insertion sequence number. Index queries take
+// the store lock.
+class ColumnarAssetManager<T extends FinancialAsset> implements AssetManager, AssetChangeListener, Iterable<T> {
+    static final byte TYPE_OTHER = 0;
+    static final byte TYPE_STOCK = 1;
+    static final byte TYPE_BOND = 2;
+    static final byte TYPE_LOAN = 3;
+    static final int TYPE_COUNT = 4;
+
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Time spent holding the store lock, shared by every store
+    private static final LatencyHistogram ADD_LATENCY = Metrics.histogram("store.add");
+    private static final LatencyHistogram BATCH_LATENCY = Metrics.histogram("store.addBatch");
+    private static final LatencyHistogram REMOVE_LATENCY = Metrics.histogram("store.remove");
+    private static final LatencyHistogram UPDATE_LATENCY = Metrics.histogram("store.update");
+    private static final LongAdder BATCH_ROWS = Metrics.counter("store.addBatch.rows");
+
+    private final Class<T> assetClass;
+    private volatile long[][] valueCents = new long[0][];
+    private volatile int[][] purchaseDays = new int[0][];
+    private volatile byte[][] types = new byte[0][];
+    private volatile FinancialAsset[][] refs = new FinancialAsset[0][];
+    // Each row's position in its type bucket, and the ticker it is indexed
+    // under; only read under the lock
+    private int[][] bucketPositions = new int[0][];
+    private String[][] tickerKeys = new String[0][];
+    private volatile int size;
+    private long nextSeq;
+    // Assets between beforeChange and afterChange
+    private final Set<FinancialAsset> changing = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    // Rows of each type, in no particular order
+    private final int[][] typeBuckets = new int[TYPE_COUNT][];
+    private final int[] typeCounts = new int[TYPE_COUNT];
+    private final Map<String, List<T>> byTicker = new HashMap<>();
+    private final ValueIndex<T> byValue = new ValueIndex<>();
+    private final SlotsBySeq slotsBySeq = new SlotsBySeq();
+    private final PortfolioAggregates aggregates = new PortfolioAggregates();
+    private final List<AssetStoreListener> storeListeners = new CopyOnWriteArrayList<>();
+
+    public ColumnarAssetManager(Class<T> assetClass) {
+        this.assetClass = assetClass;
+        for (int type = 0; type < TYPE_COUNT; type++) {
+            typeBuckets[type] = new int[16];
+        }
+    }
+
+    @Override
+    public synchronized void addAsset(FinancialAsset asset) {
+        long start = System.nanoTime();
+        T typed = checkInsertable(asset);
+        ensureCapacity(size + 1);
+        insert(typed);
+        ADD_LATENCY.recordSince(start);
+    }
+
+    // Validates the whole batch first, so a bad entry leaves the store unchanged
+    @Override
+    public synchronized void addAssets(List<? extends FinancialAsset> batch) {
+        long start = System.nanoTime();
+        for (FinancialAsset asset : batch) {
+            checkInsertable(asset);
+        }
+        ensureCapacity(size + batch.size());
+        for (FinancialAsset asset : batch) {
+            insert(assetClass.cast(asset));
+        }
+        BATCH_ROWS.add(batch.size());
+        BATCH_LATENCY.recordSince(start);
+    }
+
+    private T checkInsertable(FinancialAsset asset) {
+        T typed = assetClass.cast(asset);
+        if (typed.storeSlot >= 0) {
+            throw new IllegalArgumentException("Asset already belongs to a store: " + typed.getName());
+        }
+        return typed;
+    }
+
+    private void insert(T typed) {
+        int slot = size;
+        refs[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK] = typed;
+        typed.storeSlot = slot;
+        typed.storeSeq = nextSeq++;
+        writeColumns(slot, typed);
+        size++;
+        index(slot, typed);
+
+        aggregates.add(typed);
+        typed.setChangeListener(this);
+
+        for (AssetStoreListener listener : storeListeners) {
+            listener.rowInserted(slot);
+        }
+    }
+
+    @Override
+    public synchronized void removeAsset(FinancialAsset asset) {
+        long start = System.nanoTime();
+        int slot = slotOf(asset);
+        if (slot < 0) {
+            return;
+        }
+
+        unindex(slot, assetClass.cast(asset));
+
+        // Swap the last row into the hole so the columns stay dense
+        int last = size - 1;
+        if (slot != last) {
+            FinancialAsset moved = refAt(last);
+            int to = slot & CHUNK_MASK;
+            int from = last & CHUNK_MASK;
+            refs[slot >>> CHUNK_SHIFT][to] = moved;
+            valueCents[slot >>> CHUNK_SHIFT][to] = valueCents[last >>> CHUNK_SHIFT][from];
+            purchaseDays[slot >>> CHUNK_SHIFT][to] = purchaseDays[last >>> CHUNK_SHIFT][from];
+            types[slot >>> CHUNK_SHIFT][to] = types[last >>> CHUNK_SHIFT][from];
+            tickerKeys[slot >>> CHUNK_SHIFT][to] = tickerKeys[last >>> CHUNK_SHIFT][from];
+            int position = bucketPositions[last >>> CHUNK_SHIFT][from];
+            bucketPositions[slot >>> CHUNK_SHIFT][to] = position;
+            typeBuckets[types[slot >>> CHUNK_SHIFT][to]][position] = slot;
+            moved.storeSlot = slot;
+            slotsBySeq.put(moved.storeSeq, slot);
+        }
+
+        refs[last >>> CHUNK_SHIFT][last & CHUNK_MASK] = null;
+        tickerKeys[last >>> CHUNK_SHIFT][last & CHUNK_MASK] = null;
+        asset.storeSlot = -1;
+        size--;
+
+        asset.setChangeListener(null);
+        aggregates.remove(asset);
+        // A change still in flight will never reach afterChange now
+        settle(asset);
+
+        for (AssetStoreListener listener : storeListeners) {
+            listener.rowRemoved(slot, last);
+        }
+        REMOVE_LATENCY.recordSince(start);
+    }
+
+    @Override
+    public synchronized void updateAsset(FinancialAsset asset) {
+        long start = System.nanoTime();
+        int slot = slotOf(asset);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Asset is not managed by this store: " + asset.getName());
+        }
+        reindex(slot, assetClass.cast(asset));
+        fireRowUpdated(slot);
+        UPDATE_LATENCY.recordSince(start);
+    }
+
+    @Override
+    public synchronized void beforeChange(FinancialAsset asset) {
+        changing.add(asset);
+        aggregates.beforeChange(asset);
+        int slot = slotOf(asset);
+        if (slot >= 0) {
+            for (AssetStoreListener listener : storeListeners) {
+                listener.rowChanging(slot);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void afterChange(FinancialAsset asset) {
+        settle(asset);
+        aggregates.afterChange(asset);
+        int slot = slotOf(asset);
+        if (slot >= 0) {
+            reindex(slot, assetClass.cast(asset));
+            fireRowUpdated(slot);
+        }
+    }
+
+    public void addStoreListener(AssetStoreListener listener) {
+        storeListeners.add(listener);
+    }
+
+    public void removeStoreListener(AssetStoreListener listener) {
+        storeListeners.remove(listener);
+    }
+
+    // Maintained incrementally, so this costs a small copy, not a scan. The
+    // copy is taken with no change in flight, when the totals agree with the
+    // assets; must not be called while this thread is changing an asset.
+    public synchronized PortfolioAggregates getAggregates() {
+        awaitSettled();
+        return aggregates.copy();
+    }
+
+    // A copy taken with no change in flight; the assets themselves stay live
+    @Override
+    public synchronized List<FinancialAsset> getAllAssets() {
+        awaitSettled();
+        List<FinancialAsset> all = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            all.add(refAt(i));
+        }
+        return all;
+    }
+
+    private void settle(FinancialAsset asset) {
+        if (changing.remove(asset) && changing.isEmpty()) {
+            notifyAll();
+        }
+    }
+
+    // Call with the store's lock held; returns once no asset is part way
+    // through a change. Must not be called while this thread is changing one.
+    void awaitSettled() {
+        boolean interrupted = false;
+        while (!changing.isEmpty()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Live read-only view, unlike getAllAssets(); no copy is made
+    public List<T> asList() {
+        return new AbstractList<T>() {
+            @Override
+            public T get(int index) {
+                return ColumnarAssetManager.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public T next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // A row vacated by a concurrent removal reads as out of range
+    public T get(int index) {
+        checkIndex(index);
+        FinancialAsset asset = refAt(index);
+        if (asset == null) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return assetClass.cast(asset);
+    }
+
+    public double getValue(int index) {
+        return Money.toDouble(getValueCents(index));
+    }
+
+    public long getValueCents(int index) {
+        checkIndex(index);
+        return valueCents[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    // Days since 1970-01-01 in the default time zone
+    public int getPurchaseEpochDay(int index) {
+        checkIndex(index);
+        return purchaseDays[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    public byte getTypeCode(int index) {
+        checkIndex(index);
+        return types[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    // Full rescan of the value column; exact while no writer is active, so
+    // it can reconcile the aggregates
+    public double sumValues() {
+        int rows = size;
+        long[][] values = valueCents;
+        long total = 0;
+        for (int c = 0; c < chunksInUse(rows); c++) {
+            long[] chunk = values[c];
+            int n = rowsInChunk(rows, c);
+            for (int i = 0; i < n; i++) {
+                total += chunk[i];
+            }
+        }
+        return Money.toDouble(total);
+    }
+
+    public double sumValues(byte type) {
+        int rows = size;
+        long[][] values = valueCents;
+        byte[][] typeCodes = types;
+        long total = 0;
+        for (int c = 0; c < chunksInUse(rows); c++) {
+            long[] valueChunk = values[c];
+            byte[] typeChunk = typeCodes[c];
+            int n = rowsInChunk(rows, c);
+            for (int i = 0; i < n; i++) {
+                if (typeChunk[i] == type) {
+                    total += valueChunk[i];
+                }
+            }
+        }
+        return Money.toDouble(total);
+    }
+
+    public int count(byte type) {
+        return typeCounts[type];
+    }
+
+    // The i-th asset of a type, for 0 <= i < count(type); order is unspecified
+    public synchronized T getOfType(byte type, int index) {
+        if (index < 0 || index >= typeCounts[type]) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + typeCounts[type]);
+        }
+        return assetClass.cast(refAt(typeBuckets[type][index]));
+    }
+
+    // The asset in the store that a copy (see FinancialAsset.freeze) was
+    // taken from, or null once it has been removed
+    public synchronized T findOriginal(FinancialAsset copy) {
+        int slot = slotsBySeq.get(copy.storeSeq);
+        return slot < 0 ? null : assetClass.cast(refAt(slot));
+    }
+
+    // Every stock held under the ticker
+    public synchronized List<T> findByTicker(String ticker) {
+        List<T> holdings = byTicker.get(ticker);
+        return holdings == null ? Collections.emptyList() : new ArrayList<>(holdings);
+    }
+
+    // The n most valuable assets, largest first
+    public synchronized List<T> topByValue(int n) {
+        return byValue.top(n);
+    }
+
+    // Assets worth between the two amounts inclusive, smallest first
+    public synchronized List<T> findByValueRange(long minCents, long maxCents) {
+        return byValue.range(minCents, maxCents);
+    }
+
+    // Number of assets worth less than the amount
+    public synchronized int rankByValue(long cents) {
+        return byValue.rank(cents);
+    }
+
+    static byte typeCode(FinancialAsset asset) {
+        if (asset instanceof Stock) {
+            return TYPE_STOCK;
+        } else if (asset instanceof Bond) {
+            return TYPE_BOND;
+        } else if (asset instanceof Loan) {
+            return TYPE_LOAN;
+        }
+        return TYPE_OTHER;
+    }
+
+    private void index(int slot, T asset) {
+        int chunk = slot >>> CHUNK_SHIFT;
+        int offset = slot & CHUNK_MASK;
+        byte type = types[chunk][offset];
+        if (typeCounts[type] == typeBuckets[type].length) {
+            typeBuckets[type] = Arrays.copyOf(typeBuckets[type], typeCounts[type] * 2);
+        }
+        bucketPositions[chunk][offset] = typeCounts[type];
+        typeBuckets[type][typeCounts[type]++] = slot;
+
+        String ticker = tickerOf(asset);
+        tickerKeys[chunk][offset] = ticker;
+        if (ticker != null) {
+            byTicker.computeIfAbsent(ticker, t -> new ArrayList<>(1)).add(asset);
+        }
+        byValue.add(valueCents[chunk][offset], asset.storeSeq, asset);
+        slotsBySeq.put(asset.storeSeq, slot);
+    }
+
+    private void unindex(int slot, T asset) {
+        int chunk = slot >>> CHUNK_SHIFT;
+        int offset = slot & CHUNK_MASK;
+        byte type = types[chunk][offset];
+        // Fill the hole in the bucket with its last entry
+        int position = bucketPositions[chunk][offset];
+        int lastSlot = typeBuckets[type][--typeCounts[type]];
+        typeBuckets[type][position] = lastSlot;
+        bucketPositions[lastSlot >>> CHUNK_SHIFT][lastSlot & CHUNK_MASK] = position;
+
+        removeTicker(tickerKeys[chunk][offset], asset);
+        byValue.remove(valueCents[chunk][offset], asset.storeSeq);
+        slotsBySeq.remove(asset.storeSeq);
+    }
+
+    // The columns still hold the indexed keys, so only keys that moved are re-indexed
+    private void reindex(int slot, T asset) {
+        int chunk = slot >>> CHUNK_SHIFT;
+        int offset = slot & CHUNK_MASK;
+        long oldValue = valueCents[chunk][offset];
+        if (oldValue != asset.getValueCents()) {
+            byValue.remove(oldValue, asset.storeSeq);
+            byValue.add(asset.getValueCents(), asset.storeSeq, asset);
+        }
+
+        String oldTicker = tickerKeys[chunk][offset];
+        String ticker = tickerOf(asset);
+        if (!Objects.equals(oldTicker, ticker)) {
+            removeTicker(oldTicker, asset);
+            tickerKeys[chunk][offset] = ticker;
+            if (ticker != null) {
+                byTicker.computeIfAbsent(ticker, t -> new ArrayList<>(1)).add(asset);
+            }
+        }
+        writeColumns(slot, asset);
+    }
+
+    private void removeTicker(String ticker, T asset) {
+        if (ticker == null) {
+            return;
+        }
+        List<T> holdings = byTicker.get(ticker);
+        holdings.remove(asset);
+        if (holdings.isEmpty()) {
+            byTicker.remove(ticker);
+        }
+    }
+
+    private static String tickerOf(FinancialAsset asset) {
+        return asset instanceof Stock ? ((Stock) asset).getTicker() : null;
+    }
+
+    private void writeColumns(int slot, FinancialAsset asset) {
+        int chunk = slot >>> CHUNK_SHIFT;
+        int offset = slot & CHUNK_MASK;
+        valueCents[chunk][offset] = asset.getValueCents();
+        purchaseDays[chunk][offset] = asset.getPurchaseDate() == null ? 0 : FastFormat.toEpochDay(asset.getPurchaseDate());
+        types[chunk][offset] = typeCode(asset);
+    }
+
+    private void fireRowUpdated(int slot) {
+        for (AssetStoreListener listener : storeListeners) {
+            listener.rowUpdated(slot);
+        }
+    }
+
+    private int slotOf(FinancialAsset asset) {
+        int slot = asset.storeSlot;
+        if (slot < 0 || slot >= size || refAt(slot) != asset) {
+            return -1;
+        }
+        return slot;
+    }
+
+    private FinancialAsset refAt(int index) {
+        return refs[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    private void ensureCapacity(int capacity) {
+        int chunksNeeded = (capacity + CHUNK_MASK) >>> CHUNK_SHIFT;
+        if (chunksNeeded > refs.length) {
+            // Only the small directory arrays are copied; existing chunks are shared
+            int newLength = Math.max(chunksNeeded, Math.max(4, refs.length * 2));
+            valueCents = Arrays.copyOf(valueCents, newLength);
+            purchaseDays = Arrays.copyOf(purchaseDays, newLength);
+            types = Arrays.copyOf(types, newLength);
+            refs = Arrays.copyOf(refs, newLength);
+            bucketPositions = Arrays.copyOf(bucketPositions, newLength);
+            tickerKeys = Arrays.copyOf(tickerKeys, newLength);
+        }
+
+        for (int c = size >>> CHUNK_SHIFT; c < chunksNeeded; c++) {
+            if (refs[c] != null) {
+                continue;
+            }
+            valueCents[c] = new long[CHUNK_SIZE];
+            purchaseDays[c] = new int[CHUNK_SIZE];
+            types[c] = new byte[CHUNK_SIZE];
+            refs[c] = new FinancialAsset[CHUNK_SIZE];
+            bucketPositions[c] = new int[CHUNK_SIZE];
+            tickerKeys[c] = new String[CHUNK_SIZE];
+        }
+    }
+
+    private static int chunksInUse(int rows) {
+        return (rows + CHUNK_MASK) >>> CHUNK_SHIFT;
+    }
+
+    private static int rowsInChunk(int rows, int chunk) {
+        return Math.min(CHUNK_SIZE, rows - (chunk << CHUNK_SHIFT));
+    }
+
+    // Reads size before the caller touches a directory, which is what
+    // makes the row's cells visible
+    private void checkIndex(int index) {
+        int rows = size;
+        if (index < 0 || index >= rows) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + rows);
+        }
+    }
+
+    // Insertion sequence number to row, open-addressed with linear probing
+    // so a lookup costs no boxing and no scan whatever the store size
+    private static final class SlotsBySeq {
+        private long[] seqs = new long[16];
+        // Row plus one; zero marks an empty entry
+        private int[] slots = new int[16];
+        private int count;
+
+        int get(long seq) {
+            int mask = seqs.length - 1;
+            for (int i = indexOf(seq, mask); slots[i] != 0; i = (i + 1) & mask) {
+                if (seqs[i] == seq) {
+                    return slots[i] - 1;
+                }
+            }
+            return -1;
+        }
+
+        void put(long seq, int slot) {
+            if ((count + 1) * 2 > seqs.length) {
+                grow();
+            }
+            int mask = seqs.length - 1;
+            int i = indexOf(seq, mask);
+            while (slots[i] != 0 && seqs[i] != seq) {
+                i = (i + 1) & mask;
+            }
+            if (slots[i] == 0) {
+                count++;
+            }
+            seqs[i] = seq;
+            slots[i] = slot + 1;
+        }
+
+        // Shifts later entries of the probe run back, so lookups need no tombstones
+        void remove(long seq) {
+            int mask = seqs.length - 1;
+            int i = indexOf(seq, mask);
+            while (slots[i] != 0 && seqs[i] != seq) {
+                i = (i + 1) & mask;
+            }
+            if (slots[i] == 0) {
+                return;
+            }
+            count--;
+            int hole = i;
+            for (int j = (hole + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+                int home = indexOf(seqs[j], mask);
+                // Move j into the hole unless its home lies cyclically in (hole, j]
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    seqs[hole] = seqs[j];
+                    slots[hole] = slots[j];
+                    hole = j;
+                }
+            }
+            slots[hole] = 0;
+        }
+
+        private void grow() {
+            long[] oldSeqs = seqs;
+            int[] oldSlots = slots;
+            seqs = new long[oldSeqs.length * 2];
+            slots = new int[oldSlots.length * 2];
+            int mask = seqs.length - 1;
+            for (int k = 0; k < oldSeqs.length; k++) {
+                if (oldSlots[k] != 0) {
+                    int i = indexOf(oldSeqs[k], mask);
+                    while (slots[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    seqs[i] = oldSeqs[k];
+                    slots[i] = oldSlots[k];
+                }
+            }
+        }
+
+        private static int indexOf(long seq, int mask) {
+            long h = seq * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
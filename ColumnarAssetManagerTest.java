@@ -0,0 +1,168 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+class ColumnarAssetManagerTest {
+    private ColumnarAssetManager<FinancialAsset> manager;
+    private Stock stock;
+    private Bond bond;
+
+    @BeforeEach
+    void setUp() {
+        manager = new ColumnarAssetManager<>(FinancialAsset.class);
+        stock = new Stock("Apple", 10000, new Date(), "AAPL", 100, 100);
+        bond = new Bond("Gov Bond", 5000, new Date(), 5, new Date());
+        manager.addAsset(stock);
+        manager.addAsset(bond);
+    }
+
+    @Test
+    void testTotalsByType() {
+        assertEquals(15000, manager.sumValues(), 0.001, "Total value is incorrect");
+        assertEquals(10000, manager.sumValues(ColumnarAssetManager.TYPE_STOCK), 0.001, "Stock total is incorrect");
+        assertEquals(1, manager.count(ColumnarAssetManager.TYPE_BOND), "Bond count is incorrect");
+    }
+
+    @Test
+    void testRemoveKeepsColumnsDense() {
+        manager.removeAsset(stock);
+        assertEquals(1, manager.size(), "Size not updated after removal");
+        assertSame(bond, manager.get(0), "Last row was not moved into the hole");
+        assertEquals(5000, manager.getValue(0), 0.001, "Moved row has the wrong value");
+    }
+
+    @Test
+    void testUpdateAssetRefreshesColumns() {
+        stock.setPricePerShare(120);
+        manager.updateAsset(stock);
+        assertEquals(17000, manager.sumValues(), 0.001, "Total not refreshed after update");
+    }
+
+    @Test
+    void testFindOriginalOfCopy() {
+        FinancialAsset copy = bond.freeze();
+        assertSame(bond, manager.findOriginal(copy), "Copy not mapped back to its asset");
+        manager.removeAsset(bond);
+        assertNull(manager.findOriginal(copy), "Removed asset still found");
+    }
+
+    @Test
+    void testFindOriginalFollowsSwapRemoves() {
+        List<Bond> bonds = new ArrayList<>();
+        List<FinancialAsset> copies = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Bond added = new Bond("Bond " + i, 1, new Date(), 1, new Date());
+            manager.addAsset(added);
+            bonds.add(added);
+            copies.add(added.freeze());
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < 2500; i++) {
+            manager.removeAsset(bonds.get(random.nextInt(bonds.size())));
+        }
+        for (int i = 0; i < bonds.size(); i++) {
+            Bond expected = bonds.get(i).storeSlot >= 0 ? bonds.get(i) : null;
+            assertSame(expected, manager.findOriginal(copies.get(i)), "Wrong asset for bond " + i);
+        }
+    }
+
+    @Test
+    void testGrowsAcrossChunks() {
+        for (int i = 0; i < 10000; i++) {
+            manager.addAsset(new Bond("Bond " + i, 1, new Date(), 1, new Date()));
+        }
+        assertEquals(10002, manager.size(), "Size is incorrect after growth");
+        assertEquals(25000, manager.sumValues(), 0.001, "Total is incorrect after growth");
+    }
+
+    @Test
+    void testAggregatesFollowSetters() {
+        stock.setShares(150);
+        assertEquals(20000, manager.getAggregates().getTotalValue(), 0.001, "Aggregate not updated by setShares");
+        assertEquals(15000, manager.getValue(0), 0.001, "Column not updated by setShares");
+
+        manager.removeAsset(stock);
+        stock.setPricePerShare(200);
+        assertEquals(5000, manager.getAggregates().getTotalValue(), 0.001, "Removed asset still affects aggregates");
+    }
+
+    @Test
+    void testLoanPaymentAggregate() {
+        ColumnarAssetManager<Loan> loans = new ColumnarAssetManager<>(Loan.class);
+        Loan loan = new Loan("Car Loan", 50000, new Date(), 5.0, 60, 0);
+        loans.addAsset(loan);
+        assertEquals(943.56, loans.getAggregates().getTotalMonthlyPayments(), 0.5, "Monthly payment aggregate is incorrect");
+
+        loan.setValue(25000);
+        assertEquals(471.78, loans.getAggregates().getTotalMonthlyPayments(), 0.5, "Monthly payment aggregate not updated");
+    }
+
+    @Test
+    void testTickerIndexFollowsChanges() {
+        assertSame(stock, manager.findByTicker("AAPL").get(0), "Ticker lookup failed");
+        stock.setTicker("APPL");
+        assertTrue(manager.findByTicker("AAPL").isEmpty(), "Old ticker still indexed");
+        assertSame(stock, manager.findByTicker("APPL").get(0), "New ticker not indexed");
+
+        manager.removeAsset(stock);
+        assertTrue(manager.findByTicker("APPL").isEmpty(), "Removed stock still indexed");
+    }
+
+    @Test
+    void testTypeBucketsSurviveRemoval() {
+        Bond second = new Bond("Muni Bond", 2000, new Date(), 3, new Date());
+        manager.addAsset(second);
+        manager.removeAsset(bond);
+
+        assertEquals(1, manager.count(ColumnarAssetManager.TYPE_BOND), "Bond count not updated");
+        assertSame(second, manager.getOfType(ColumnarAssetManager.TYPE_BOND, 0), "Bond bucket points at the wrong row");
+        assertSame(stock, manager.getOfType(ColumnarAssetManager.TYPE_STOCK, 0), "Stock bucket broken by removal");
+    }
+
+    @Test
+    void testValueIndexQueries() {
+        Bond small = new Bond("Small Bond", 100, new Date(), 3, new Date());
+        manager.addAsset(small);
+        assertEquals(java.util.List.of(stock, bond), manager.topByValue(2), "Top holdings are incorrect");
+        assertEquals(java.util.List.of(small, bond), manager.findByValueRange(0, 500000), "Value range is incorrect");
+
+        small.setValue(20000);
+        assertSame(small, manager.topByValue(1).get(0), "Value index not updated by setter");
+        assertEquals(1, manager.rankByValue(1000000), "Rank is incorrect");
+    }
+
+    @Test
+    void testCopyWaitsForChangeInFlight() throws Exception {
+        // As a setter does, before it writes the fields outside the lock
+        manager.beforeChange(stock);
+        CompletableFuture<List<FinancialAsset>> copy = CompletableFuture.supplyAsync(manager::getAllAssets);
+        assertThrows(TimeoutException.class, () -> copy.get(100, TimeUnit.MILLISECONDS),
+                "Copy taken while an asset was part way through a change");
+
+        manager.afterChange(stock);
+        assertEquals(List.of(stock, bond), copy.get(5, TimeUnit.SECONDS), "Copy is incorrect");
+    }
+
+    @Test
+    void testAggregatesWaitForChangeInFlight() throws Exception {
+        // Between the two calls the stock is out of the running totals
+        manager.beforeChange(stock);
+        CompletableFuture<PortfolioAggregates> totals = CompletableFuture.supplyAsync(manager::getAggregates);
+        assertThrows(TimeoutException.class, () -> totals.get(100, TimeUnit.MILLISECONDS),
+                "Totals read while an asset was part way through a change");
+
+        manager.afterChange(stock);
+        PortfolioAggregates settled = totals.get(5, TimeUnit.SECONDS);
+        assertEquals(15000, settled.getTotalValue(), 0.001, "Settled total is incorrect");
+
+        stock.setValue(20000);
+        assertEquals(15000, settled.getTotalValue(), 0.001, "Copy followed a later change");
+    }
+}
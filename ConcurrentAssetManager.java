@@ -0,0 +1,270 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+// AssetManager for many writer and reader threads at once, e.g. price feeds
+// and background reports over the same holdings. Assets are spread over
+// power-of-two stripes by identity; each stripe has its own StampedLock,
+// rows and PortfolioAggregates, so writers to different stripes never meet.
+//
+// Totals are read optimistically: a reader takes a stamp, copies the
+// stripe's fields and only falls back to the read lock if a writer got in
+// between, so the common read costs no lock and no shared write.
+// getAllAssets() read-locks every stripe in order and copies, which gives a
+// point-in-time snapshot; writers hold one stripe at a time, so the ordered
+// locking cannot deadlock.
+//
+// A value change made through an asset's setters holds its stripe's write
+// lock from beforeChange to afterChange, so no reader sees the asset
+// removed from the totals but not yet added back.
+class ConcurrentAssetManager implements AssetManager, AssetChangeListener {
+    static final int DEFAULT_STRIPES = 16;
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    public ConcurrentAssetManager() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public ConcurrentAssetManager(int stripeCount) {
+        if (stripeCount < 1 || Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("Stripe count must be a power of two: " + stripeCount);
+        }
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        mask = stripeCount - 1;
+    }
+
+    @Override
+    public void addAsset(FinancialAsset asset) {
+        Stripe stripe = stripeOf(asset);
+        long stamp = stripe.lock.writeLock();
+        try {
+            stripe.insert(asset);
+            asset.setChangeListener(this);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    // Validates the whole batch first, so a bad entry leaves the store unchanged
+    @Override
+    public void addAssets(List<? extends FinancialAsset> assets) {
+        for (FinancialAsset asset : assets) {
+            checkInsertable(asset);
+        }
+        for (FinancialAsset asset : assets) {
+            addAsset(asset);
+        }
+    }
+
+    @Override
+    public void removeAsset(FinancialAsset asset) {
+        Stripe stripe = stripeOf(asset);
+        long stamp = stripe.lock.writeLock();
+        try {
+            if (stripe.remove(asset)) {
+                asset.setChangeListener(null);
+            }
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    // Totals follow value changes through the change notifications, so
+    // this only checks that the asset belongs here
+    @Override
+    public void updateAsset(FinancialAsset asset) {
+        Stripe stripe = stripeOf(asset);
+        long stamp = stripe.lock.readLock();
+        try {
+            if (!stripe.contains(asset)) {
+                throw new IllegalArgumentException("Asset is not managed by this store: " + asset.getName());
+            }
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+    }
+
+    // A consistent copy across all stripes; later changes do not show through
+    @Override
+    public List<FinancialAsset> getAllAssets() {
+        long[] stamps = new long[stripes.length];
+        for (int i = 0; i < stripes.length; i++) {
+            stamps[i] = stripes[i].lock.readLock();
+        }
+        try {
+            int size = 0;
+            for (Stripe stripe : stripes) {
+                size += stripe.size;
+            }
+            List<FinancialAsset> snapshot = new ArrayList<>(size);
+            for (Stripe stripe : stripes) {
+                for (int i = 0; i < stripe.size; i++) {
+                    snapshot.add(stripe.rows[i]);
+                }
+            }
+            return Collections.unmodifiableList(snapshot);
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].lock.unlockRead(stamps[i]);
+            }
+        }
+    }
+
+    // The asset may have been removed while this thread waited for the
+    // lock, so membership is checked before touching the totals
+    @Override
+    public void beforeChange(FinancialAsset asset) {
+        Stripe stripe = stripeOf(asset);
+        long stamp = stripe.lock.writeLock();
+        // Only the write-lock holder touches these
+        stripe.pendingStamp = stamp;
+        stripe.changer = Thread.currentThread();
+        if (stripe.contains(asset)) {
+            stripe.totals.beforeChange(asset);
+        }
+    }
+
+    @Override
+    public void afterChange(FinancialAsset asset) {
+        Stripe stripe = stripeOf(asset);
+        // No matching beforeChange: the asset was added mid-change, and
+        // insert already counted its new value
+        if (stripe.changer != Thread.currentThread()) {
+            return;
+        }
+        if (stripe.contains(asset)) {
+            stripe.totals.afterChange(asset);
+        }
+        stripe.changer = null;
+        stripe.lock.unlockWrite(stripe.pendingStamp);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.readInt(() -> stripe.size);
+        }
+        return size;
+    }
+
+    public long getTotalValueCents() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            total += stripe.readLong(() -> stripe.totals.getTotalValueCents());
+        }
+        return total;
+    }
+
+    public long getTotalValueCents(byte type) {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            total += stripe.readLong(() -> stripe.totals.getTotalValueCents(type));
+        }
+        return total;
+    }
+
+    public int getCount(byte type) {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            count += stripe.readInt(() -> stripe.totals.getCount(type));
+        }
+        return count;
+    }
+
+    public long getTotalMonthlyPaymentCents() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            total += stripe.readLong(() -> stripe.totals.getTotalMonthlyPaymentCents());
+        }
+        return total;
+    }
+
+    private Stripe stripeOf(FinancialAsset asset) {
+        int hash = System.identityHashCode(asset);
+        return stripes[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    private static void checkInsertable(FinancialAsset asset) {
+        if (asset.storeSlot >= 0) {
+            throw new IllegalArgumentException("Asset already belongs to a store: " + asset.getName());
+        }
+    }
+
+    // Rows and totals for one partition, guarded by its lock
+    private static final class Stripe {
+        final StampedLock lock = new StampedLock();
+        FinancialAsset[] rows = new FinancialAsset[16];
+        int size;
+        final PortfolioAggregates totals = new PortfolioAggregates();
+        long pendingStamp;
+        Thread changer;
+
+        void insert(FinancialAsset asset) {
+            checkInsertable(asset);
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            asset.storeSlot = size;
+            rows[size++] = asset;
+            totals.add(asset);
+        }
+
+        // Swaps the last row into the hole
+        boolean remove(FinancialAsset asset) {
+            if (!contains(asset)) {
+                return false;
+            }
+            int slot = asset.storeSlot;
+            FinancialAsset last = rows[--size];
+            rows[slot] = last;
+            last.storeSlot = slot;
+            rows[size] = null;
+            asset.storeSlot = -1;
+            totals.remove(asset);
+            return true;
+        }
+
+        boolean contains(FinancialAsset asset) {
+            int slot = asset.storeSlot;
+            return slot >= 0 && slot < size && rows[slot] == asset;
+        }
+
+        // Optimistic read, retried under the read lock if a writer intervened
+        long readLong(LongSupplier field) {
+            long stamp = lock.tryOptimisticRead();
+            long value = field.getAsLong();
+            if (lock.validate(stamp)) {
+                return value;
+            }
+            stamp = lock.readLock();
+            try {
+                return field.getAsLong();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        int readInt(IntSupplier field) {
+            long stamp = lock.tryOptimisticRead();
+            int value = field.getAsInt();
+            if (lock.validate(stamp)) {
+                return value;
+            }
+            stamp = lock.readLock();
+            try {
+                return field.getAsInt();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
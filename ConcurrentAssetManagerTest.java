@@ -0,0 +1,112 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ConcurrentAssetManagerTest {
+    @Test
+    void testTotalsFollowChanges() {
+        ConcurrentAssetManager manager = new ConcurrentAssetManager(4);
+        Stock stock = new Stock("Apple", 10000, new Date(), "AAPL", 100, 100);
+        Bond bond = new Bond("Gov Bond", 5000, new Date(), 5, new Date());
+        manager.addAssets(List.of(stock, bond));
+
+        stock.setPricePerShare(120);
+        assertEquals(1700000, manager.getTotalValueCents(), "Total not updated by the setter");
+        assertEquals(1, manager.getCount(ColumnarAssetManager.TYPE_BOND), "Bond count is incorrect");
+
+        manager.removeAsset(bond);
+        bond.setValue(9000);
+        assertEquals(1200000, manager.getTotalValueCents(), "Removed asset still counted");
+        assertEquals(1, manager.getAllAssets().size(), "Snapshot has the wrong size");
+        assertThrows(IllegalArgumentException.class, () -> manager.updateAsset(bond),
+                "Update of an unmanaged asset was accepted");
+    }
+
+    @Test
+    void testConcurrentWritersKeepTotalsExact() throws InterruptedException {
+        ConcurrentAssetManager manager = new ConcurrentAssetManager();
+        int threads = 4;
+        int perThread = 2000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            writers.add(new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < perThread; i++) {
+                    Bond bond = new Bond("Bond " + id + "-" + i, 100, new Date(), 5, new Date());
+                    manager.addAsset(bond);
+                    // Every other bond is revalued, every fourth removed again
+                    if (i % 2 == 0) {
+                        bond.setValue(200);
+                    }
+                    if (i % 4 == 0) {
+                        manager.removeAsset(bond);
+                    }
+                }
+            }));
+        }
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        // Per thread: 1000 odd bonds at $100, 500 even ones kept at $200
+        assertEquals(threads * 1500, manager.size(), "Asset count drifted under contention");
+        assertEquals(threads * (1000 * 10000L + 500 * 20000L), manager.getTotalValueCents(),
+                "Total drifted under contention");
+        long snapshotTotal = 0;
+        for (FinancialAsset asset : manager.getAllAssets()) {
+            snapshotTotal += asset.getValueCents();
+        }
+        assertEquals(manager.getTotalValueCents(), snapshotTotal, "Snapshot disagrees with the totals");
+    }
+
+    @Test
+    void testReadersNeverSeeHalfAChange() throws InterruptedException {
+        // Without the lock held across the change, a reader could see A taken out of the total
+        ConcurrentAssetManager manager = new ConcurrentAssetManager(1);
+        Bond a = new Bond("A", 1000, new Date(), 5, new Date());
+        Bond b = new Bond("B", 1000, new Date(), 5, new Date());
+        manager.addAssets(List.of(a, b));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            while (running.get()) {
+                a.setValueCents(a.getValueCents() - 1);
+                a.setValueCents(a.getValueCents() + 1);
+            }
+        });
+        writer.start();
+        AtomicInteger torn = new AtomicInteger();
+        try {
+            for (int i = 0; i < 20_000; i++) {
+                long total = manager.getTotalValueCents();
+                if (total != 200000 && total != 199999) {
+                    torn.incrementAndGet();
+                }
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+        assertEquals(0, torn.get(), "Reader saw an asset missing from the totals mid-change");
+        assertEquals(200000, manager.getTotalValueCents(), "Total is wrong after the writer stopped");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import java.io.IOException;
+
+// Turns report text into section,item,value rows. Headings ending in ':'
+// start a section; "label: value" lines become items, and the indented
+// lines under a "- name:" entry are prefixed with that name.
+class CsvReportSink extends LineReportSink {
+    private String section = "";
+    private String group;
+
+    CsvReportSink(Appendable out) throws IOException {
+        super(out);
+        out.append("section,item,value\n");
+    }
+
+    @Override
+    protected void line(CharSequence text) throws IOException {
+        String line = text.toString();
+        String trimmed = line.trim();
+        if (trimmed.isEmpty()) {
+            return;
+        }
+        if (trimmed.startsWith("===") && trimmed.endsWith("===")) {
+            row("report", trimmed.substring(3, trimmed.length() - 3).trim(), "");
+            return;
+        }
+
+        boolean indented = line.startsWith("  ");
+        boolean bullet = trimmed.startsWith("- ");
+        String body = bullet ? trimmed.substring(2) : trimmed;
+        if (!indented) {
+            group = null;
+        }
+
+        if (body.endsWith(":")) {
+            String name = body.substring(0, body.length() - 1);
+            if (bullet) {
+                group = name;
+            } else {
+                section = name;
+            }
+            return;
+        }
+
+        int colon = body.indexOf(": ");
+        String item = colon < 0 ? body : body.substring(0, colon);
+        String value = colon < 0 ? "" : body.substring(colon + 2);
+        if (indented && group != null) {
+            item = group + " / " + item;
+        }
+        row(section, item, value);
+    }
+
+    private void row(String first, String second, String third) throws IOException {
+        field(first);
+        out.append(',');
+        field(second);
+        out.append(',');
+        field(third);
+        out.append('\n');
+    }
+
+    private void field(String value) throws IOException {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            out.append(value);
+            return;
+        }
+        out.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,429 @@
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// Compares ways of spending an extra monthly budget on a set of loans.
+// Every loan keeps getting its minimum payment; the extra budget, plus the
+// minimum of every loan already paid off, goes to the first unpaid loan in
+// a priority order:
+//
+//   snowball   smallest balance first
+//   avalanche  highest interest rate first
+//   optimized  the cheapest of a range of orders that blend the two, each
+//              loan scored by rate and by smallness of balance in proportion
+//
+// The orders are built in parallel, each by a primitive sort of packed
+// long keys, and each budget level and order is then one scenario, split
+// across a fork/join pool. A blended order is abandoned as soon as the
+// interest on the loans it has already paid off exceeds the best complete
+// result for that budget, so most of the search costs a fraction of a full
+// run. A run is simulated from one payoff to the next using the closed-form
+// amortization in LoanAnalytics rather than month by month, so it costs
+// O(loans) however long the debt takes to clear.
+class DebtRepaymentOptimizer {
+    // Orders tried per budget level, from pure snowball to pure avalanche
+    static final int DEFAULT_ORDERS = 11;
+    // An order packs two ranks and an index into one long, 21 bits each
+    static final int MAX_LOANS = 1 << 21;
+    // Scenarios simulated by each fork/join leaf
+    private static final int SCENARIOS_PER_TASK = 16;
+    private static final int AVALANCHE = 0;
+    private static final int SNOWBALL = 1;
+
+    private final double[] balances;
+    private final double[] monthlyRates;
+    private final double[] minimums;
+    // Month each loan is paid off on its minimum alone, and the total paid by then
+    private final int[] naturalPayoff;
+    private final double[] naturalPaid;
+    // Loans by naturalPayoff, earliest first
+    private final int[] byNaturalPayoff;
+    private final double totalMinimum;
+    // orders[0] is avalanche and orders[1] snowball; the rest are blends
+    private final int[][] orders;
+    private final double[] rateWeights;
+
+    DebtRepaymentOptimizer(double[] balances, double[] annualRatesPercent, double[] minimums, int orderCount) {
+        if (orderCount < 2) {
+            throw new IllegalArgumentException("At least the snowball and avalanche orders are needed");
+        }
+        int n = balances.length;
+        if (n > MAX_LOANS) {
+            throw new IllegalArgumentException("At most " + MAX_LOANS + " loans can be compared: " + n);
+        }
+        this.balances = balances.clone();
+        this.minimums = minimums.clone();
+        monthlyRates = new double[n];
+        naturalPayoff = new int[n];
+        naturalPaid = new double[n];
+        double minimumSum = 0;
+        double maxRate = 0;
+        double maxBalance = 0;
+        for (int i = 0; i < n; i++) {
+            monthlyRates[i] = annualRatesPercent[i] / 100 / 12;
+            naturalPayoff[i] = monthsToClear(balances[i], monthlyRates[i], minimums[i]);
+            naturalPaid[i] = paidToClear(balances[i], monthlyRates[i], minimums[i], naturalPayoff[i]);
+            minimumSum += minimums[i];
+            maxRate = Math.max(maxRate, annualRatesPercent[i]);
+            maxBalance = Math.max(maxBalance, balances[i]);
+        }
+        totalMinimum = minimumSum;
+        double[] payoffKeys = new double[n];
+        double[] negatedRates = new double[n];
+        // Each loan's rate and smallness of balance, scaled to 0..1 for scoring
+        double[] rateShares = new double[n];
+        double[] smallness = new double[n];
+        for (int i = 0; i < n; i++) {
+            payoffKeys[i] = naturalPayoff[i];
+            negatedRates[i] = -annualRatesPercent[i];
+            rateShares[i] = maxRate > 0 ? annualRatesPercent[i] / maxRate : 0;
+            smallness[i] = maxBalance > 0 ? 1 - balances[i] / maxBalance : 0;
+        }
+        byNaturalPayoff = sortedBy(denseRanks(payoffKeys), new int[n]);
+
+        // Weight 1 is avalanche and 0 snowball; ties go to the other criterion
+        int[] smallestFirst = denseRanks(balances);
+        int[] highestRateFirst = denseRanks(negatedRates);
+        rateWeights = new double[orderCount];
+        orders = new int[orderCount][];
+        ForkJoinTask<?>[] builds = new ForkJoinTask<?>[orderCount];
+        for (int o = 0; o < orderCount; o++) {
+            double weight = o == AVALANCHE ? 1 : o == SNOWBALL ? 0 : (double) (o - 1) / (orderCount - 1);
+            int order = o;
+            rateWeights[o] = weight;
+            builds[o] = ForkJoinTask.adapt(() -> {
+                double[] negatedScores = new double[n];
+                for (int i = 0; i < n; i++) {
+                    negatedScores[i] = -(weight * rateShares[i] + (1 - weight) * smallness[i]);
+                }
+                orders[order] = sortedBy(denseRanks(negatedScores), weight >= 0.5 ? smallestFirst : highestRateFirst);
+            });
+        }
+        // Forked to the common pool when called from outside one
+        ForkJoinTask.invokeAll(builds);
+    }
+
+    // Loans as they stand, e.g. a PortfolioVersions snapshot, with their
+    // current level payment as the minimum. Paid-off loans are left out.
+    static DebtRepaymentOptimizer of(Iterable<Loan> liabilities, LoanAnalytics loanAnalytics) {
+        int count = 0;
+        for (Loan loan : liabilities) {
+            count++;
+        }
+        double[] balances = new double[count];
+        double[] rates = new double[count];
+        double[] minimums = new double[count];
+        int n = 0;
+        for (Loan loan : liabilities) {
+            if (loan.getValue() > 0) {
+                balances[n] = loan.getValue();
+                rates[n] = loan.getInterestRate();
+                minimums[n] = loanAnalytics.getMonthlyPayment(loan);
+                n++;
+            }
+        }
+        return new DebtRepaymentOptimizer(Arrays.copyOf(balances, n), Arrays.copyOf(rates, n),
+                Arrays.copyOf(minimums, n), DEFAULT_ORDERS);
+    }
+
+    public int getLoanCount() {
+        return balances.length;
+    }
+
+    public double getTotalMinimum() {
+        return totalMinimum;
+    }
+
+    // Evenly spaced extra budgets from nothing up to doubling the minimums
+    public double[] budgetLevels(int levels) {
+        double[] budgets = new double[levels];
+        for (int k = 0; k < levels; k++) {
+            budgets[k] = levels == 1 ? 0 : totalMinimum * k / (levels - 1);
+        }
+        return budgets;
+    }
+
+    static final class Outcome {
+        final double interest;
+        // Months until the last loan is paid off, or Integer.MAX_VALUE if never
+        final int months;
+
+        Outcome(double interest, int months) {
+            this.interest = interest;
+            this.months = months;
+        }
+
+        public Date getPayoffDate() {
+            Calendar cal = Calendar.getInstance();
+            cal.add(Calendar.MONTH, months);
+            return cal.getTime();
+        }
+    }
+
+    static final class Result {
+        final double[] budgets;
+        // One entry per budget
+        final Outcome[] snowball;
+        final Outcome[] avalanche;
+        final Outcome[] optimized;
+        // Share of the optimized order's score given to interest rate, 0 to 1
+        final double[] optimizedRateWeight;
+        final int ordersSearched;
+        final long elapsedNanos;
+
+        Result(double[] budgets, Outcome[] snowball, Outcome[] avalanche, Outcome[] optimized,
+               double[] optimizedRateWeight, int ordersSearched, long elapsedNanos) {
+            this.budgets = budgets;
+            this.snowball = snowball;
+            this.avalanche = avalanche;
+            this.optimized = optimized;
+            this.optimizedRateWeight = optimizedRateWeight;
+            this.ordersSearched = ordersSearched;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+
+    public Result run(double[] budgets) {
+        return run(budgets, ForkJoinPool.commonPool());
+    }
+
+    // Blocks until every scenario is settled. Interrupting the caller
+    // abandons the run with a CancellationException.
+    public Result run(double[] budgets, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        Search search = new Search(budgets);
+        ForkJoinTask<Void> task = pool.submit(new ScenarioRange(search, 0, budgets.length * orders.length));
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            search.cancelled = true;
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Debt optimization interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Debt optimization failed", e.getCause());
+        }
+
+        int levels = budgets.length;
+        Outcome[] snowball = new Outcome[levels];
+        Outcome[] avalanche = new Outcome[levels];
+        Outcome[] optimized = new Outcome[levels];
+        double[] weights = new double[levels];
+        for (int b = 0; b < levels; b++) {
+            Outcome[] row = search.outcomes[b];
+            snowball[b] = row[SNOWBALL];
+            avalanche[b] = row[AVALANCHE];
+            // Abandoned orders are null; ties go to the earlier order
+            int best = AVALANCHE;
+            for (int o = 0; o < row.length; o++) {
+                if (row[o] != null && row[o].interest < row[best].interest) {
+                    best = o;
+                }
+            }
+            optimized[b] = row[best];
+            weights[b] = rateWeights[best];
+        }
+        return new Result(budgets.clone(), snowball, avalanche, optimized, weights, orders.length,
+                System.nanoTime() - start);
+    }
+
+    // Pays the loans off in the given order with the extra budget rolling
+    // forward. Returns null once the interest passes the bound.
+    Outcome simulate(int[] order, double budget, double bound) {
+        int n = balances.length;
+        boolean[] done = new boolean[n];
+        double rollover = budget;
+        double interest = 0;
+        int month = 0;
+        int next = 0;
+        for (int position = 0; position < n; position++) {
+            int focus = order[position];
+            if (done[focus]) {
+                continue;
+            }
+            if (naturalPayoff[focus] <= month) {
+                // Cleared on its minimum before its turn came
+                done[focus] = true;
+                interest += naturalPaid[focus] - balances[focus];
+                rollover += minimums[focus];
+                continue;
+            }
+            // Until now the focus loan has been on its minimum
+            double balance = LoanAnalytics.balanceAfter(balances[focus], monthlyRates[focus], minimums[focus], month);
+            double focusPaid = minimums[focus] * month;
+            while (true) {
+                // Loans that clear on their own before the focus does free their minimums
+                while (next < n && (done[byNaturalPayoff[next]] || byNaturalPayoff[next] == focus)) {
+                    next++;
+                }
+                int payment = next < n ? naturalPayoff[byNaturalPayoff[next]] : Integer.MAX_VALUE;
+                double amount = minimums[focus] + rollover;
+                int months = monthsToClear(balance, monthlyRates[focus], amount);
+                if (months == Integer.MAX_VALUE && payment == Integer.MAX_VALUE) {
+                    return bound == Double.POSITIVE_INFINITY ? new Outcome(Double.POSITIVE_INFINITY, Integer.MAX_VALUE) : null;
+                }
+                if (months != Integer.MAX_VALUE && (long) month + months <= payment) {
+                    focusPaid += paidToClear(balance, monthlyRates[focus], amount, months);
+                    done[focus] = true;
+                    interest += focusPaid - balances[focus];
+                    rollover += minimums[focus];
+                    month += months;
+                    break;
+                }
+                int cleared = byNaturalPayoff[next];
+                int steps = Math.max(0, payment - month);
+                balance = LoanAnalytics.balanceAfter(balance, monthlyRates[focus], amount, steps);
+                focusPaid += amount * steps;
+                done[cleared] = true;
+                interest += naturalPaid[cleared] - balances[cleared];
+                rollover += minimums[cleared];
+                month = Math.max(month, payment);
+                if (interest > bound) {
+                    return null;
+                }
+            }
+            if (interest > bound) {
+                return null;
+            }
+        }
+        return new Outcome(interest, month);
+    }
+
+    // Whole months for the payment to clear the balance, or Integer.MAX_VALUE
+    // if it never does
+    static int monthsToClear(double balance, double monthlyRate, double payment) {
+        if (balance <= 0) {
+            return 0;
+        }
+        if (payment <= balance * monthlyRate || payment <= 0) {
+            return Integer.MAX_VALUE;
+        }
+        double months = monthlyRate == 0
+                ? balance / payment
+                : -Math.log1p(-monthlyRate * balance / payment) / Math.log1p(monthlyRate);
+        // Shave rounding error so an exact number of payments is not rounded up
+        return (int) Math.min(Integer.MAX_VALUE - 1, Math.ceil(months - 1e-9));
+    }
+
+    // Paid over those months, the last payment being only what is left
+    static double paidToClear(double balance, double monthlyRate, double payment, int months) {
+        if (months <= 0 || months == Integer.MAX_VALUE) {
+            return 0;
+        }
+        double beforeLast = LoanAnalytics.balanceAfter(balance, monthlyRate, payment, months - 1);
+        return payment * (months - 1) + Math.max(0, beforeLast * (1 + monthlyRate));
+    }
+
+    // Each key's position among the distinct keys, in Double.compare order
+    static int[] denseRanks(double[] keys) {
+        int n = keys.length;
+        long[] distinct = new long[n];
+        for (int i = 0; i < n; i++) {
+            distinct[i] = sortableBits(keys[i]);
+        }
+        Arrays.sort(distinct);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (count == 0 || distinct[i] != distinct[count - 1]) {
+                distinct[count++] = distinct[i];
+            }
+        }
+        int[] ranks = new int[n];
+        for (int i = 0; i < n; i++) {
+            ranks[i] = Arrays.binarySearch(distinct, 0, count, sortableBits(keys[i]));
+        }
+        return ranks;
+    }
+
+    // Flips the bits of negative doubles so they order as signed longs
+    private static long sortableBits(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    // Indices ordered by major rank, then minor rank, then index. All three
+    // are below n, so they pack into one long and a primitive sort does it.
+    static int[] sortedBy(int[] major, int[] minor) {
+        int n = major.length;
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(n - 1));
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) {
+            packed[i] = (long) major[i] << (2 * bits) | (long) minor[i] << bits | i;
+        }
+        Arrays.sort(packed);
+        long mask = (1L << bits) - 1;
+        int[] sorted = new int[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = (int) (packed[i] & mask);
+        }
+        return sorted;
+    }
+
+    // Shared state of one run; each scenario writes only its own outcome slot
+    private final class Search {
+        final double[] budgets;
+        final Outcome[][] outcomes;
+        // Least interest completed so far per budget, for abandoning blends
+        final double[] bestInterest;
+        volatile boolean cancelled;
+
+        Search(double[] budgets) {
+            this.budgets = budgets;
+            outcomes = new Outcome[budgets.length][orders.length];
+            bestInterest = new double[budgets.length];
+            Arrays.fill(bestInterest, Double.POSITIVE_INFINITY);
+        }
+
+        synchronized double bound(int budget) {
+            return bestInterest[budget];
+        }
+
+        synchronized void completed(int budget, double interest) {
+            bestInterest[budget] = Math.min(bestInterest[budget], interest);
+        }
+    }
+
+    // Scenarios are numbered budget by budget, avalanche first, so a leaf
+    // usually has a tight bound in hand before it reaches the blends
+    private final class ScenarioRange extends RecursiveAction {
+        private final Search search;
+        private final int from;
+        private final int to;
+
+        ScenarioRange(Search search, int from, int to) {
+            this.search = search;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (search.cancelled) {
+                return;
+            }
+            if (to - from > SCENARIOS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ScenarioRange(search, from, mid), new ScenarioRange(search, mid, to));
+                return;
+            }
+            for (int scenario = from; scenario < to && !search.cancelled; scenario++) {
+                int budget = scenario / orders.length;
+                int order = scenario % orders.length;
+                // Snowball and avalanche are always reported, so never abandoned
+                double bound = order == AVALANCHE || order == SNOWBALL
+                        ? Double.POSITIVE_INFINITY
+                        : search.bound(budget);
+                Outcome outcome = simulate(orders[order], search.budgets[budget], bound);
+                search.outcomes[budget][order] = outcome;
+                if (outcome != null) {
+                    search.completed(budget, outcome.interest);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.SplittableRandom;
+
+class DebtRepaymentOptimizerTest {
+    @Test
+    void testInterestFreeLoanClearsSoonerWithExtra() {
+        DebtRepaymentOptimizer optimizer = new DebtRepaymentOptimizer(
+                new double[]{1200}, new double[]{0}, new double[]{100}, DebtRepaymentOptimizer.DEFAULT_ORDERS);
+        DebtRepaymentOptimizer.Result result = optimizer.run(new double[]{0, 100});
+
+        assertEquals(12, result.snowball[0].months, "Minimum alone should take a year");
+        assertEquals(6, result.avalanche[1].months, "Doubling the payment should halve the time");
+        assertEquals(0, result.optimized[1].interest, 1e-9, "No interest at 0%");
+    }
+
+    @Test
+    void testAvalancheBeatsSnowball() {
+        // The small balance carries the low rate
+        DebtRepaymentOptimizer optimizer = new DebtRepaymentOptimizer(
+                new double[]{2000, 20000}, new double[]{3, 18},
+                new double[]{100, 500}, DebtRepaymentOptimizer.DEFAULT_ORDERS);
+        DebtRepaymentOptimizer.Result result = optimizer.run(new double[]{500});
+
+        assertTrue(result.avalanche[0].interest < result.snowball[0].interest, "Avalanche should pay less interest");
+        assertTrue(result.optimized[0].interest <= result.avalanche[0].interest, "Search did worse than avalanche");
+
+        // A single loan at 18% on $500 a month plus $500 extra, for comparison
+        int months = DebtRepaymentOptimizer.monthsToClear(20000, 0.18 / 12, 1000);
+        assertTrue(result.avalanche[0].months <= months + 5, "Payoff took far too long");
+    }
+
+    @Test
+    void testMoreBudgetNeverCostsMore() {
+        SplittableRandom random = new SplittableRandom(7);
+        int n = 300;
+        double[] balances = new double[n];
+        double[] rates = new double[n];
+        double[] minimums = new double[n];
+        for (int i = 0; i < n; i++) {
+            balances[i] = 1000 + random.nextInt(50_000);
+            rates[i] = 1 + random.nextInt(2000) / 100.0;
+            minimums[i] = LoanAnalytics.monthlyPayment(balances[i], rates[i], 12 * (1 + random.nextInt(30)));
+        }
+        DebtRepaymentOptimizer optimizer = new DebtRepaymentOptimizer(balances, rates, minimums,
+                DebtRepaymentOptimizer.DEFAULT_ORDERS);
+        DebtRepaymentOptimizer.Result result = optimizer.run(optimizer.budgetLevels(50));
+
+        for (int b = 1; b < result.budgets.length; b++) {
+            assertTrue(result.optimized[b].interest <= result.optimized[b - 1].interest + 1e-6,
+                    "Interest rose with the budget at level " + b);
+            assertTrue(result.optimized[b].interest <= result.snowball[b].interest + 1e-6,
+                    "Optimized worse than snowball at level " + b);
+        }
+        DebtRepaymentOptimizer.Result again = optimizer.run(optimizer.budgetLevels(50));
+        assertEquals(result.optimized[25].interest, again.optimized[25].interest, "Parallel runs disagree");
+    }
+
+    @Test
+    void testOrderBreaksTiesByRankThenIndex() {
+        int[] ranks = DebtRepaymentOptimizer.denseRanks(new double[]{2.5, -1, 2.5, -0.0, 0.0, -1});
+        assertArrayEquals(new int[]{3, 0, 3, 1, 2, 0}, ranks, "Ranks do not follow Double.compare");
+
+        int[] order = DebtRepaymentOptimizer.sortedBy(ranks, new int[]{0, 1, 0, 0, 0, 0});
+        assertArrayEquals(new int[]{5, 1, 3, 4, 0, 2}, order, "Ties not broken by minor rank, then index");
+    }
+}
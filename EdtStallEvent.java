@@ -0,0 +1,25 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// Committed by EdtWatchdog on the EDT when a dispatch ends, so the event's
+// own stack trace is the dispatch loop; the blocked stack, sampled by the
+// watchdog while the stall was in progress, is in blockedStack.
+@Name("financialmanager.EdtStall")
+@Label("EDT Stall")
+@Category({"Financial Manager", "UI"})
+@Description("An event dispatch that kept the UI from responding for longer than the threshold")
+class EdtStallEvent extends jdk.jfr.Event {
+    @Label("Stall")
+    @Timespan(Timespan.NANOSECONDS)
+    long stall;
+
+    @Label("AWT Event")
+    String awtEvent;
+
+    @Label("Blocked Stack")
+    @Description("EDT stack sampled once the stall passed the threshold; empty if it ended first")
+    String blockedStack;
+}
@@ -0,0 +1,190 @@
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.InvocationEvent;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Watches the Event Dispatch Thread. An EventQueue pushed on top of the
+// system queue times every dispatch; a daemon thread polls it and, once a
+// dispatch has run past the threshold, samples the EDT's stack while it is
+// still blocked. When the dispatch ends the stall is reported to stderr, to
+// any listener and as an EdtStallEvent for Flight Recorder.
+//
+// The watchdog thread also posts a probe to the queue on every poll; the
+// wait before it runs is the latency a user's click would see, recorded as
+// "edt.latency". Every dispatch is recorded as "edt.dispatch".
+//
+// Modal dialogs pump events from inside a dispatch. Each nested dispatch
+// counts as progress, and the outer one is timed again from when it
+// resumes, so an open dialog is not a stall.
+class EdtWatchdog implements AutoCloseable {
+    static final long DEFAULT_THRESHOLD_MILLIS = 200;
+    private static final LatencyHistogram DISPATCH_LATENCY = Metrics.histogram("edt.dispatch");
+    private static final LatencyHistogram PROBE_LATENCY = Metrics.histogram("edt.latency");
+    private static final LongAdder STALLS = Metrics.counter("edt.stalls");
+
+    private final long thresholdNanos;
+    private final long pollMillis;
+    private final TimingQueue queue = new TimingQueue();
+    private final Thread thread;
+    private volatile Consumer<Stall> listener = stall -> System.err.print(stall);
+    private volatile boolean running = true;
+
+    // Written on the EDT, read by the watchdog thread
+    private volatile Thread edt;
+    private volatile long busySince;
+    // Written by the watchdog thread, read on the EDT
+    private volatile long sampledFor;
+    private volatile StackTraceElement[] sampledStack;
+
+    private volatile boolean probePending;
+
+    public EdtWatchdog(long thresholdMillis) {
+        this.thresholdNanos = thresholdMillis * 1_000_000;
+        this.pollMillis = Math.max(thresholdMillis / 4, 10);
+        thread = new Thread(this::watch, "edt-watchdog");
+        thread.setDaemon(true);
+    }
+
+    // Pushes the timing queue and starts polling
+    public static EdtWatchdog install(long thresholdMillis) {
+        EdtWatchdog watchdog = new EdtWatchdog(thresholdMillis);
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(watchdog.queue);
+        watchdog.thread.start();
+        return watchdog;
+    }
+
+    // Replaces the default stderr report
+    public void setListener(Consumer<Stall> listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+        queue.detach();
+    }
+
+    private void watch() {
+        while (running) {
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long since = busySince;
+            Thread current = edt;
+            if (since != 0 && current != null && System.nanoTime() - since > thresholdNanos && sampledFor != since) {
+                // Stack first, then the stamp the EDT matches it by
+                sampledStack = current.getStackTrace();
+                sampledFor = since;
+            }
+            if (!probePending) {
+                probePending = true;
+                long posted = System.nanoTime();
+                EventQueue.invokeLater(() -> {
+                    PROBE_LATENCY.recordSince(posted);
+                    probePending = false;
+                });
+            }
+        }
+    }
+
+    private class TimingQueue extends EventQueue {
+        private int depth;
+
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            long start = System.nanoTime();
+            edt = Thread.currentThread();
+            depth++;
+            busySince = start;
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                long end = System.nanoTime();
+                long busy = end - busySince;
+                DISPATCH_LATENCY.record(end - start);
+                if (busy > thresholdNanos) {
+                    reportStall(event, busy);
+                }
+                depth--;
+                // The outer dispatch, if any, carries on from here
+                busySince = depth > 0 ? end : 0;
+            }
+        }
+
+        void detach() {
+            pop();
+        }
+
+        private void reportStall(AWTEvent event, long busy) {
+            STALLS.increment();
+            StackTraceElement[] stack = sampledFor == busySince ? sampledStack : null;
+            Stall stall = new Stall(busy, describe(event), stack);
+
+            EdtStallEvent jfrEvent = new EdtStallEvent();
+            if (jfrEvent.shouldCommit()) {
+                jfrEvent.stall = busy;
+                jfrEvent.awtEvent = stall.getEvent();
+                jfrEvent.blockedStack = stall.formatStack();
+                jfrEvent.commit();
+            }
+            listener.accept(stall);
+        }
+    }
+
+    // "ActionEvent from javax.swing.JButton", or the runnable for invokeLater
+    static String describe(AWTEvent event) {
+        if (event instanceof InvocationEvent) {
+            return "InvocationEvent " + event.paramString();
+        }
+        Object source = event.getSource();
+        String sourceName = source == null ? "null" : source.getClass().getName();
+        return event.getClass().getSimpleName() + " from " + sourceName;
+    }
+
+    static final class Stall {
+        private final long nanos;
+        private final String event;
+        private final StackTraceElement[] stack;
+
+        Stall(long nanos, String event, StackTraceElement[] stack) {
+            this.nanos = nanos;
+            this.event = event;
+            this.stack = stack;
+        }
+
+        public long getMillis() {
+            return nanos / 1_000_000;
+        }
+
+        public String getEvent() {
+            return event;
+        }
+
+        // Null when the dispatch ended before the watchdog sampled it
+        public StackTraceElement[] getStack() {
+            return stack;
+        }
+
+        String formatStack() {
+            if (stack == null) {
+                return "";
+            }
+            StringBuilder out = new StringBuilder(stack.length * 64);
+            for (StackTraceElement frame : stack) {
+                out.append("\tat ").append(frame).append('\n');
+            }
+            return out.toString();
+        }
+
+        @Override
+        public String toString() {
+            return "EDT stall: " + getMillis() + " ms dispatching " + event
+                    + (stack == null ? " (ended before a stack was sampled)\n" : "; blocked at:\n" + formatStack());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.swing.SwingUtilities;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class EdtWatchdogTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testCapturesBlockedStackAndRecordsEvents() throws Exception {
+        List<EdtWatchdog.Stall> stalls = new CopyOnWriteArrayList<>();
+        Path file = dir.resolve("stall.jfr");
+        try (Recording recording = new Recording();
+             EdtWatchdog watchdog = EdtWatchdog.install(100)) {
+            watchdog.setListener(stalls::add);
+            recording.enable("financialmanager.EdtStall");
+            recording.enable("financialmanager.ReportGeneration");
+            recording.start();
+
+            SwingUtilities.invokeAndWait(() -> blockFor(400));
+            // A quick dispatch is not a stall
+            SwingUtilities.invokeAndWait(() -> { });
+
+            ReportGenerator generator = new ReportGenerator(new ColumnarAssetManager<>(FinancialAsset.class),
+                    new ColumnarAssetManager<>(Loan.class), new LoanAnalytics(), 100);
+            generator.writeReport("Debt Overview", new ReportWriter(ReportSink.of(new StringBuilder())));
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        // Ignore any slow first dispatch from the toolkit starting up
+        EdtWatchdog.Stall stall = stalls.stream().filter(s -> s.getMillis() >= 400).findFirst().orElse(null);
+        assertNotNull(stall, "The blocking dispatch should be reported: " + stalls);
+        assertNotNull(stall.getStack(), "Blocked stack should be sampled");
+        assertTrue(Arrays.stream(stall.getStack()).anyMatch(frame -> frame.getMethodName().equals("blockFor")),
+                "Blocked stack should show the blocking method");
+
+        List<String> events = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            events.add(event.getEventType().getName());
+            if (event.getEventType().getName().equals("financialmanager.EdtStall")) {
+                assertTrue(event.getString("blockedStack").contains("blockFor"), "Event should carry the stack");
+            }
+        }
+        assertTrue(events.contains("financialmanager.EdtStall"), "Stall event is missing");
+        assertTrue(events.contains("financialmanager.ReportGeneration"), "Report event is missing");
+    }
+
+    private static void blockFor(long millis) {
+        long end = System.nanoTime() + millis * 1_000_000;
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+}
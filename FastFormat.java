@@ -0,0 +1,206 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+// Currency and date formatting that writes straight into the caller's
+// buffer. Output matches DecimalFormat("#,##0.00"), String.format("%.2f")
+// and SimpleDateFormat("MM/dd/yyyy") in the default time zone, always with
+// US separators. All methods are stateless apart from an immutable date
+// cache, so they are thread-safe.
+final class FastFormat {
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    // Beyond this many cents a double no longer holds every cent exactly
+    private static final double MAX_EXACT_CENTS = 1L << 52;
+    private static final char[] DIGIT_TENS = new char[100];
+    private static final char[] DIGIT_ONES = new char[100];
+    private static final TimeZone ZONE = TimeZone.getDefault();
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            DIGIT_TENS[i] = (char) ('0' + i / 10);
+            DIGIT_ONES[i] = (char) ('0' + i % 10);
+        }
+    }
+
+    // Most report lines share a handful of dates, usually today
+    private static volatile CachedDate lastDate = new CachedDate(Integer.MIN_VALUE, "");
+
+    private FastFormat() {
+    }
+
+    public static String formatCurrency(double amount) {
+        return appendCurrency(new StringBuilder(16), amount).toString();
+    }
+
+    public static String formatDate(Date date) {
+        return formatEpochDay(toEpochDay(date));
+    }
+
+    // "#,##0.00" with DecimalFormat's default half-even rounding
+    public static StringBuilder appendCurrency(StringBuilder out, double amount) {
+        try {
+            appendCurrency((Appendable) out, amount);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out;
+    }
+
+    public static void appendCurrency(Appendable out, double amount) throws IOException {
+        double scaled = amount * 100;
+        if (Double.isNaN(scaled) || Math.abs(scaled) >= MAX_EXACT_CENTS) {
+            DecimalFormat df = new DecimalFormat("#,##0.00");
+            out.append(df.format(amount));
+            return;
+        }
+
+        long cents;
+        if (nearHalf(scaled)) {
+            // The multiply may have crossed the tie; decide on the exact binary value
+            cents = new BigDecimal(amount).setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValue();
+        } else {
+            cents = (long) Math.rint(scaled);
+        }
+        if (cents == 0 && amount < 0) {
+            out.append('-');
+        }
+        appendCents(out, cents, true);
+    }
+
+    // Exact amount in minor units, grouped like appendCurrency
+    public static StringBuilder appendCents(StringBuilder out, long cents) {
+        try {
+            appendCents((Appendable) out, cents, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out;
+    }
+
+    // "%.2f": no grouping, half-up rounding
+    public static StringBuilder appendFixed2(StringBuilder out, double value) {
+        try {
+            appendFixed2((Appendable) out, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out;
+    }
+
+    public static void appendFixed2(Appendable out, double value) throws IOException {
+        double scaled = Math.abs(value) * 100;
+        if (Double.isNaN(scaled) || scaled >= MAX_EXACT_CENTS) {
+            out.append(String.format(Locale.US, "%.2f", value));
+            return;
+        }
+
+        long cents;
+        if (nearHalf(scaled)) {
+            // Formatter rounds the shortest decimal representation, not the binary value
+            cents = new BigDecimal(Double.toString(Math.abs(value))).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+        } else {
+            cents = (long) Math.floor(scaled + 0.5);
+        }
+        if (value < 0 || (value == 0 && 1 / value < 0)) {
+            out.append('-');
+        }
+        appendCents(out, cents, false);
+    }
+
+    public static StringBuilder appendDate(StringBuilder out, Date date) {
+        return out.append(formatEpochDay(toEpochDay(date)));
+    }
+
+    public static void appendDate(Appendable out, Date date) throws IOException {
+        out.append(formatEpochDay(toEpochDay(date)));
+    }
+
+    // Days since 1970-01-01 in the default time zone
+    static int toEpochDay(Date date) {
+        long millis = date.getTime();
+        return (int) Math.floorDiv(millis + ZONE.getOffset(millis), MILLIS_PER_DAY);
+    }
+
+    static String formatEpochDay(int epochDay) {
+        CachedDate cached = lastDate;
+        if (cached.epochDay == epochDay) {
+            return cached.text;
+        }
+
+        // Civil-from-days conversion on the proleptic Gregorian calendar
+        long z = epochDay + 719468L;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        char[] text = new char[10];
+        text[0] = DIGIT_TENS[month];
+        text[1] = DIGIT_ONES[month];
+        text[2] = '/';
+        text[3] = DIGIT_TENS[day];
+        text[4] = DIGIT_ONES[day];
+        text[5] = '/';
+        int y = Math.floorMod(year, 10000);
+        text[6] = DIGIT_TENS[y / 100];
+        text[7] = DIGIT_ONES[y / 100];
+        text[8] = DIGIT_TENS[y % 100];
+        text[9] = DIGIT_ONES[y % 100];
+
+        String formatted = new String(text);
+        lastDate = new CachedDate(epochDay, formatted);
+        return formatted;
+    }
+
+    private static boolean nearHalf(double scaled) {
+        double fraction = Math.abs(scaled - Math.floor(scaled));
+        return Math.abs(fraction - 0.5) < 1e-6;
+    }
+
+    private static void appendCents(Appendable out, long cents, boolean grouped) throws IOException {
+        if (cents < 0) {
+            out.append('-');
+        }
+        long abs = Math.abs(cents);
+        appendInteger(out, abs / 100, grouped);
+        int fraction = (int) (abs % 100);
+        out.append('.').append(DIGIT_TENS[fraction]).append(DIGIT_ONES[fraction]);
+    }
+
+    private static void appendInteger(Appendable out, long value, boolean grouped) throws IOException {
+        int digits = 1;
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+            digits++;
+        }
+
+        while (divisor > 0) {
+            out.append((char) ('0' + (value / divisor) % 10));
+            digits--;
+            if (grouped && digits > 0 && digits % 3 == 0) {
+                out.append(',');
+            }
+            divisor /= 10;
+        }
+    }
+
+    private static final class CachedDate {
+        final int epochDay;
+        final String text;
+
+        CachedDate(int epochDay, String text) {
+            this.epochDay = epochDay;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+
+class FastFormatTest {
+    @Test
+    void testCurrencyMatchesDecimalFormat() {
+        DecimalFormat df = new DecimalFormat("#,##0.00");
+        double[] samples = {0, 0.005, 0.125, 1.005, 999.995, 1234567.891, -2500, -0.001, 350000};
+        for (double sample : samples) {
+            assertEquals(df.format(sample), FastFormat.formatCurrency(sample), "Currency mismatch for " + sample);
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            double amount = (random.nextDouble() - 0.3) * Math.pow(10, random.nextInt(10));
+            assertEquals(df.format(amount), FastFormat.formatCurrency(amount), "Currency mismatch for " + amount);
+        }
+    }
+
+    @Test
+    void testFixedMatchesStringFormat() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10000; i++) {
+            double value = (random.nextDouble() - 0.5) * 200;
+            assertEquals(String.format("%.2f", value), FastFormat.appendFixed2(new StringBuilder(), value).toString(),
+                    "Fixed-point mismatch for " + value);
+        }
+        assertEquals(String.format("%.2f", 1.005), FastFormat.appendFixed2(new StringBuilder(), 1.005).toString());
+    }
+
+    @Test
+    void testDateMatchesSimpleDateFormat() {
+        SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yyyy");
+        Random random = new Random(3);
+        for (int i = 0; i < 1000; i++) {
+            Date date = new Date((long) (random.nextDouble() * 4_000_000_000_000L));
+            assertEquals(sdf.format(date), FastFormat.formatDate(date), "Date mismatch for " + date);
+        }
+    }
+}
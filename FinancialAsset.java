@@ -1,34 +1,116 @@
 import java.util.Date;
+import java.util.Objects;
 
 // Financial Asset Classes
 abstract class FinancialAsset {
     private String name;
-    private double value;
+    // Held in cents so sums are exact
+    private long valueCents;
     private Date purchaseDate;
     private String type;
+    // Row in the owning ColumnarAssetManager, -1 when not stored
+    int storeSlot = -1;
+    // Insertion order in that store; breaks ties between equal values
+    long storeSeq;
+    private AssetChangeListener changeListener;
+    // Bumped on every change so derived figures can be memoized
+    private long version;
 
     public FinancialAsset(String name, double value, Date purchaseDate) {
         this.name = name;
-        this.value = value;
+        this.valueCents = Money.toCents(value);
         this.purchaseDate = purchaseDate;
     }
 
     public abstract double calculateInterest();
 
+    // A detached copy with the same fields, outside any store and without
+    // a listener
+    abstract FinancialAsset copy();
+
+    // A copy that keeps this asset's version, so comparing versions later
+    // tells whether the asset has changed since, and its store order
+    FinancialAsset freeze() {
+        FinancialAsset frozen = copy();
+        frozen.version = version;
+        frozen.storeSeq = storeSeq;
+        return frozen;
+    }
+
+    // Undoes a recorded change, as one change: each field goes back to its
+    // value in before if it still holds the one the change left in after.
+    // Fields written since, e.g. a price tick, keep the newer value.
+    void revert(FinancialAsset before, FinancialAsset after) {
+        fireBeforeChange();
+        try {
+            revertState(before, after);
+        } finally {
+            fireAfterChange();
+        }
+    }
+
+    // Subclasses copy their own fields and call this first
+    protected void copyState(FinancialAsset from) {
+        this.name = from.name;
+        this.valueCents = from.valueCents;
+        this.purchaseDate = from.purchaseDate;
+    }
+
+    // Subclasses revert their own fields and call this first
+    protected void revertState(FinancialAsset before, FinancialAsset after) {
+        this.name = revertField(this.name, before.name, after.name);
+        this.valueCents = revertField(this.valueCents, before.valueCents, after.valueCents);
+        this.purchaseDate = revertField(this.purchaseDate, before.purchaseDate, after.purchaseDate);
+    }
+
+    static <V> V revertField(V live, V before, V after) {
+        return Objects.equals(live, after) ? before : live;
+    }
+
+    static long revertField(long live, long before, long after) {
+        return live == after ? before : live;
+    }
+
+    static int revertField(int live, int before, int after) {
+        return live == after ? before : live;
+    }
+
+    static double revertField(double live, double before, double after) {
+        return Double.compare(live, after) == 0 ? before : live;
+    }
+
     public String getName() {
         return name;
     }
 
     public void setName(String name) {
+        fireBeforeChange();
         this.name = name;
+        fireAfterChange();
     }
 
     public double getValue() {
-        return value;
+        return Money.toDouble(valueCents);
     }
 
     public void setValue(double value) {
-        this.value = value;
+        setValueCents(Money.toCents(value));
+    }
+
+    public long getValueCents() {
+        return valueCents;
+    }
+
+    public void setValueCents(long valueCents) {
+        fireBeforeChange();
+        this.valueCents = valueCents;
+        fireAfterChange();
+    }
+
+    // For subclasses whose value follows their own fields: call between
+    // one fireBeforeChange and fireAfterChange, with those fields
+    protected void storeValueCents(long valueCents) {
+        this.valueCents = valueCents;
     }
 
     public Date getPurchaseDate() {
@@ -36,7 +118,9 @@ abstract class FinancialAsset {
     }
 
     public void setPurchaseDate(Date purchaseDate) {
+        fireBeforeChange();
         this.purchaseDate = purchaseDate;
+        fireAfterChange();
     }
 
     public String getType() {
@@ -46,4 +130,25 @@ abstract class FinancialAsset {
     protected void setType(String type) {
         this.type = type;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    void setChangeListener(AssetChangeListener changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    protected void fireBeforeChange() {
+        if (changeListener != null) {
+            changeListener.beforeChange(this);
+        }
+    }
+
+    protected void fireAfterChange() {
+        version++;
+        if (changeListener != null) {
+            changeListener.afterChange(this);
+        }
+    }
 }
@@ -1,57 +1,223 @@
 // Main Application Class
 import javax.swing.*;
 import javax.swing.border.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.text.DefaultCaret;
 import java.awt.*;
 import java.awt.event.*;
-import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.io.*;
 
 public class FinancialManager {
-    // Singleton instance for database connection
-    private static FinancialManager instance;
+    // Portfolio CSV to open at start-up instead of the sample data
+    static final String PORTFOLIO_PROPERTY = "financialmanager.portfolio";
+    static final String STALL_PROPERTY = "financialmanager.stallMillis";
+    // Also serve the open portfolio over HTTP on this port; see PortfolioServer
+    static final String HTTP_PORT_PROPERTY = "financialmanager.httpPort";
+    // Also dump the metrics to this file every minute and on exit; JMX always has them
+    static final String METRICS_FILE_PROPERTY = "financialmanager.metricsFile";
+    // Rows added per EDT task during an import, a few milliseconds' work
+    private static final int IMPORT_BATCH_ROWS = 1024;
     private JFrame frame;
-    private List<FinancialAsset> assets;
-    private List<Loan> liabilities;
+    private ColumnarAssetManager<FinancialAsset> assets;
+    private ColumnarAssetManager<Loan> liabilities;
+    private final LoanAnalytics loanAnalytics = new LoanAnalytics();
+    private AssetTableModel assetTableModel;
+    private LiabilityTableModel liabilityTableModel;
+    private PortfolioEventBus eventBus;
+    private ReportGenerator reportGenerator;
+    // Frozen versions of both stores, for reports and undo/redo
+    private PortfolioVersions versions;
+    // The version the tables and summaries show, moved on at the start of
+    // each event batch; only touched on the EDT
+    private PortfolioVersions.Snapshot shown;
+    private JButton undoButton;
+    private JButton redoButton;
+    // Reports are generated off the EDT, one virtual thread each
+    private final ExecutorService reportExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    // Applies replayed price ticks off the EDT; created on first use
+    private TickIngestor tickIngestor;
+    // Null when the history directory could not be opened
+    private PortfolioHistory history;
+
+    // Labels kept so changes update text in place instead of rebuilding panels
+    private JLabel netWorthLabel;
+    private JLabel totalAssetsLabel;
+    private JLabel stocksCountLabel;
+    private JLabel bondsCountLabel;
+    private JLabel totalDebtLabel;
+    private JLabel monthlyPaymentsLabel;
+    private JLabel debtRatioLabel;
+    private ChartPanel distributionChart;
+    private JLabel changeLabel;
     private JPanel dashboardPanel;
     private JPanel assetsPanel;
     private JPanel liabilitiesPanel;
     private JPanel reportsPanel;
     private JPanel settingsPanel;
     private JPanel currentPanel;
+    // EDT only: set until the portfolio has loaded; navigation meanwhile
+    // just chooses the view to open afterwards
+    private boolean loading;
+    private String pendingDestination = "Dashboard";
 
-    // Get singleton instance
+    // Get singleton instance; the holder class is only initialized on the
+    // first call, and class initialization makes that safe from any thread
     public static FinancialManager getInstance() {
-        if (instance == null) {
-            instance = new FinancialManager();
-        }
-        return instance;
+        return InstanceHolder.INSTANCE;
     }
 
-    private FinancialManager() {
-        assets = new ArrayList<>();
-        liabilities = new ArrayList<>();
+    private static final class InstanceHolder {
+        static final FinancialManager INSTANCE = new FinancialManager();
+    }
 
-        // Load sample data for demonstration
-        loadSampleData();
+    private FinancialManager() {
+        this(new ColumnarAssetManager<>(FinancialAsset.class), new ColumnarAssetManager<>(Loan.class),
+                new ReportCache(ReportCache.DEFAULT_MAX_BYTES));
 
-        // Set up the UI
+        // Show the window straight away; the portfolio loads behind a placeholder
         initializeUI();
+        loadPortfolioAsync();
+        startMetrics();
+    }
+
+    // JMX, plus a snapshot file only when -Dfinancialmanager.metricsFile is set
+    private void startMetrics() {
+        Metrics.registerMBean();
+        String name = System.getProperty(METRICS_FILE_PROPERTY);
+        if (name == null) {
+            return;
+        }
+        java.nio.file.Path file = java.nio.file.Paths.get(name);
+        Metrics.startSnapshots(file, 1, TimeUnit.MINUTES);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Metrics.writeSnapshot(file);
+            } catch (IOException e) {
+                System.err.println("Could not write metrics snapshot: " + e.getMessage());
+            }
+        }, "metrics-close"));
+    }
+
+    // Model and view plumbing without a window, so benchmarks can drive it
+    // headless. With a null cache every report is generated afresh, which
+    // is what a benchmark of report generation has to time.
+    FinancialManager(ColumnarAssetManager<FinancialAsset> assets, ColumnarAssetManager<Loan> liabilities,
+                     ReportCache reportCache) {
+        this.assets = assets;
+        this.liabilities = liabilities;
+
+        versions = new PortfolioVersions(assets, liabilities);
+        reportGenerator = new ReportGenerator(versions, loanAnalytics, ReportGenerator.DEFAULT_PROJECTION_PATHS,
+                reportCache);
+
+        // Tables read a pinned version, never the live stores, whose rows
+        // move under a swap-remove and change from other threads
+        shown = versions.snapshot();
+        assetTableModel = new AssetTableModel();
+        liabilityTableModel = new LiabilityTableModel();
+
+        // Views are updated from coalesced model events
+        eventBus = new PortfolioEventBus();
+        eventBus.addBatchStartHook(() -> shown = versions.snapshot());
+        eventBus.watch(assets, assetTableModel);
+        eventBus.watch(liabilities, liabilityTableModel);
+        eventBus.addChangeListener(e -> updateSummaries());
+    }
+
+    // Loads off the EDT, then opens whichever view was chosen meanwhile
+    private void loadPortfolioAsync() {
+        loading = true;
+        reportExecutor.execute(() -> {
+            String error = null;
+            try {
+                loadPortfolio();
+            } catch (IOException | RuntimeException e) {
+                error = "Could not load the portfolio: " + e.getMessage();
+            }
+            openHistory();
+            startServer();
+            String message = error;
+            SwingUtilities.invokeLater(() -> portfolioLoaded(message));
+        });
+    }
+
+    // The file named by -Dfinancialmanager.portfolio, or the sample data
+    private void loadPortfolio() throws IOException {
+        String file = System.getProperty(PORTFOLIO_PROPERTY);
+        if (file == null) {
+            loadSampleData();
+            return;
+        }
+        long count = PortfolioFile.importInto(java.nio.file.Paths.get(file), assets, liabilities,
+                ForkJoinPool.commonPool(), ForkJoinPool.commonPool().getParallelism());
+        System.out.println("Loaded " + count + " holdings from " + file);
+    }
+
+    // Only when -Dfinancialmanager.httpPort is set
+    private void startServer() {
+        Integer port = Integer.getInteger(HTTP_PORT_PROPERTY);
+        if (port == null) {
+            return;
+        }
+        try {
+            PortfolioServer server = PortfolioServer.start(versions, loanAnalytics,
+                    BatchReportRunner.DEFAULT_BATCH_PATHS, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close, "server-close"));
+            System.out.println("Serving the portfolio on http://localhost:" + server.getPort() + "/");
+        } catch (IOException e) {
+            System.err.println("Could not start the HTTP server: " + e.getMessage());
+        }
+    }
+
+    private void portfolioLoaded(String error) {
+        StartupTimer.mark("portfolio loaded");
+        loading = false;
+        showPanel(pendingDestination);
+        // Runs after the repaint queued by showPanel, so the view is on screen
+        SwingUtilities.invokeLater(() -> StartupTimer.mark("interactive"));
+        if (error != null) {
+            JOptionPane.showMessageDialog(frame, error, "Error", JOptionPane.ERROR_MESSAGE);
+        }
     }
 
     private void loadSampleData() {
         // Add sample assets
-        assets.add(new Stock("Apple Stock", 55000, new Date(), "AAPL", 100, 550.0));
-        assets.add(new Stock("Amazon Stock", 320000, new Date(), "AMZN", 80, 4000.0));
-        assets.add(new Bond("Government Bond", 25000, new Date(), 4.8, addMonths(new Date(), 60)));
-        assets.add(new Bond("Corporate Bond", 35000, new Date(), 5.2, addMonths(new Date(), 36)));
+        assets.addAsset(new Stock("Apple Stock", 55000, new Date(), "AAPL", 100, 550.0));
+        assets.addAsset(new Stock("Amazon Stock", 320000, new Date(), "AMZN", 80, 4000.0));
+        assets.addAsset(new Bond("Government Bond", 25000, new Date(), 4.8, addMonths(new Date(), 60)));
+        assets.addAsset(new Bond("Corporate Bond", 35000, new Date(), 5.2, addMonths(new Date(), 36)));
 
         // Add sample liabilities
-        liabilities.add(new Loan("Mortgage", 350000, new Date(), 3.5, 360, 24));
-        liabilities.add(new Loan("Car Loan", 25000, new Date(), 4.2, 60, 12));
-        liabilities.add(new Loan("Personal Loan", 10000, new Date(), 6.5, 36, 6));
+        liabilities.addAsset(new Loan("Mortgage", 350000, new Date(), 3.5, 360, 24));
+        liabilities.addAsset(new Loan("Car Loan", 25000, new Date(), 4.2, 60, 12));
+        liabilities.addAsset(new Loan("Personal Loan", 10000, new Date(), 6.5, 36, 6));
+    }
+
+    // Records today's snapshot; the month-over-month figure reads from it
+    private void openHistory() {
+        try {
+            history = new PortfolioHistory(new TimeSeriesStore(PortfolioHistory.defaultDirectory()));
+            history.recordDay(FastFormat.toEpochDay(new Date()), assets, liabilities);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    history.close();
+                } catch (IOException e) {
+                    System.err.println("Could not save history: " + e.getMessage());
+                }
+            }, "history-close"));
+        } catch (IOException e) {
+            System.err.println("History unavailable: " + e.getMessage());
+            history = null;
+        }
     }
 
     private Date addMonths(Date date, int months) {
@@ -72,19 +238,63 @@ public class FinancialManager {
         JPanel sidebar = createSidebar();
         frame.add(sidebar, BorderLayout.WEST);
 
-        // Create main content panels
-        dashboardPanel = createDashboardPanel();
-        assetsPanel = createAssetsPanel();
-        liabilitiesPanel = createLiabilitiesPanel();
-        reportsPanel = createReportsPanel();
-        settingsPanel = createSettingsPanel();
-
-        // Set dashboard as the default view
-        currentPanel = dashboardPanel;
+        // Content panels are built on first visit; until the portfolio is
+        // in, the window shows a placeholder
+        currentPanel = new LoadingPanel();
         frame.add(currentPanel, BorderLayout.CENTER);
         frame.setVisible(true);
     }
 
+    private void showPanel(String destination) {
+        frame.remove(currentPanel);
+        currentPanel = panelFor(destination);
+        frame.add(currentPanel, BorderLayout.CENTER);
+        frame.revalidate();
+        frame.repaint();
+    }
+
+    // Builds each panel the first time it is shown
+    private JPanel panelFor(String destination) {
+        switch (destination) {
+            case "Assets":
+                if (assetsPanel == null) {
+                    assetsPanel = buildPanel(destination, this::createAssetsPanel);
+                }
+                return assetsPanel;
+            case "Liabilities":
+                if (liabilitiesPanel == null) {
+                    liabilitiesPanel = buildPanel(destination, this::createLiabilitiesPanel);
+                }
+                return liabilitiesPanel;
+            case "Reports":
+                if (reportsPanel == null) {
+                    reportsPanel = buildPanel(destination, this::createReportsPanel);
+                }
+                return reportsPanel;
+            case "Settings":
+                if (settingsPanel == null) {
+                    settingsPanel = buildPanel(destination, this::createSettingsPanel);
+                }
+                return settingsPanel;
+            default:
+                if (dashboardPanel == null) {
+                    dashboardPanel = buildPanel("Dashboard", this::createDashboardPanel);
+                }
+                return dashboardPanel;
+        }
+    }
+
+    // Recorded as a PanelRebuildEvent for Flight Recorder
+    private JPanel buildPanel(String name, Supplier<JPanel> factory) {
+        PanelRebuildEvent event = new PanelRebuildEvent();
+        event.begin();
+        JPanel panel = factory.get();
+        event.panel = name;
+        event.cause = "first visit";
+        event.commit();
+        return panel;
+    }
+
     private JPanel createSidebar() {
         JPanel sidebar = new JPanel();
         sidebar.setLayout(new BoxLayout(sidebar, BoxLayout.Y_AXIS));
@@ -103,22 +313,82 @@ public class FinancialManager {
         // Navigation buttons
         String[] navItems = {"Dashboard", "Assets", "Liabilities", "Reports", "Settings"};
         for (String item : navItems) {
-            JButton navButton = new JButton(item);
-            navButton.setAlignmentX(Component.LEFT_ALIGNMENT);
-            navButton.setMaximumSize(new Dimension(160, 40));
-            navButton.setFont(new Font("Arial", Font.PLAIN, 14));
-            navButton.setForeground(Color.WHITE);
-            navButton.setBackground(new Color(70, 70, 70));
-            navButton.setBorderPainted(false);
-            navButton.setFocusPainted(false);
+            JButton navButton = createSidebarButton(item);
             navButton.addActionListener(new NavigationListener(item));
             sidebar.add(navButton);
             sidebar.add(Box.createVerticalStrut(10));
         }
 
+        // Undo and redo, also on Ctrl+Z and Ctrl+Y
+        sidebar.add(Box.createVerticalStrut(20));
+        undoButton = createSidebarButton("Undo");
+        undoButton.addActionListener(e -> undo());
+        sidebar.add(undoButton);
+        sidebar.add(Box.createVerticalStrut(10));
+        redoButton = createSidebarButton("Redo");
+        redoButton.addActionListener(e -> redo());
+        sidebar.add(redoButton);
+        updateUndoButtons();
+
+        JRootPane root = frame.getRootPane();
+        int menuKey = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, menuKey), "undo");
+        root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_Y, menuKey), "redo");
+        root.getActionMap().put("undo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                undo();
+            }
+        });
+        root.getActionMap().put("redo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                redo();
+            }
+        });
+
         return sidebar;
     }
 
+    private JButton createSidebarButton(String text) {
+        JButton button = new JButton(text);
+        button.setAlignmentX(Component.LEFT_ALIGNMENT);
+        button.setMaximumSize(new Dimension(160, 40));
+        button.setFont(new Font("Arial", Font.PLAIN, 14));
+        button.setForeground(Color.WHITE);
+        button.setBackground(new Color(70, 70, 70));
+        button.setBorderPainted(false);
+        button.setFocusPainted(false);
+        return button;
+    }
+
+    // Runs a user edit as one undoable step; EDT only
+    private void edit(String label, Runnable change) {
+        versions.edit(label, change);
+        updateUndoButtons();
+    }
+
+    private void undo() {
+        if (!loading && versions.undo()) {
+            updateUndoButtons();
+        }
+    }
+
+    private void redo() {
+        if (!loading && versions.redo()) {
+            updateUndoButtons();
+        }
+    }
+
+    private void updateUndoButtons() {
+        String undoLabel = versions.getUndoLabel();
+        String redoLabel = versions.getRedoLabel();
+        undoButton.setEnabled(undoLabel != null);
+        undoButton.setToolTipText(undoLabel == null ? null : "Undo " + undoLabel);
+        redoButton.setEnabled(redoLabel != null);
+        redoButton.setToolTipText(redoLabel == null ? null : "Redo " + redoLabel);
+    }
+
     private JPanel createDashboardPanel() {
         JPanel panel = new JPanel();
         panel.setLayout(new GridLayout(2, 2, 20, 20));
@@ -127,27 +397,24 @@ public class FinancialManager {
 
         // Net Worth Panel
         JPanel netWorthPanel = createCardPanel("Net Worth");
-        double netWorth = calculateNetWorth();
-        JLabel netWorthValueLabel = new JLabel("$" + formatCurrency(netWorth));
-        netWorthValueLabel.setFont(new Font("Arial", Font.BOLD, 32));
-        netWorthValueLabel.setHorizontalAlignment(JLabel.CENTER);
+        netWorthLabel = new JLabel();
+        netWorthLabel.setFont(new Font("Arial", Font.BOLD, 32));
+        netWorthLabel.setHorizontalAlignment(JLabel.CENTER);
 
-        // Monthly change
-        JLabel changeLabel = new JLabel("+2.5% from last month");
+        // Monthly change, from the recorded history
+        changeLabel = new JLabel();
         changeLabel.setFont(new Font("Arial", Font.PLAIN, 14));
-        changeLabel.setForeground(new Color(0, 150, 0));
         changeLabel.setHorizontalAlignment(JLabel.CENTER);
 
-        netWorthPanel.add(netWorthValueLabel);
+        netWorthPanel.add(netWorthLabel);
         netWorthPanel.add(changeLabel);
 
         // Asset Distribution Panel
         JPanel assetDistributionPanel = createCardPanel("Asset Distribution");
-        // In a real application, this would be a chart
-        // For now, we'll just add a placeholder
-        JLabel chartPlaceholder = new JLabel("Chart would be here");
-        chartPlaceholder.setHorizontalAlignment(JLabel.CENTER);
-        assetDistributionPanel.add(chartPlaceholder);
+        // Rendered off the EDT; updateSummaries feeds it the totals
+        distributionChart = new ChartPanel();
+        distributionChart.setAlignmentX(Component.LEFT_ALIGNMENT);
+        assetDistributionPanel.add(distributionChart);
 
         // Recent Transactions Panel
         JPanel transactionsPanel = createCardPanel("Recent Transactions");
@@ -198,6 +465,8 @@ public class FinancialManager {
 
         actionsPanel.add(buttonPanel);
 
+        updateSummaries();
+
         // Add all panels to the dashboard
         panel.add(netWorthPanel);
         panel.add(assetDistributionPanel);
@@ -227,7 +496,7 @@ public class FinancialManager {
         return panel;
     }
 
-    private JPanel createAssetsPanel() {
+    JPanel createAssetsPanel() {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBorder(new EmptyBorder(20, 20, 20, 20));
         panel.setBackground(new Color(240, 240, 240));
@@ -245,24 +514,22 @@ public class FinancialManager {
         addButton.setFocusPainted(false);
         addButton.addActionListener(e -> showAddAssetDialog());
 
+        JButton importButton = new JButton("Import CSV...");
+        importButton.addActionListener(e -> importPortfolioCsv());
+        JButton exportButton = new JButton("Export CSV...");
+        exportButton.addActionListener(e -> exportPortfolioCsv());
+
+        JPanel headerButtons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
+        headerButtons.setBackground(new Color(240, 240, 240));
+        headerButtons.add(importButton);
+        headerButtons.add(exportButton);
+        headerButtons.add(addButton);
+
         headerPanel.add(titleLabel, BorderLayout.WEST);
-        headerPanel.add(addButton, BorderLayout.EAST);
+        headerPanel.add(headerButtons, BorderLayout.EAST);
 
         // Assets Table
-        String[] columnNames = {"Name", "Type", "Value", "Purchase Date", "Details", "Actions"};
-        Object[][] data = new Object[assets.size()][6];
-
-        for (int i = 0; i < assets.size(); i++) {
-            FinancialAsset asset = assets.get(i);
-            data[i][0] = asset.getName();
-            data[i][1] = asset.getType();
-            data[i][2] = "$" + formatCurrency(asset.getValue());
-            data[i][3] = formatDate(asset.getPurchaseDate());
-            data[i][4] = "View";
-            data[i][5] = "Edit";
-        }
-
-        JTable table = new JTable(data, columnNames);
+        JTable table = new JTable(assetTableModel);
         table.setRowHeight(30);
         table.setFont(new Font("Arial", Font.PLAIN, 14));
         table.setSelectionBackground(new Color(230, 230, 250));
@@ -275,7 +542,7 @@ public class FinancialManager {
                 int col = table.columnAtPoint(e.getPoint());
 
                 if (row >= 0 && col == 4) {  // View details
-                    showAssetDetails(assets.get(row));
+                    showAssetDetails(shown.getAssets().get(row));
                 } else if (row >= 0 && col == 5) {  // Edit asset
                     JOptionPane.showMessageDialog(frame, "Edit feature would open here");
                 }
@@ -289,13 +556,14 @@ public class FinancialManager {
         summaryPanel.setBackground(new Color(240, 240, 240));
         summaryPanel.setBorder(new EmptyBorder(20, 0, 0, 0));
 
-        double totalValue = assets.stream().mapToDouble(FinancialAsset::getValue).sum();
-        int stocksCount = (int) assets.stream().filter(a -> a instanceof Stock).count();
-        int bondsCount = (int) assets.stream().filter(a -> a instanceof Bond).count();
+        totalAssetsLabel = new JLabel();
+        stocksCountLabel = new JLabel();
+        bondsCountLabel = new JLabel();
+        updateSummaries();
 
-        summaryPanel.add(createSummaryCard("Total Assets Value", "$" + formatCurrency(totalValue)));
-        summaryPanel.add(createSummaryCard("Stocks", stocksCount + " items"));
-        summaryPanel.add(createSummaryCard("Bonds", bondsCount + " items"));
+        summaryPanel.add(createSummaryCard("Total Assets Value", totalAssetsLabel));
+        summaryPanel.add(createSummaryCard("Stocks", stocksCountLabel));
+        summaryPanel.add(createSummaryCard("Bonds", bondsCountLabel));
 
         // Combine all panels
         panel.add(headerPanel, BorderLayout.NORTH);
@@ -305,7 +573,7 @@ public class FinancialManager {
         return panel;
     }
 
-    private JPanel createSummaryCard(String title, String value) {
+    private JPanel createSummaryCard(String title, JLabel valueLabel) {
         JPanel card = new JPanel();
         card.setLayout(new BoxLayout(card, BoxLayout.Y_AXIS));
         card.setBackground(Color.WHITE);
@@ -318,7 +586,6 @@ public class FinancialManager {
         titleLabel.setFont(new Font("Arial", Font.PLAIN, 14));
         titleLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
 
-        JLabel valueLabel = new JLabel(value);
         valueLabel.setFont(new Font("Arial", Font.BOLD, 18));
         valueLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
 
@@ -351,21 +618,7 @@ public class FinancialManager {
         headerPanel.add(addButton, BorderLayout.EAST);
 
         // Liabilities Table
-        String[] columnNames = {"Name", "Balance", "Interest Rate", "Monthly Payment", "Term", "Payments Made", "Actions"};
-        Object[][] data = new Object[liabilities.size()][7];
-
-        for (int i = 0; i < liabilities.size(); i++) {
-            Loan loan = liabilities.get(i);
-            data[i][0] = loan.getName();
-            data[i][1] = "$" + formatCurrency(loan.getValue());
-            data[i][2] = loan.getInterestRate() + "%";
-            data[i][3] = "$" + formatCurrency(loan.calculateMonthlyPayment());
-            data[i][4] = loan.getTerm() + " months";
-            data[i][5] = loan.getPaymentsMade() + " / " + loan.getTerm();
-            data[i][6] = "Make Payment";
-        }
-
-        JTable table = new JTable(data, columnNames);
+        JTable table = new JTable(liabilityTableModel);
         table.setRowHeight(30);
         table.setFont(new Font("Arial", Font.PLAIN, 14));
         table.setSelectionBackground(new Color(230, 230, 250));
@@ -378,7 +631,7 @@ public class FinancialManager {
                 int col = table.columnAtPoint(e.getPoint());
 
                 if (row >= 0 && col == 6) {  // Make payment
-                    showMakePaymentDialog(liabilities.get(row));
+                    showMakePaymentDialog(shown.getLiabilities().get(row));
                 }
             }
         });
@@ -390,12 +643,14 @@ public class FinancialManager {
         summaryPanel.setBackground(new Color(240, 240, 240));
         summaryPanel.setBorder(new EmptyBorder(20, 0, 0, 0));
 
-        double totalDebt = liabilities.stream().mapToDouble(Loan::getValue).sum();
-        double totalMonthlyPayments = liabilities.stream().mapToDouble(Loan::calculateMonthlyPayment).sum();
+        totalDebtLabel = new JLabel();
+        monthlyPaymentsLabel = new JLabel();
+        debtRatioLabel = new JLabel();
+        updateSummaries();
 
-        summaryPanel.add(createSummaryCard("Total Debt", "$" + formatCurrency(totalDebt)));
-        summaryPanel.add(createSummaryCard("Monthly Payments", "$" + formatCurrency(totalMonthlyPayments)));
-        summaryPanel.add(createSummaryCard("Debt-to-Asset Ratio", String.format("%.2f", totalDebt / calculateTotalAssets())));
+        summaryPanel.add(createSummaryCard("Total Debt", totalDebtLabel));
+        summaryPanel.add(createSummaryCard("Monthly Payments", monthlyPaymentsLabel));
+        summaryPanel.add(createSummaryCard("Debt-to-Asset Ratio", debtRatioLabel));
 
         // Combine all panels
         panel.add(headerPanel, BorderLayout.NORTH);
@@ -415,17 +670,10 @@ public class FinancialManager {
         titleLabel.setFont(new Font("Arial", Font.BOLD, 24));
 
         // Report options
-        JPanel optionsPanel = new JPanel(new GridLayout(2, 2, 20, 20));
+        JPanel optionsPanel = new JPanel(new GridLayout(0, 2, 20, 20));
         optionsPanel.setBackground(new Color(240, 240, 240));
 
-        String[] reports = {
-                "Net Worth Summary",
-                "Asset Allocation",
-                "Debt Overview",
-                "Cash Flow Analysis"
-        };
-
-        for (String report : reports) {
+        for (String report : ReportGenerator.REPORT_TYPES) {
             JPanel reportCard = new JPanel();
             reportCard.setLayout(new BorderLayout());
             reportCard.setBackground(Color.WHITE);
@@ -466,7 +714,7 @@ public class FinancialManager {
         titleLabel.setFont(new Font("Arial", Font.BOLD, 24));
 
         // Settings form
-        JPanel formPanel = new JPanel(new GridLayout(5, 1, 0, 20));
+        JPanel formPanel = new JPanel(new GridLayout(6, 1, 0, 20));
         formPanel.setBackground(new Color(240, 240, 240));
 
         // Currency setting
@@ -521,6 +769,19 @@ public class FinancialManager {
         backupPanel.add(backupLabel, BorderLayout.WEST);
         backupPanel.add(backupCheckBox, BorderLayout.EAST);
 
+        // Price feed replay
+        JPanel priceFeedPanel = new JPanel(new BorderLayout());
+        priceFeedPanel.setBackground(new Color(240, 240, 240));
+
+        JLabel priceFeedLabel = new JLabel("Price Feed:");
+        priceFeedLabel.setFont(new Font("Arial", Font.PLAIN, 16));
+
+        JButton replayButton = new JButton("Replay Tick File...");
+        replayButton.addActionListener(e -> replayTickFile());
+
+        priceFeedPanel.add(priceFeedLabel, BorderLayout.WEST);
+        priceFeedPanel.add(replayButton, BorderLayout.EAST);
+
         // Save button
         JButton saveButton = new JButton("Save Settings");
         saveButton.setBackground(new Color(66, 139, 202));
@@ -533,6 +794,7 @@ public class FinancialManager {
         formPanel.add(dateFormatPanel);
         formPanel.add(themePanel);
         formPanel.add(backupPanel);
+        formPanel.add(priceFeedPanel);
         formPanel.add(saveButton);
 
         // Combine all panels
@@ -542,6 +804,104 @@ public class FinancialManager {
         return panel;
     }
 
+    // Streams holdings from a portfolio CSV into the stores off the EDT
+    private void importPortfolioCsv() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        // Parsed off the EDT and streamed onto it a batch at a time, all
+        // recorded as one undoable step; at most a few chunks are held at once
+        java.nio.file.Path file = chooser.getSelectedFile().toPath();
+        PortfolioVersions.PendingEdit importEdit = versions.beginEdit("Import " + file.getFileName());
+        reportExecutor.execute(() -> {
+            String message;
+            try {
+                long start = System.nanoTime();
+                long count = PortfolioFile.stream(file, (chunkAssets, chunkLoans) -> {
+                    addOnEdt(importEdit, assets, chunkAssets);
+                    addOnEdt(importEdit, liabilities, chunkLoans);
+                }, ForkJoinPool.commonPool(), ForkJoinPool.commonPool().getParallelism());
+                message = "Imported " + count + " holdings in " + (System.nanoTime() - start) / 1_000_000 + " ms";
+            } catch (IOException ex) {
+                // What was added before the error stays, and undo takes it out
+                message = "Could not import " + file.getFileName() + ": " + ex.getMessage();
+            }
+            String result = message;
+            SwingUtilities.invokeLater(() -> {
+                importEdit.finish();
+                updateUndoButtons();
+                JOptionPane.showMessageDialog(frame, result);
+            });
+        });
+    }
+
+    // Waits for each batch, so the parser cannot run ahead of the EDT, and
+    // keeps batches small enough that the EDT can repaint between them
+    private void addOnEdt(PortfolioVersions.PendingEdit importEdit, ColumnarAssetManager<?> store,
+                          List<? extends FinancialAsset> rows) throws IOException {
+        for (int from = 0; from < rows.size(); from += IMPORT_BATCH_ROWS) {
+            List<? extends FinancialAsset> batch = rows.subList(from, Math.min(rows.size(), from + IMPORT_BATCH_ROWS));
+            try {
+                SwingUtilities.invokeAndWait(() -> importEdit.apply(() -> store.addAssets(batch)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Import interrupted");
+            } catch (java.lang.reflect.InvocationTargetException e) {
+                throw new IOException(e.getCause().getMessage(), e.getCause());
+            }
+        }
+    }
+
+    private void exportPortfolioCsv() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        java.nio.file.Path file = chooser.getSelectedFile().toPath();
+        reportExecutor.execute(() -> {
+            String message;
+            try {
+                long count = PortfolioFile.export(file, assets, liabilities);
+                message = "Exported " + count + " holdings to " + file.getFileName();
+            } catch (IOException ex) {
+                message = "Could not export " + file.getFileName() + ": " + ex.getMessage();
+            }
+            String result = message;
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(frame, result));
+        });
+    }
+
+    // Replays a recorded tick file at its original pace, repricing held stocks
+    private void replayTickFile() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        if (tickIngestor == null) {
+            tickIngestor = new TickIngestor(assets);
+        }
+
+        TickIngestor ingestor = tickIngestor;
+        TickFileFeed feed = new TickFileFeed(chooser.getSelectedFile().toPath());
+        reportExecutor.execute(() -> {
+            String message;
+            try {
+                long ticks = feed.replay(ingestor, 1.0);
+                ingestor.awaitApplied();
+                message = "Replayed " + ticks + " price ticks";
+            } catch (IOException ex) {
+                message = "Could not replay tick file: " + ex.getMessage();
+            } catch (InterruptedException ex) {
+                return;
+            }
+            String result = message;
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(frame, result));
+        });
+    }
+
     private void showAddAssetDialog() {
         JDialog dialog = new JDialog(frame, "Add New Asset", true);
         dialog.setSize(400, 400);
@@ -623,17 +983,18 @@ public class FinancialManager {
                     int shares = Integer.parseInt(sharesField.getText());
                     double price = Double.parseDouble(priceField.getText());
 
-                    assets.add(new Stock(name, value, new Date(), ticker, shares, price));
+                    Stock stock = new Stock(name, value, new Date(), ticker, shares, price);
+                    edit("Add " + name, () -> assets.addAsset(stock));
                 } else {
                     double interestRate = Double.parseDouble(interestField.getText());
                     int maturity = Integer.parseInt(maturityField.getText());
 
-                    assets.add(new Bond(name, value, new Date(), interestRate, addMonths(new Date(), maturity)));
+                    Bond bond = new Bond(name, value, new Date(), interestRate, addMonths(new Date(), maturity));
+                    edit("Add " + name, () -> assets.addAsset(bond));
                 }
 
                 JOptionPane.showMessageDialog(dialog, "Asset added successfully!");
                 dialog.dispose();
-                refreshUI();
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(dialog, "Please enter valid numeric values.", "Input Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -694,11 +1055,11 @@ public class FinancialManager {
                 int term = Integer.parseInt(termField.getText());
                 int paymentsMade = Integer.parseInt(paymentsField.getText());
 
-                liabilities.add(new Loan(name, principal, new Date(), interestRate, term, paymentsMade));
+                Loan loan = new Loan(name, principal, new Date(), interestRate, term, paymentsMade);
+                edit("Add " + name, () -> liabilities.addAsset(loan));
 
                 JOptionPane.showMessageDialog(dialog, "Loan added successfully!");
                 dialog.dispose();
-                refreshUI();
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(dialog, "Please enter valid numeric values.", "Input Error", JOptionPane.ERROR_MESSAGE);
             ;}
@@ -715,6 +1076,8 @@ public class FinancialManager {
         dialog.setVisible(true);
     }
 
+    // The loan is the copy the table showed; the payment goes to the live
+    // loan it was taken from
     private void showMakePaymentDialog(Loan loan) {
         JDialog dialog = new JDialog(frame, "Make Payment", true);
         dialog.setSize(400, 250);
@@ -731,10 +1094,12 @@ public class FinancialManager {
         formPanel.add(new JLabel("$" + formatCurrency(loan.getValue())));
 
         formPanel.add(new JLabel("Monthly Payment:"));
-        formPanel.add(new JLabel("$" + formatCurrency(loan.calculateMonthlyPayment())));
+        // The billed payment, the same figure the summary totals add up
+        long monthlyPaymentCents = loan.getMonthlyPaymentCents();
+        formPanel.add(new JLabel("$" + FastFormat.appendCents(new StringBuilder(), monthlyPaymentCents)));
 
         formPanel.add(new JLabel("Payment Amount:"));
-        JTextField paymentField = new JTextField(String.valueOf(loan.calculateMonthlyPayment()));
+        JTextField paymentField = new JTextField(String.valueOf(Money.toDouble(monthlyPaymentCents)));
         formPanel.add(paymentField);
 
         // Buttons
@@ -745,22 +1110,34 @@ public class FinancialManager {
         cancelButton.addActionListener(e -> dialog.dispose());
         payButton.addActionListener(e -> {
             try {
-                double payment = Double.parseDouble(paymentField.getText());
+                long paymentCents = Money.parseCents(paymentField.getText());
 
-                if (payment <= 0) {
+                if (paymentCents <= 0) {
+                    Metrics.counter("payment.rejected").increment();
                     JOptionPane.showMessageDialog(dialog, "Payment must be greater than zero.", "Input Error", JOptionPane.ERROR_MESSAGE);
                     return;
                 }
 
-                // Apply payment
-                double newBalance = loan.getValue() - payment;
-                loan.setValue(Math.max(0, newBalance));
-                loan.setPaymentsMade(loan.getPaymentsMade() + 1);
+                Loan live = liabilities.findOriginal(loan);
+                if (live == null) {
+                    JOptionPane.showMessageDialog(dialog, "This loan has been removed.", "Payment Error", JOptionPane.ERROR_MESSAGE);
+                    dialog.dispose();
+                    return;
+                }
+
+                // Apply payment; timed up to the confirmation, which waits on the user
+                long start = System.nanoTime();
+                edit("Payment on " + live.getName(), () -> {
+                    live.setValueCents(Math.max(0, live.getValueCents() - paymentCents));
+                    live.setPaymentsMade(live.getPaymentsMade() + 1);
+                    liabilities.updateAsset(live);
+                });
+                Metrics.histogram("payment.process").recordSince(start);
 
-                JOptionPane.showMessageDialog(dialog, "Payment of $" + formatCurrency(payment) + " processed successfully!");
+                JOptionPane.showMessageDialog(dialog, "Payment of $" + FastFormat.appendCents(new StringBuilder(), paymentCents) + " processed successfully!");
                 dialog.dispose();
-                refreshUI();
             } catch (NumberFormatException ex) {
+                Metrics.counter("payment.rejected").increment();
                 JOptionPane.showMessageDialog(dialog, "Please enter a valid payment amount.", "Input Error", JOptionPane.ERROR_MESSAGE);
             }
         });
@@ -845,40 +1222,39 @@ public class FinancialManager {
         reportText.setEditable(false);
         reportText.setFont(new Font("Monospaced", Font.PLAIN, 14));
         reportText.setBorder(new EmptyBorder(10, 10, 10, 10));
-
-        StringBuilder report = new StringBuilder();
-        report.append("=== ").append(reportType).append(" ===\n\n");
-        report.append("Generated on: ").append(formatDate(new Date())).append("\n\n");
-
-        switch (reportType) {
-            case "Net Worth Summary":
-                generateNetWorthReport(report);
-                break;
-            case "Asset Allocation":
-                generateAssetAllocationReport(report);
-                break;
-            case "Debt Overview":
-                generateDebtReport(report);
-                break;
-            case "Cash Flow Analysis":
-                generateCashFlowReport(report);
-                break;
-        }
-
-        reportText.setText(report.toString());
+        // Keep the view at the top while sections are appended
+        ((DefaultCaret) reportText.getCaret()).setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
 
         JScrollPane scrollPane = new JScrollPane(reportText);
 
+        // Progress while the report streams in
+        JProgressBar progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+
         // Button panel
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JButton cancelButton = new JButton("Cancel");
         JButton printButton = new JButton("Print");
         JButton saveButton = new JButton("Save");
         JButton closeButton = new JButton("Close");
 
-        printButton.addActionListener(e -> JOptionPane.showMessageDialog(dialog, "Printing functionality would be here"));
-        saveButton.addActionListener(e -> JOptionPane.showMessageDialog(dialog, "Saving functionality would be here"));
+        ReportWorker worker = new ReportWorker(reportType, reportText);
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                progressBar.setValue((Integer) e.getNewValue());
+            } else if (worker.isDone()) {
+                progressBar.setVisible(false);
+                cancelButton.setEnabled(false);
+            }
+        });
+
+        cancelButton.addActionListener(e -> worker.cancel(true));
+        printButton.addActionListener(e -> printReport(dialog, reportType, worker.portfolio));
+        saveButton.addActionListener(e -> saveReport(dialog, reportType, worker.portfolio));
         closeButton.addActionListener(e -> dialog.dispose());
 
+        buttonPanel.add(progressBar);
+        buttonPanel.add(cancelButton);
         buttonPanel.add(printButton);
         buttonPanel.add(saveButton);
         buttonPanel.add(closeButton);
@@ -886,223 +1262,347 @@ public class FinancialManager {
         dialog.add(scrollPane, BorderLayout.CENTER);
         dialog.add(buttonPanel, BorderLayout.SOUTH);
 
+        // Closing the dialog abandons a report that is still running
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                worker.cancel(true);
+            }
+        });
+
+        reportExecutor.execute(worker);
+
         dialog.setLocationRelativeTo(frame);
         dialog.setVisible(true);
     }
 
-    private void generateNetWorthReport(StringBuilder report) {
-        double totalAssets = calculateTotalAssets();
-        double totalLiabilities = calculateTotalLiabilities();
-        double netWorth = calculateNetWorth();
-
-        report.append("TOTAL ASSETS: $").append(formatCurrency(totalAssets)).append("\n");
-        report.append("TOTAL LIABILITIES: $").append(formatCurrency(totalLiabilities)).append("\n");
-        report.append("NET WORTH: $").append(formatCurrency(netWorth)).append("\n\n");
-
-        report.append("ASSET BREAKDOWN:\n");
-        for (FinancialAsset asset : assets) {
-            report.append("- ").append(asset.getName()).append(": $").append(formatCurrency(asset.getValue())).append("\n");
+    // Regenerates the report straight to disk, so the file is complete even
+    // when the preview is not; from the same version, so the two agree
+    private void saveReport(JDialog dialog, String reportType, PortfolioVersions.Snapshot portfolio) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setAcceptAllFileFilterUsed(false);
+        Map<javax.swing.filechooser.FileFilter, ReportExporter.Format> formats = new LinkedHashMap<>();
+        for (ReportExporter.Format format : ReportExporter.Format.values()) {
+            javax.swing.filechooser.FileNameExtensionFilter filter = new javax.swing.filechooser.FileNameExtensionFilter(
+                    format.description + " (*." + format.extension + ")", format.extension);
+            formats.put(filter, format);
+            chooser.addChoosableFileFilter(filter);
         }
-
-        report.append("\nLIABILITY BREAKDOWN:\n");
-        for (Loan loan : liabilities) {
-            report.append("- ").append(loan.getName()).append(": $").append(formatCurrency(loan.getValue())).append("\n");
-        }
-
-        report.append("\nFINANCIAL HEALTH INDICATORS:\n");
-        double debtToAssetRatio = totalLiabilities / totalAssets;
-        report.append("- Debt-to-Asset Ratio: ").append(String.format("%.2f", debtToAssetRatio));
-        if (debtToAssetRatio < 0.3) {
-            report.append(" (Excellent)\n");
-        } else if (debtToAssetRatio < 0.5) {
-            report.append(" (Good)\n");
-        } else if (debtToAssetRatio < 0.7) {
-            report.append(" (Fair)\n");
-        } else {
-            report.append(" (Poor)\n");
-        }
-    }
-
-    private void generateAssetAllocationReport(StringBuilder report) {
-        double totalStocks = assets.stream()
-                .filter(a -> a instanceof Stock)
-                .mapToDouble(FinancialAsset::getValue)
-                .sum();
-
-        double totalBonds = assets.stream()
-                .filter(a -> a instanceof Bond)
-                .mapToDouble(FinancialAsset::getValue)
-                .sum();
-
-        double totalAssets = totalStocks + totalBonds;
-
-        double stockPercentage = (totalStocks / totalAssets) * 100;
-        double bondPercentage = (totalBonds / totalAssets) * 100;
-
-        report.append("ASSET ALLOCATION SUMMARY:\n");
-        report.append("Total Asset Value: $").append(formatCurrency(totalAssets)).append("\n\n");
-
-        report.append("ALLOCATION BY ASSET CLASS:\n");
-        report.append("- Stocks: $").append(formatCurrency(totalStocks)).append(" (").append(String.format("%.2f", stockPercentage)).append("%)\n");
-        report.append("- Bonds: $").append(formatCurrency(totalBonds)).append(" (").append(String.format("%.2f", bondPercentage)).append("%)\n\n");
-
-        report.append("STOCKS BREAKDOWN:\n");
-        for (FinancialAsset asset : assets) {
-            if (asset instanceof Stock) {
-                Stock stock = (Stock) asset;
-                report.append("- ").append(stock.getName())
-                        .append(" (").append(stock.getTicker()).append("): $")
-                        .append(formatCurrency(stock.getValue())).append(" (")
-                        .append(String.format("%.2f", (stock.getValue() / totalStocks) * 100)).append("% of stocks)\n");
+        // The suggested name follows the chosen format
+        javax.swing.filechooser.FileFilter initial = formats.keySet().iterator().next();
+        chooser.setFileFilter(initial);
+        chooser.setSelectedFile(new File(BatchReportRunner.slug(reportType) + "." + formats.get(initial).extension));
+        chooser.addPropertyChangeListener(JFileChooser.FILE_FILTER_CHANGED_PROPERTY, e -> {
+            ReportExporter.Format chosen = formats.get(e.getNewValue());
+            File current = chooser.getSelectedFile();
+            if (chosen != null) {
+                chooser.setSelectedFile(withExtension(
+                        current != null ? current : new File(BatchReportRunner.slug(reportType)), chosen.extension));
             }
+        });
+        if (chooser.showSaveDialog(dialog) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
 
-        report.append("\nBONDS BREAKDOWN:\n");
-        for (FinancialAsset asset : assets) {
-            if (asset instanceof Bond) {
-                Bond bond = (Bond) asset;
-                report.append("- ").append(bond.getName())
-                        .append(" (").append(bond.getInterestRate()).append("% interest): $")
-                        .append(formatCurrency(bond.getValue())).append(" (")
-                        .append(String.format("%.2f", (bond.getValue() / totalBonds) * 100)).append("% of bonds)\n");
+        ReportExporter.Format format = formats.get(chooser.getFileFilter());
+        File selected = withExtension(chooser.getSelectedFile(), format.extension);
+        java.nio.file.Path file = selected.toPath();
+        reportExecutor.execute(() -> {
+            String message;
+            try {
+                ReportExporter.export(reportGenerator, portfolio, reportType, format, file, percent -> { });
+                message = "Saved " + reportType + " to " + file;
+            } catch (IOException ex) {
+                message = "Could not save report: " + ex.getMessage();
             }
-        }
-
-        report.append("\nRECOMMENDATIONS:\n");
-        if (stockPercentage > 70) {
-            report.append("- Your portfolio is heavily weighted toward stocks. Consider increasing bond allocation for better risk management.\n");
-        } else if (bondPercentage > 70) {
-            report.append("- Your portfolio is heavily weighted toward bonds. Consider increasing stock allocation for potentially higher returns.\n");
-        } else {
-            report.append("- Your portfolio has a balanced allocation between stocks and bonds.\n");
-        }
+            String result = message;
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(dialog, result));
+        });
     }
 
-    private void generateDebtReport(StringBuilder report) {
-        double totalDebt = calculateTotalLiabilities();
-        double monthlyPayments = liabilities.stream().mapToDouble(Loan::calculateMonthlyPayment).sum();
-
-        report.append("DEBT OVERVIEW:\n");
-        report.append("Total Debt: $").append(formatCurrency(totalDebt)).append("\n");
-        report.append("Monthly Debt Payments: $").append(formatCurrency(monthlyPayments)).append("\n\n");
-
-        report.append("LOANS BREAKDOWN:\n");
-        for (Loan loan : liabilities) {
-            report.append("- ").append(loan.getName()).append(":\n");
-            report.append("  Current Balance: $").append(formatCurrency(loan.getValue())).append("\n");
-            report.append("  Interest Rate: ").append(loan.getInterestRate()).append("%\n");
-            report.append("  Monthly Payment: $").append(formatCurrency(loan.calculateMonthlyPayment())).append("\n");
-            report.append("  Payments Made: ").append(loan.getPaymentsMade()).append(" of ").append(loan.getTerm()).append("\n");
-            report.append("  Remaining Payments: ").append(loan.getTerm() - loan.getPaymentsMade()).append("\n");
-
-            // Calculate remaining interest
-            double remainingInterest = 0;
-            double balance = loan.getValue();
-            double monthlyRate = loan.getInterestRate() / 100 / 12;
-            double payment = loan.calculateMonthlyPayment();
-            int remainingPayments = loan.getTerm() - loan.getPaymentsMade();
-
-            for (int i = 0; i < remainingPayments; i++) {
-                double interestPayment = balance * monthlyRate;
-                double principalPayment = payment - interestPayment;
-
-                remainingInterest += interestPayment;
-                balance -= principalPayment;
-
-                if (balance <= 0) break;
+    // The file named for the chosen format: a report format's extension is
+    // swapped for the right one, and any other name gets it added
+    static File withExtension(File file, String extension) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            String typed = name.substring(dot + 1).toLowerCase(Locale.ROOT);
+            if (typed.equals(extension)) {
+                return file;
+            }
+            for (ReportExporter.Format format : ReportExporter.Format.values()) {
+                if (format.extension.equals(typed)) {
+                    name = name.substring(0, dot);
+                    break;
+                }
             }
-
-            report.append("  Total Remaining Interest: $").append(formatCurrency(remainingInterest)).append("\n\n");
         }
+        return new File(file.getParentFile(), name + "." + extension);
+    }
 
-        report.append("DEBT REPAYMENT STRATEGIES:\n");
-        report.append("1. Debt Snowball: Pay minimum on all debts, then extra on smallest balance first.\n");
-        report.append("2. Debt Avalanche: Pay minimum on all debts, then extra on highest interest rate first.\n");
-
-        // Suggest which approach might be better
-        boolean hasHighInterestDebt = liabilities.stream().anyMatch(loan -> loan.getInterestRate() > 8.0);
-        if (hasHighInterestDebt) {
-            report.append("\nRecommendation: Consider the Debt Avalanche method to minimize interest payments.\n");
-        } else {
-            report.append("\nRecommendation: Consider the Debt Snowball method for psychological wins and momentum.\n");
+    // Prints the full report at the previewed version, not the preview: it
+    // is laid out in print pages into a temporary file, as Save does, and
+    // printed from there a page at a time
+    private void printReport(JDialog dialog, String reportType, PortfolioVersions.Snapshot portfolio) {
+        java.awt.print.PrinterJob job = java.awt.print.PrinterJob.getPrinterJob();
+        job.setJobName(reportType);
+        if (!job.printDialog()) {
+            return;
         }
+        reportExecutor.execute(() -> {
+            String error = null;
+            java.nio.file.Path file = null;
+            try {
+                file = java.nio.file.Files.createTempFile(BatchReportRunner.slug(reportType), ".txt");
+                ReportExporter.export(reportGenerator, portfolio, reportType, ReportExporter.Format.PRINT_LAYOUT,
+                        file, percent -> { });
+                job.setPrintable(ReportPrintable.open(file));
+                job.print();
+            } catch (IOException | java.awt.print.PrinterException ex) {
+                error = "Could not print report: " + ex.getMessage();
+            } finally {
+                if (file != null) {
+                    try {
+                        java.nio.file.Files.deleteIfExists(file);
+                    } catch (IOException ex) {
+                        // Left for the system to clean up
+                    }
+                }
+            }
+            if (error != null) {
+                String message = error;
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(dialog, message));
+            }
+        });
     }
 
-    private void generateCashFlowReport(StringBuilder report) {
-        // This would be more detailed in a real app with income tracking
-        double monthlyLiabilities = liabilities.stream().mapToDouble(Loan::calculateMonthlyPayment).sum();
-        double monthlyAssetIncome = assets.stream()
-                .filter(a -> a instanceof Bond)
-                .mapToDouble(a -> ((Bond) a).calculateInterest() / 12)
-                .sum();
-
-        report.append("CASH FLOW ANALYSIS:\n\n");
-        report.append("MONTHLY INCOME:\n");
-        report.append("- Asset Generated Income: $").append(formatCurrency(monthlyAssetIncome)).append("\n");
-        report.append("- Other Income: $0.00 (Add your income sources in a real application)\n");
-        report.append("Total Monthly Income: $").append(formatCurrency(monthlyAssetIncome)).append("\n\n");
-
-        report.append("MONTHLY EXPENSES:\n");
-        report.append("- Debt Payments: $").append(formatCurrency(monthlyLiabilities)).append("\n");
-        report.append("- Other Expenses: $0.00 (Add your expenses in a real application)\n");
-        report.append("Total Monthly Expenses: $").append(formatCurrency(monthlyLiabilities)).append("\n\n");
-
-        double netCashFlow = monthlyAssetIncome - monthlyLiabilities;
-        report.append("NET MONTHLY CASH FLOW: $").append(formatCurrency(netCashFlow)).append("\n");
-
-        if (netCashFlow < 0) {
-            report.append("\nWARNING: Your current expenses exceed your income. Consider reducing expenses or increasing income sources.\n");
-        } else {
-            report.append("\nYour monthly cash flow is positive. Consider allocating the surplus to savings or investments.\n");
-        }
+    void writeReport(String reportType, ReportWriter report) {
+        reportGenerator.writeReport(reportType, report);
     }
 
-    private double calculateNetWorth() {
+    double calculateNetWorth() {
         return calculateTotalAssets() - calculateTotalLiabilities();
     }
 
     private double calculateTotalAssets() {
-        return assets.stream().mapToDouble(FinancialAsset::getValue).sum();
+        return shown.getAssetTotals().getTotalValue();
     }
 
     private double calculateTotalLiabilities() {
-        return liabilities.stream().mapToDouble(Loan::getValue).sum();
+        return shown.getLiabilityTotals().getTotalValue();
     }
 
     private String formatCurrency(double amount) {
-        DecimalFormat df = new DecimalFormat("#,##0.00");
-        return df.format(amount);
+        return FastFormat.formatCurrency(amount);
+    }
+
+    // "$" plus the amount, built in a single buffer for table cells
+    private String formatDollars(double amount) {
+        return FastFormat.appendCurrency(new StringBuilder(16).append('$'), amount).toString();
     }
 
     private String formatDate(Date date) {
-        SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yyyy");
-        return sdf.format(date);
+        return FastFormat.formatDate(date);
     }
 
-    private void refreshUI() {
-        // Remove current panel and replace with updated one
-        frame.remove(currentPanel);
+    // O(1) reads from the pinned version's totals; safe to call on every change batch
+    private void updateSummaries() {
+        double totalAssets = calculateTotalAssets();
+        double totalDebt = calculateTotalLiabilities();
 
-        if (currentPanel == dashboardPanel) {
-            dashboardPanel = createDashboardPanel();
-            currentPanel = dashboardPanel;
-        } else if (currentPanel == assetsPanel) {
-            assetsPanel = createAssetsPanel();
-            currentPanel = assetsPanel;
-        } else if (currentPanel == liabilitiesPanel) {
-            liabilitiesPanel = createLiabilitiesPanel();
-            currentPanel = liabilitiesPanel;
-        } else if (currentPanel == reportsPanel) {
-            reportsPanel = createReportsPanel();
-            currentPanel = reportsPanel;
-        } else if (currentPanel == settingsPanel) {
-            settingsPanel = createSettingsPanel();
-            currentPanel = settingsPanel;
+        if (netWorthLabel != null) {
+            netWorthLabel.setText("$" + formatCurrency(totalAssets - totalDebt));
         }
+        if (changeLabel != null) {
+            double change = history == null ? Double.NaN
+                    : history.monthOverMonth(totalAssets - totalDebt, FastFormat.toEpochDay(new Date()));
+            if (Double.isNaN(change)) {
+                changeLabel.setText("No history from last month yet");
+                changeLabel.setForeground(Color.GRAY);
+            } else {
+                StringBuilder text = new StringBuilder(32).append(change >= 0 ? "+" : "");
+                changeLabel.setText(FastFormat.appendFixed2(text, change * 100).append("% from last month").toString());
+                changeLabel.setForeground(change >= 0 ? new Color(0, 150, 0) : new Color(150, 0, 0));
+            }
+        }
+        if (totalAssetsLabel != null) {
+            PortfolioAggregates totals = shown.getAssetTotals();
+            totalAssetsLabel.setText("$" + formatCurrency(totalAssets));
+            stocksCountLabel.setText(totals.getCount(ColumnarAssetManager.TYPE_STOCK) + " items");
+            bondsCountLabel.setText(totals.getCount(ColumnarAssetManager.TYPE_BOND) + " items");
+        }
+        if (distributionChart != null) {
+            // The chart skips the render when these totals have not changed
+            PortfolioAggregates totals = shown.getAssetTotals();
+            Map<String, Double> distribution = new LinkedHashMap<>();
+            distribution.put("Stocks", totals.getTotalValue(ColumnarAssetManager.TYPE_STOCK));
+            distribution.put("Bonds", totals.getTotalValue(ColumnarAssetManager.TYPE_BOND));
+            distribution.put("Other", totals.getTotalValue(ColumnarAssetManager.TYPE_OTHER));
+            distributionChart.generateChart("Asset Distribution", distribution);
+        }
+        if (totalDebtLabel != null) {
+            totalDebtLabel.setText("$" + formatCurrency(totalDebt));
+            monthlyPaymentsLabel.setText("$" + formatCurrency(shown.getLiabilityTotals().getTotalMonthlyPayments()));
+            debtRatioLabel.setText(FastFormat.appendFixed2(new StringBuilder(8), totalDebt / totalAssets).toString());
+        }
+    }
 
-        frame.add(currentPanel, BorderLayout.CENTER);
-        frame.revalidate();
-        frame.repaint();
+    // Cells are formatted on demand, so JTable only pays for the visible rows.
+    // Rows come from the pinned version, which hands out one copy per row.
+    private class AssetTableModel extends AbstractTableModel {
+        private final String[] columnNames = {"Name", "Type", "Value", "Purchase Date", "Details", "Actions"};
+
+        @Override
+        public int getRowCount() {
+            return shown.getAssets().size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            FinancialAsset asset = shown.getAssets().get(row);
+            switch (column) {
+                case 0:
+                    return asset.getName();
+                case 1:
+                    return asset.getType();
+                case 2:
+                    return formatDollars(asset.getValue());
+                case 3:
+                    Date purchased = asset.getPurchaseDate();
+                    return FastFormat.formatEpochDay(purchased == null ? 0 : FastFormat.toEpochDay(purchased));
+                case 4:
+                    return "View";
+                default:
+                    return "Edit";
+            }
+        }
+    }
+
+    private class LiabilityTableModel extends AbstractTableModel {
+        private final String[] columnNames = {"Name", "Balance", "Interest Rate", "Monthly Payment", "Term", "Payments Made", "Actions"};
+
+        @Override
+        public int getRowCount() {
+            return shown.getLiabilities().size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Loan loan = shown.getLiabilities().get(row);
+            switch (column) {
+                case 0:
+                    return loan.getName();
+                case 1:
+                    return formatDollars(loan.getValue());
+                case 2:
+                    return loan.getInterestRate() + "%";
+                case 3:
+                    return FastFormat.appendCents(new StringBuilder(16).append('$'), loan.getMonthlyPaymentCents()).toString();
+                case 4:
+                    return loan.getTerm() + " months";
+                case 5:
+                    return loan.getPaymentsMade() + " / " + loan.getTerm();
+                default:
+                    return "Make Payment";
+            }
+        }
+    }
+
+    // Generates a report on a background thread and streams each finished
+    // section into the text area; cancelling stops at the next chunk
+    private class ReportWorker extends SwingWorker<Void, String> implements ReportSink {
+        // The dialog shows at most this much; Save streams the full report to disk
+        private static final int PREVIEW_LIMIT = 1 << 20;
+
+        private final String reportType;
+        private final JTextArea reportText;
+        // The portfolio as it was when the report was asked for
+        final PortfolioVersions.Snapshot portfolio = reportGenerator.snapshot();
+        private long previewChars;
+        private volatile boolean truncated;
+
+        ReportWorker(String reportType, JTextArea reportText) {
+            this.reportType = reportType;
+            this.reportText = reportText;
+        }
+
+        @Override
+        protected Void doInBackground() {
+            try {
+                reportGenerator.writeReport(portfolio, reportType, new ReportWriter(this));
+            } catch (PreviewFullException e) {
+                truncated = true;
+            }
+            setProgress(100);
+            return null;
+        }
+
+        @Override
+        public void write(CharSequence text) {
+            if (isCancelled()) {
+                throw new CancellationException();
+            }
+            publish(text.toString());
+            previewChars += text.length();
+            if (previewChars >= PREVIEW_LIMIT) {
+                throw new PreviewFullException();
+            }
+        }
+
+        @Override
+        public void progress(int percent) {
+            setProgress(Math.min(100, Math.max(0, percent)));
+        }
+
+        @Override
+        protected void process(List<String> chunks) {
+            for (String chunk : chunks) {
+                reportText.append(chunk);
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                reportText.append("\n[Report generation cancelled]\n");
+                return;
+            }
+            try {
+                get();
+                if (truncated) {
+                    reportText.append("\n[Preview truncated; use Save to export the full report]\n");
+                }
+            } catch (InterruptedException | ExecutionException ex) {
+                reportText.append("\n[Report generation failed: " + ex.getCause() + "]\n");
+            }
+        }
+    }
+
+    // Stops preview generation once the dialog holds as much as it should
+    private static class PreviewFullException extends RuntimeException {
+        PreviewFullException() {
+            super(null, null, false, false);
+        }
     }
 
     private class NavigationListener implements ActionListener {
@@ -1114,33 +1614,64 @@ public class FinancialManager {
 
         @Override
         public void actionPerformed(ActionEvent e) {
-            frame.remove(currentPanel);
-
-            switch (destination) {
-                case "Dashboard":
-                    currentPanel = dashboardPanel;
-                    break;
-                case "Assets":
-                    currentPanel = assetsPanel;
-                    break;
-                case "Liabilities":
-                    currentPanel = liabilitiesPanel;
-                    break;
-                case "Reports":
-                    currentPanel = reportsPanel;
-                    break;
-                case "Settings":
-                    currentPanel = settingsPanel;
-                    break;
+            if (loading) {
+                pendingDestination = destination;
+                return;
             }
+            showPanel(destination);
+        }
+    }
 
-            frame.add(currentPanel, BorderLayout.CENTER);
-            frame.revalidate();
-            frame.repaint();
+    // Shown while the portfolio loads; its first paint is the first frame
+    private static class LoadingPanel extends JPanel {
+        private boolean painted;
+
+        LoadingPanel() {
+            super(new GridBagLayout());
+            setBackground(new Color(240, 240, 240));
+
+            JPanel content = new JPanel();
+            content.setLayout(new BoxLayout(content, BoxLayout.Y_AXIS));
+            content.setOpaque(false);
+            JLabel label = new JLabel("Loading portfolio...");
+            label.setFont(new Font("Arial", Font.PLAIN, 16));
+            label.setAlignmentX(Component.CENTER_ALIGNMENT);
+            JProgressBar progress = new JProgressBar();
+            progress.setIndeterminate(true);
+            progress.setAlignmentX(Component.CENTER_ALIGNMENT);
+            content.add(label);
+            content.add(Box.createVerticalStrut(10));
+            content.add(progress);
+            add(content);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            if (!painted) {
+                painted = true;
+                StartupTimer.mark("first frame");
+            }
         }
     }
 
     public static void main(String[] args) {
+        StartupTimer.start();
+
+        // With arguments, run headless: the HTTP service, its load generator,
+        // or the reports over a directory of portfolios
+        if (args.length > 0 && args[0].equals(PortfolioServer.SERVE_FLAG)) {
+            int exitCode = PortfolioServer.run(args);
+            if (exitCode != 0) {
+                System.exit(exitCode);
+            }
+            return;
+        } else if (args.length > 0 && args[0].equals(LoadGenerator.LOAD_FLAG)) {
+            System.exit(LoadGenerator.run(args));
+        } else if (args.length > 0) {
+            System.exit(BatchReportRunner.run(args));
+        }
+
         // Set look and feel to system default
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -1148,6 +1679,9 @@ public class FinancialManager {
             e.printStackTrace();
         }
 
+        // Report EDT dispatches over -Dfinancialmanager.stallMillis (default 200)
+        EdtWatchdog.install(Long.getLong(STALL_PROPERTY, EdtWatchdog.DEFAULT_THRESHOLD_MILLIS));
+
         // Start the application
         SwingUtilities.invokeLater(() -> {
             FinancialManager.getInstance();
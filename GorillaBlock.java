@@ -0,0 +1,253 @@
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+// One compressed run of (timestamp, value) points, encoded as in Facebook's
+// Gorilla paper. Timestamps are stored as delta-of-deltas, so a regular
+// series costs one bit per timestamp. Values are XORed with the previous
+// value and only the meaningful bits are kept, reusing the previous window
+// of leading and trailing zeros when the new bits fit inside it. An
+// unchanged value costs one bit.
+class GorillaBlock {
+    private long[] words = new long[8];
+    private int bitLength;
+    private int count;
+
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long previousDelta;
+    private long previousBits;
+    private int previousLeading = Integer.MAX_VALUE;
+    private int previousTrailing;
+
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double sum;
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getBitLength() {
+        return bitLength;
+    }
+
+    public long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    // Timestamps must not go backwards
+    public void append(long timestamp, double value) {
+        if (count == 0) {
+            firstTimestamp = timestamp;
+            writeBits(timestamp, 64);
+            writeBits(Double.doubleToRawLongBits(value), 64);
+            previousBits = Double.doubleToRawLongBits(value);
+        } else {
+            if (timestamp < lastTimestamp) {
+                throw new IllegalArgumentException("Timestamp " + timestamp + " is before " + lastTimestamp);
+            }
+            long delta = timestamp - lastTimestamp;
+            writeDeltaOfDelta(delta - previousDelta);
+            previousDelta = delta;
+            writeValue(Double.doubleToRawLongBits(value));
+        }
+        lastTimestamp = timestamp;
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sum += value;
+    }
+
+    // The encoded bits, whole words, for writing to a segment
+    public LongBuffer words() {
+        return LongBuffer.wrap(words, 0, wordCount(bitLength)).asReadOnlyBuffer();
+    }
+
+    public Cursor cursor() {
+        return new Cursor(LongBuffer.wrap(words), count);
+    }
+
+    static int wordCount(int bitLength) {
+        return (bitLength + 63) >>> 6;
+    }
+
+    // Buckets from the paper, as two's complement ranges, plus a 64-bit
+    // bucket at the top so any gap fits
+    private void writeDeltaOfDelta(long dod) {
+        if (dod == 0) {
+            writeBits(0b0, 1);
+        } else if (dod >= -64 && dod <= 63) {
+            writeBits(0b10, 2);
+            writeBits(dod, 7);
+        } else if (dod >= -256 && dod <= 255) {
+            writeBits(0b110, 3);
+            writeBits(dod, 9);
+        } else if (dod >= -2048 && dod <= 2047) {
+            writeBits(0b1110, 4);
+            writeBits(dod, 12);
+        } else if (dod >= Integer.MIN_VALUE && dod <= Integer.MAX_VALUE) {
+            writeBits(0b11110, 5);
+            writeBits(dod, 32);
+        } else {
+            writeBits(0b11111, 5);
+            writeBits(dod, 64);
+        }
+    }
+
+    private void writeValue(long bits) {
+        long xor = bits ^ previousBits;
+        previousBits = bits;
+        if (xor == 0) {
+            writeBits(0b0, 1);
+            return;
+        }
+        int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (leading >= previousLeading && trailing >= previousTrailing) {
+            // Fits the previous window
+            writeBits(0b10, 2);
+            writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+        } else {
+            int meaningful = 64 - leading - trailing;
+            writeBits(0b11, 2);
+            writeBits(leading, 5);
+            // 64 meaningful bits is stored as 0
+            writeBits(meaningful & 63, 6);
+            writeBits(xor >>> trailing, meaningful);
+            previousLeading = leading;
+            previousTrailing = trailing;
+        }
+    }
+
+    // Writes the low n bits of value, most significant first
+    private void writeBits(long value, int n) {
+        if (n == 0) {
+            return;
+        }
+        if (wordCount(bitLength + n) > words.length) {
+            words = Arrays.copyOf(words, words.length * 2);
+        }
+        long bits = n == 64 ? value : value & ((1L << n) - 1);
+        int word = bitLength >>> 6;
+        int used = bitLength & 63;
+        int free = 64 - used;
+        if (n <= free) {
+            words[word] |= bits << (free - n);
+        } else {
+            words[word] |= bits >>> (n - free);
+            words[word + 1] |= bits << (64 - (n - free));
+        }
+        bitLength += n;
+    }
+
+    // Decodes points in order from the encoded words, which may be on the
+    // heap or in a mapped segment
+    static final class Cursor {
+        private final LongBuffer words;
+        private final int count;
+        private int position;
+        private int read;
+
+        private long timestamp;
+        private long delta;
+        private long bits;
+        private int leading;
+        private int trailing;
+
+        Cursor(LongBuffer words, int count) {
+            this.words = words;
+            this.count = count;
+        }
+
+        public boolean next() {
+            if (read == count) {
+                return false;
+            }
+            if (read == 0) {
+                timestamp = readBits(64);
+                bits = readBits(64);
+            } else {
+                delta += readDeltaOfDelta();
+                timestamp += delta;
+                readValue();
+            }
+            read++;
+            return true;
+        }
+
+        public long timestamp() {
+            return timestamp;
+        }
+
+        public double value() {
+            return Double.longBitsToDouble(bits);
+        }
+
+        private long readDeltaOfDelta() {
+            int prefix = 0;
+            while (prefix < 5 && readBits(1) == 1) {
+                prefix++;
+            }
+            switch (prefix) {
+                case 0:
+                    return 0;
+                case 1:
+                    return signed(readBits(7), 7);
+                case 2:
+                    return signed(readBits(9), 9);
+                case 3:
+                    return signed(readBits(12), 12);
+                case 4:
+                    return signed(readBits(32), 32);
+                default:
+                    return readBits(64);
+            }
+        }
+
+        private void readValue() {
+            if (readBits(1) == 0) {
+                return;
+            }
+            if (readBits(1) == 1) {
+                leading = (int) readBits(5);
+                int meaningful = (int) readBits(6);
+                if (meaningful == 0) {
+                    meaningful = 64;
+                }
+                trailing = 64 - leading - meaningful;
+            }
+            bits ^= readBits(64 - leading - trailing) << trailing;
+        }
+
+        private long readBits(int n) {
+            int word = position >>> 6;
+            int used = position & 63;
+            position += n;
+            long high = words.get(word) << used;
+            if (used + n > 64) {
+                high |= words.get(word + 1) >>> (64 - used);
+            }
+            return high >>> (64 - n);
+        }
+
+        private static long signed(long value, int n) {
+            return (value << (64 - n)) >> (64 - n);
+        }
+    }
+}
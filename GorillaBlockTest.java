@@ -0,0 +1,46 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.SplittableRandom;
+
+class GorillaBlockTest {
+    @Test
+    void testRoundTripsIrregularSeries() {
+        SplittableRandom random = new SplittableRandom(7);
+        long[] timestamps = new long[2000];
+        double[] values = new double[timestamps.length];
+        long timestamp = 1_700_000_000_000L;
+        double value = 1234.56;
+        for (int i = 0; i < timestamps.length; i++) {
+            // Mostly daily, with jitter, repeats and the occasional long gap
+            int kind = random.nextInt(10);
+            timestamp += kind == 0 ? 0 : kind == 1 ? 400L * PortfolioHistory.DAY_MILLIS
+                    : PortfolioHistory.DAY_MILLIS + random.nextInt(-3000, 3000);
+            value = kind == 2 ? value : kind == 3 ? -value : value + random.nextInt(-500, 500) / 100.0;
+            timestamps[i] = timestamp;
+            values[i] = kind == 4 ? Double.NaN : value;
+        }
+
+        GorillaBlock block = new GorillaBlock();
+        for (int i = 0; i < timestamps.length; i++) {
+            block.append(timestamps[i], values[i]);
+        }
+        GorillaBlock.Cursor cursor = block.cursor();
+        for (int i = 0; i < timestamps.length; i++) {
+            assertTrue(cursor.next(), "Cursor ended early at " + i);
+            assertEquals(timestamps[i], cursor.timestamp(), "Timestamp " + i + " is incorrect");
+            assertEquals(values[i], cursor.value(), "Value " + i + " is incorrect");
+        }
+        assertFalse(cursor.next(), "Cursor should end after the last point");
+    }
+
+    @Test
+    void testRegularSeriesCompresses() {
+        GorillaBlock block = new GorillaBlock();
+        for (int day = 0; day < 512; day++) {
+            block.append(day * PortfolioHistory.DAY_MILLIS, 25000.0);
+        }
+        // Two raw 64-bit headers and the first delta, then one bit per timestamp and one per value
+        assertTrue(block.getBitLength() < 128 + 40 + 2 * 512, "Block is too large: " + block.getBitLength());
+        assertEquals(25000.0 * 512, block.getSum(), "Sum is incorrect");
+    }
+}
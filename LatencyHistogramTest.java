@@ -0,0 +1,41 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+class LatencyHistogramTest {
+    @Test
+    void testBucketsCoverEveryValue() {
+        long[] values = {0, 1, 63, 64, 65, 127, 128, 1_000_000, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.index(value);
+            assertTrue(LatencyHistogram.lowerBound(index) <= value && value <= LatencyHistogram.upperBound(index),
+                    value + " is outside its bucket");
+        }
+        assertEquals(LatencyHistogram.upperBound(LatencyHistogram.index(127)) + 1,
+                LatencyHistogram.lowerBound(LatencyHistogram.index(128)), "Buckets should be contiguous");
+    }
+
+    @Test
+    void testPercentilesWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        SplittableRandom random = new SplittableRandom(3);
+        long[] samples = new long[100_000];
+        for (int i = 0; i < samples.length; i++) {
+            // Log-uniform from 1 us to 100 ms
+            samples[i] = (long) Math.pow(10, 3 + random.nextDouble() * 5);
+            histogram.record(samples[i]);
+        }
+        Arrays.sort(samples);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(samples.length, snapshot.getCount(), "Count is incorrect");
+        assertEquals(samples[samples.length - 1], snapshot.getMax(), "Max is incorrect");
+        for (double percent : new double[]{50, 99, 99.9}) {
+            long exact = samples[(int) Math.ceil(percent / 100 * samples.length) - 1];
+            long reported = snapshot.percentile(percent);
+            assertTrue(reported >= exact && reported <= exact * 1.04,
+                    "p" + percent + " is " + reported + ", expected about " + exact);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// Base for sinks that reshape the report line by line. Chunks are split on
+// newlines as they arrive; only the current partial line is held, so any
+// report length streams through in constant memory.
+abstract class LineReportSink implements ReportSink {
+    protected final Appendable out;
+    private final StringBuilder line = new StringBuilder(128);
+
+    protected LineReportSink(Appendable out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(CharSequence text) {
+        try {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '\n') {
+                    line(line);
+                    line.setLength(0);
+                } else {
+                    line.append(c);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Emits a trailing line that had no newline, then anything the format needs at the end
+    public void finish() throws IOException {
+        if (line.length() > 0) {
+            line(line);
+            line.setLength(0);
+        }
+        end();
+    }
+
+    protected abstract void line(CharSequence text) throws IOException;
+
+    protected void end() throws IOException {
+    }
+}
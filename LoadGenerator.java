@@ -0,0 +1,142 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Closed-loop load for PortfolioServer: each connection is a virtual thread
+// that sends a GET, waits for the whole response and sends the next. The
+// warm-up is driven the same way but not measured. Prints throughput and
+// latency percentiles, e.g.
+//
+//   java FinancialManager --load http://localhost:8080/networth --connections 32 --seconds 10
+final class LoadGenerator {
+    static final String LOAD_FLAG = "--load";
+    static final String USAGE =
+            "Usage: FinancialManager --load <url> [--connections n] [--seconds n] [--warmup n]";
+    static final int DEFAULT_CONNECTIONS = 32;
+
+    private LoadGenerator() {
+    }
+
+    static int run(String[] args) {
+        URI uri = null;
+        int connections = DEFAULT_CONNECTIONS;
+        int seconds = 10;
+        int warmup = 3;
+        try {
+            // args[0] is --load
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--connections":
+                        connections = Integer.parseInt(args[++i]);
+                        break;
+                    case "--seconds":
+                        seconds = Integer.parseInt(args[++i]);
+                        break;
+                    case "--warmup":
+                        warmup = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        if (uri != null || args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+                        }
+                        uri = URI.create(args[i]);
+                }
+            }
+            if (uri == null || connections < 1 || seconds < 1 || warmup < 0) {
+                throw new IllegalArgumentException("A URL is required");
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        try {
+            Result result = drive(uri, connections, TimeUnit.SECONDS.toNanos(warmup), TimeUnit.SECONDS.toNanos(seconds));
+            System.out.println(result);
+            return result.errors == 0 ? 0 : 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    static Result drive(URI uri, int connections, long warmupNanos, long durationNanos) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+
+        long measureFrom = System.nanoTime() + warmupNanos;
+        long end = measureFrom + durationNanos;
+        List<Thread> workers = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            workers.add(Thread.ofVirtual().name("load-", i).start(() -> {
+                long now = System.nanoTime();
+                while (now < end) {
+                    boolean ok;
+                    try {
+                        ok = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                    } catch (IOException e) {
+                        ok = false;
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long done = System.nanoTime();
+                    if (now >= measureFrom && done <= end) {
+                        latency.record(done - now);
+                        if (!ok) {
+                            errors.increment();
+                        }
+                    }
+                    now = done;
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return new Result(uri, connections, latency.snapshot(), errors.sum(), durationNanos);
+    }
+
+    static final class Result {
+        final URI uri;
+        final int connections;
+        final LatencyHistogram.Snapshot latency;
+        final long errors;
+        final long nanos;
+
+        Result(URI uri, int connections, LatencyHistogram.Snapshot latency, long errors, long nanos) {
+            this.uri = uri;
+            this.connections = connections;
+            this.latency = latency;
+            this.errors = errors;
+            this.nanos = nanos;
+        }
+
+        public double getRequestsPerSecond() {
+            return latency.getCount() / (nanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%s: %d requests (%d failed) on %d connections in %.1f s: %.0f req/s, "
+                            + "p50=%.2fms p99=%.2fms p999=%.2fms max=%.2fms",
+                    uri, latency.getCount(), errors, connections, nanos / 1e9, getRequestsPerSecond(),
+                    latency.percentile(50) / 1e6, latency.percentile(99) / 1e6,
+                    latency.percentile(99.9) / 1e6, latency.getMax() / 1e6);
+        }
+    }
+}
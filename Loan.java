@@ -4,6 +4,9 @@ class Loan extends FinancialAsset {
     private double interestRate;
     private int term; // in months
     private int paymentsMade;
+    // Billed payment with the balance, rate and term it was worked from.
+    // Replaced whole, so a reader never pairs it with other figures.
+    private Payment payment;
 
     public Loan(String name, double value, Date purchaseDate, double interestRate, int term, int paymentsMade) {
         super(name, value, purchaseDate);
@@ -13,16 +16,54 @@ class Loan extends FinancialAsset {
         setType("Loan");
     }
 
+    @Override
+    Loan copy() {
+        Loan copy = new Loan(getName(), 0, getPurchaseDate(), interestRate, term, paymentsMade);
+        copy.copyState(this);
+        return copy;
+    }
+
+    @Override
+    protected void copyState(FinancialAsset from) {
+        super.copyState(from);
+        Loan loan = (Loan) from;
+        this.interestRate = loan.interestRate;
+        this.term = loan.term;
+        this.paymentsMade = loan.paymentsMade;
+        this.payment = loan.payment;
+    }
+
+    @Override
+    protected void revertState(FinancialAsset before, FinancialAsset after) {
+        super.revertState(before, after);
+        Loan was = (Loan) before;
+        Loan now = (Loan) after;
+        this.interestRate = revertField(interestRate, was.interestRate, now.interestRate);
+        this.term = revertField(term, was.term, now.term);
+        this.paymentsMade = revertField(paymentsMade, was.paymentsMade, now.paymentsMade);
+    }
+
     @Override
     public double calculateInterest() {
-        return getValue() * (interestRate / 100) / 12; // Monthly interest
+        return Money.toDouble(Money.applyRate(getValueCents(), interestRate, 12)); // Monthly interest
     }
 
     public double calculateMonthlyPayment() {
-        double monthlyRate = interestRate / 100 / 12;
-        double payment = getValue() * monthlyRate * Math.pow(1 + monthlyRate, term)
-                / (Math.pow(1 + monthlyRate, term) - 1);
-        return payment;
+        return Money.toDouble(getMonthlyPaymentCents());
+    }
+
+    // Level payment rounded to whole cents, as it would actually be billed;
+    // exact, unlike the double LoanAnalytics.monthlyPayment used for projections.
+    // Worked out again only when the balance, rate or term has changed.
+    public long getMonthlyPaymentCents() {
+        long balanceCents = getValueCents();
+        Payment cached = payment;
+        if (cached == null || !cached.isFor(balanceCents, interestRate, term)) {
+            cached = new Payment(balanceCents, interestRate, term,
+                    Money.annuityPayment(balanceCents, interestRate, 12, term));
+            payment = cached;
+        }
+        return cached.cents;
     }
 
     public double getInterestRate() {
@@ -30,7 +71,9 @@ class Loan extends FinancialAsset {
     }
 
     public void setInterestRate(double interestRate) {
+        fireBeforeChange();
         this.interestRate = interestRate;
+        fireAfterChange();
     }
 
     public int getTerm() {
@@ -38,7 +81,9 @@ class Loan extends FinancialAsset {
     }
 
     public void setTerm(int term) {
+        fireBeforeChange();
         this.term = term;
+        fireAfterChange();
     }
 
     public int getPaymentsMade() {
@@ -46,6 +91,27 @@ class Loan extends FinancialAsset {
     }
 
     public void setPaymentsMade(int paymentsMade) {
+        fireBeforeChange();
         this.paymentsMade = paymentsMade;
+        fireAfterChange();
+    }
+
+    private static final class Payment {
+        final long balanceCents;
+        final double interestRate;
+        final int term;
+        final long cents;
+
+        Payment(long balanceCents, double interestRate, int term, long cents) {
+            this.balanceCents = balanceCents;
+            this.interestRate = interestRate;
+            this.term = term;
+            this.cents = cents;
+        }
+
+        boolean isFor(long balanceCents, double interestRate, int term) {
+            return this.balanceCents == balanceCents && Double.compare(this.interestRate, interestRate) == 0
+                    && this.term == term;
+        }
     }
 }
@@ -0,0 +1,100 @@
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+// Closed-form amortization figures for loans. Results are memoized per loan
+// and recomputed only when the loan's version changes, so the table, the
+// summary cards and every report share one computation per edit.
+class LoanAnalytics {
+    private final Map<Loan, Result> cache = new WeakHashMap<>();
+
+    static final class Result {
+        final long version;
+        final double monthlyPayment;
+        final int remainingPayments;
+        final double remainingInterest;
+
+        Result(long version, double monthlyPayment, int remainingPayments, double remainingInterest) {
+            this.version = version;
+            this.monthlyPayment = monthlyPayment;
+            this.remainingPayments = remainingPayments;
+            this.remainingInterest = remainingInterest;
+        }
+    }
+
+    public synchronized Result analyze(Loan loan) {
+        Result result = cache.get(loan);
+        if (result == null || result.version != loan.getVersion()) {
+            result = compute(loan);
+            cache.put(loan, result);
+        }
+        return result;
+    }
+
+    public double getMonthlyPayment(Loan loan) {
+        return analyze(loan).monthlyPayment;
+    }
+
+    public int getRemainingPayments(Loan loan) {
+        return analyze(loan).remainingPayments;
+    }
+
+    public double getRemainingInterest(Loan loan) {
+        return analyze(loan).remainingInterest;
+    }
+
+    public Date getPayoffDate(Loan loan) {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.MONTH, getRemainingPayments(loan));
+        return cal.getTime();
+    }
+
+    // Balance left after another k monthly payments
+    public double getBalanceAfter(Loan loan, int months) {
+        return Math.max(0, balanceAfter(loan.getValue(), monthlyRate(loan.getInterestRate()),
+                getMonthlyPayment(loan), months));
+    }
+
+    // Level payment that clears the balance over the given number of months
+    static double monthlyPayment(double balance, double annualRatePercent, int term) {
+        if (term <= 0) {
+            return balance;
+        }
+        double monthlyRate = monthlyRate(annualRatePercent);
+        if (monthlyRate == 0) {
+            return balance / term;
+        }
+        double growth = Math.pow(1 + monthlyRate, term);
+        return balance * monthlyRate * growth / (growth - 1);
+    }
+
+    // B(k) = B(1+r)^k - P((1+r)^k - 1)/r
+    static double balanceAfter(double balance, double monthlyRate, double payment, int months) {
+        if (monthlyRate == 0) {
+            return balance - payment * months;
+        }
+        double growth = Math.pow(1 + monthlyRate, months);
+        return balance * growth - payment * (growth - 1) / monthlyRate;
+    }
+
+    private static Result compute(Loan loan) {
+        double balance = loan.getValue();
+        double monthlyRate = monthlyRate(loan.getInterestRate());
+        double payment = loan.calculateMonthlyPayment();
+        int remaining = Math.max(0, Math.min(loan.getTerm() - loan.getPaymentsMade(), loan.getTerm()));
+
+        // Everything paid minus the principal it retired is interest
+        double remainingInterest = 0;
+        if (remaining > 0 && balance > 0) {
+            double endBalance = balanceAfter(balance, monthlyRate, payment, remaining);
+            remainingInterest = Math.max(0, payment * remaining - (balance - endBalance));
+        }
+
+        return new Result(loan.getVersion(), payment, remaining, remainingInterest);
+    }
+
+    private static double monthlyRate(double annualRatePercent) {
+        return annualRatePercent / 100 / 12;
+    }
+}
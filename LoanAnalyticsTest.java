@@ -0,0 +1,47 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.Date;
+
+class LoanAnalyticsTest {
+    private LoanAnalytics analytics;
+    private Loan loan;
+
+    @BeforeEach
+    void setUp() {
+        analytics = new LoanAnalytics();
+        loan = new Loan("Mortgage", 350000, new Date(), 3.5, 360, 24);
+    }
+
+    @Test
+    void testRemainingInterestMatchesMonthlySchedule() {
+        double balance = loan.getValue();
+        double monthlyRate = loan.getInterestRate() / 100 / 12;
+        double payment = loan.calculateMonthlyPayment();
+        double expected = 0;
+        for (int i = 0; i < loan.getTerm() - loan.getPaymentsMade(); i++) {
+            double interestPayment = balance * monthlyRate;
+            expected += interestPayment;
+            balance -= payment - interestPayment;
+        }
+
+        assertEquals(expected, analytics.getRemainingInterest(loan), 0.01, "Closed-form remaining interest is incorrect");
+        assertEquals(balance, analytics.getBalanceAfter(loan, 336), 0.01, "Closed-form balance is incorrect");
+    }
+
+    @Test
+    void testRecomputedAfterLoanChanges() {
+        double before = analytics.getMonthlyPayment(loan);
+        assertSame(analytics.analyze(loan), analytics.analyze(loan), "Result was not memoized");
+
+        loan.setValue(175000);
+        assertEquals(before / 2, analytics.getMonthlyPayment(loan), 0.01, "Result not refreshed after change");
+    }
+
+    @Test
+    void testZeroInterestLoan() {
+        Loan interestFree = new Loan("Family Loan", 1200, new Date(), 0, 12, 0);
+        assertEquals(100, analytics.getMonthlyPayment(interestFree), 0.001, "Zero-rate payment is incorrect");
+        assertEquals(0, analytics.getRemainingInterest(interestFree), 0.001, "Zero-rate loan should accrue no interest");
+    }
+}
@@ -20,5 +20,19 @@ class LoanTest {
     void testCalculateMonthlyPayment() {
         assertEquals(943.56, loan.calculateMonthlyPayment(), 0.5, "Loan monthly payment calculation failed");
     }
-}
 
+    @Test
+    void testMonthlyPaymentFollowsBalanceRateAndTerm() {
+        long payment = loan.getMonthlyPaymentCents();
+        loan.setPaymentsMade(1);
+        assertEquals(payment, loan.getMonthlyPaymentCents(), "Payment count changed the payment");
+
+        loan.setValue(25000);
+        assertEquals(Money.annuityPayment(2_500_000, 5, 12, 60), loan.getMonthlyPaymentCents(), "Balance change missed");
+        loan.setInterestRate(6);
+        assertEquals(Money.annuityPayment(2_500_000, 6, 12, 60), loan.getMonthlyPaymentCents(), "Rate change missed");
+        loan.setTerm(48);
+        assertEquals(Money.annuityPayment(2_500_000, 6, 12, 48), loan.getMonthlyPaymentCents(), "Term change missed");
+        assertEquals(loan.getMonthlyPaymentCents(), loan.copy().getMonthlyPaymentCents(), "Copy disagrees");
+    }
+}
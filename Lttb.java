@@ -0,0 +1,76 @@
+// Largest-Triangle-Three-Buckets downsampling (Steinarsson, 2013). Keeps the
+// first and last points and, from each of threshold - 2 equal buckets in
+// between, the point that forms the largest triangle with the point kept
+// from the previous bucket and the average of the next bucket. Peaks and
+// troughs survive, so a few thousand points draw the same line as millions.
+final class Lttb {
+    private Lttb() {
+    }
+
+    // Indices of the points to keep, ascending. xs must be non-decreasing.
+    static int[] downsample(double[] xs, double[] ys, int threshold) {
+        return downsample(xs, ys, 0, xs.length, threshold);
+    }
+
+    static int[] downsample(double[] xs, double[] ys, int from, int to, int threshold) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Series lengths differ: " + xs.length + " and " + ys.length);
+        }
+        int length = to - from;
+        if (length <= threshold) {
+            int[] kept = new int[length];
+            for (int i = 0; i < length; i++) {
+                kept[i] = from + i;
+            }
+            return kept;
+        }
+        if (threshold < 3) {
+            throw new IllegalArgumentException("Threshold must be at least 3: " + threshold);
+        }
+
+        int[] kept = new int[threshold];
+        kept[0] = from;
+        int buckets = threshold - 2;
+        int a = from;
+
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            int start = bucketStart(from, length, buckets, bucket);
+            int end = bucketStart(from, length, buckets, bucket + 1);
+
+            // Average of the next bucket; the last point stands in for the one past the end
+            int nextStart = end;
+            int nextEnd = bucket + 1 < buckets ? bucketStart(from, length, buckets, bucket + 2) : to;
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += xs[i];
+                avgY += ys[i];
+            }
+            int nextCount = nextEnd - nextStart;
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            double ax = xs[a];
+            double ay = ys[a];
+            double maxArea = -1;
+            int chosen = start;
+            for (int i = start; i < end; i++) {
+                // Twice the triangle area; only the comparison matters
+                double area = Math.abs((ax - avgX) * (ys[i] - ay) - (ax - xs[i]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = i;
+                }
+            }
+            kept[bucket + 1] = chosen;
+            a = chosen;
+        }
+        kept[threshold - 1] = to - 1;
+        return kept;
+    }
+
+    // Integer arithmetic so the buckets tile the interior exactly
+    private static int bucketStart(int from, int length, int buckets, int bucket) {
+        return from + 1 + (int) ((long) bucket * (length - 2) / buckets);
+    }
+}
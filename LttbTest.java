@@ -0,0 +1,45 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+class LttbTest {
+    @Test
+    void testKeepsEveryPointBelowThreshold() {
+        double[] xs = {0, 1, 2, 3};
+        double[] ys = {5, 1, 4, 2};
+        assertArrayEquals(new int[]{0, 1, 2, 3}, Lttb.downsample(xs, ys, 10), "Short series should be kept whole");
+    }
+
+    @Test
+    void testKeepsEndsAndSpikes() {
+        int n = 100_000;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = i;
+            ys[i] = Math.sin(i / 1000.0);
+        }
+        ys[31_337] = 50;
+        ys[77_777] = -50;
+
+        int[] kept = Lttb.downsample(xs, ys, 500);
+        assertEquals(500, kept.length, "Point count is incorrect");
+        assertEquals(0, kept[0], "First point should be kept");
+        assertEquals(n - 1, kept[kept.length - 1], "Last point should be kept");
+        boolean high = false;
+        boolean low = false;
+        for (int i = 1; i < kept.length; i++) {
+            assertTrue(kept[i] > kept[i - 1], "Indices should be strictly ascending");
+            high |= kept[i] == 31_337;
+            low |= kept[i] == 77_777;
+        }
+        assertTrue(high && low, "Spikes should survive downsampling");
+    }
+
+    @Test
+    void testOneBucketPerInteriorPoint() {
+        double[] xs = {0, 1, 2, 3, 4};
+        double[] ys = {0, 9, 0, 0, 0};
+        // Two buckets, {1} and {2, 3}; point 2 sits furthest below the line down from the peak
+        assertArrayEquals(new int[]{0, 1, 2, 4}, Lttb.downsample(xs, ys, 4), "Selected points are incorrect");
+    }
+}
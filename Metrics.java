@@ -0,0 +1,122 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Process-wide registry of named counters and latency histograms. Call
+// sites look their instruments up once and keep them in static fields;
+// recording is then lock-free. The registry is published through a JMX
+// MBean and can dump a plain-text snapshot to a file on a schedule.
+//
+// Names are dotted, e.g. "store.add" or "report.net-worth-summary".
+// Histograms record nanoseconds and are reported in microseconds.
+final class Metrics {
+    static final String OBJECT_NAME = "FinancialManager:type=Metrics";
+
+    private static final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService snapshotter;
+
+    private Metrics() {
+    }
+
+    static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    // Sorted copies, for reporting
+    static Map<String, LongAdder> getCounters() {
+        return new TreeMap<>(counters);
+    }
+
+    static Map<String, LatencyHistogram> getHistograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    // Registers the registry with the platform MBean server; safe to repeat
+    static synchronized void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsMBean(), name);
+            }
+        } catch (JMException e) {
+            System.err.println("Could not register metrics MBean: " + e.getMessage());
+        }
+    }
+
+    // Rewrites the file every period on a daemon thread; a later call
+    // replaces the schedule
+    static synchronized void startSnapshots(Path file, long period, TimeUnit unit) {
+        stopSnapshots();
+        snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotter.scheduleAtFixedRate(() -> {
+            try {
+                writeSnapshot(file);
+            } catch (IOException e) {
+                System.err.println("Could not write metrics snapshot: " + e.getMessage());
+            }
+        }, period, period, unit);
+    }
+
+    static synchronized void stopSnapshots() {
+        if (snapshotter != null) {
+            snapshotter.shutdownNow();
+            snapshotter = null;
+        }
+    }
+
+    // Written beside the target and moved over it, so readers never see half a file
+    static void writeSnapshot(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, snapshot().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // One line per instrument, counters first
+    static String snapshot() {
+        StringBuilder out = new StringBuilder(1024);
+        out.append("# metrics at ").append(Instant.now()).append('\n');
+        for (Map.Entry<String, LongAdder> entry : getCounters().entrySet()) {
+            out.append(String.format(Locale.US, "counter   %-32s %d%n", entry.getKey(), entry.getValue().sum()));
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : getHistograms().entrySet()) {
+            LatencyHistogram.Snapshot s = entry.getValue().snapshot();
+            out.append(String.format(Locale.US,
+                    "histogram %-32s count=%d mean=%.1fus p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus%n",
+                    entry.getKey(), s.getCount(), s.getMean() / 1000, s.percentile(50) / 1000.0,
+                    s.percentile(99) / 1000.0, s.percentile(99.9) / 1000.0, s.getMax() / 1000.0));
+        }
+        return out.toString();
+    }
+}
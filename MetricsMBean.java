@@ -0,0 +1,99 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+
+// Read-only view of the Metrics registry for JConsole and other JMX
+// clients. Instruments come and go at run time, so this is a dynamic MBean:
+// each counter is a Long attribute named after it, and each histogram
+// contributes "<name>.count" plus p50, p99, p999 and max in microseconds.
+class MetricsMBean implements DynamicMBean {
+    private static final String[] HISTOGRAM_FIELDS = {"count", "p50Micros", "p99Micros", "p999Micros", "maxMicros"};
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        LongAdder counter = Metrics.getCounters().get(attribute);
+        if (counter != null) {
+            return counter.sum();
+        }
+        int dot = attribute.lastIndexOf('.');
+        LatencyHistogram histogram = dot < 0 ? null : Metrics.getHistograms().get(attribute.substring(0, dot));
+        if (histogram == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        switch (attribute.substring(dot + 1)) {
+            case "count":
+                return snapshot.getCount();
+            case "p50Micros":
+                return snapshot.percentile(50) / 1000.0;
+            case "p99Micros":
+                return snapshot.percentile(99) / 1000.0;
+            case "p999Micros":
+                return snapshot.percentile(99.9) / 1000.0;
+            case "maxMicros":
+                return snapshot.getMax() / 1000.0;
+            default:
+                throw new AttributeNotFoundException(attribute);
+        }
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // Left out, as the JMX contract allows
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        if ("snapshot".equals(actionName)) {
+            return Metrics.snapshot();
+        }
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String name : Metrics.getCounters().keySet()) {
+            attributes.add(new MBeanAttributeInfo(name, "java.lang.Long", "Counter", true, false, false));
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : Metrics.getHistograms().entrySet()) {
+            for (String field : HISTOGRAM_FIELDS) {
+                String type = field.equals("count") ? "java.lang.Long" : "java.lang.Double";
+                attributes.add(new MBeanAttributeInfo(entry.getKey() + "." + field, type,
+                        "Latency histogram", true, false, false));
+            }
+        }
+        MBeanOperationInfo snapshot = new MBeanOperationInfo("snapshot", "All metrics as text",
+                new MBeanParameterInfo[0], "java.lang.String", MBeanOperationInfo.INFO);
+        return new MBeanInfo(getClass().getName(), "Financial Manager metrics",
+                attributes.toArray(new MBeanAttributeInfo[0]), null,
+                new MBeanOperationInfo[]{snapshot}, null);
+    }
+}
@@ -0,0 +1,44 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+class MetricsTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testStoreMutationsAreTimed() {
+        long before = Metrics.histogram("store.add").getCount();
+        ColumnarAssetManager<FinancialAsset> store = new ColumnarAssetManager<>(FinancialAsset.class);
+        store.addAsset(new Bond("Bond", 1000, new Date(), 4.0, new Date()));
+        store.addAsset(new Bond("Other Bond", 2000, new Date(), 4.0, new Date()));
+        assertEquals(before + 2, Metrics.histogram("store.add").getCount(), "Adds should be recorded");
+    }
+
+    @Test
+    void testPublishedThroughJmxAndSnapshot() throws JMException, IOException {
+        Metrics.counter("test.events").add(3);
+        Metrics.histogram("test.latency").record(2_500_000);
+        Metrics.registerMBean();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+        assertEquals(3L, server.getAttribute(name, "test.events"), "Counter attribute is incorrect");
+        double p99 = (Double) server.getAttribute(name, "test.latency.p99Micros");
+        assertEquals(2500, p99, 2500 * 0.04, "Percentile attribute is incorrect");
+
+        Path file = dir.resolve("metrics.txt");
+        Metrics.writeSnapshot(file);
+        String snapshot = Files.readString(file);
+        assertTrue(snapshot.contains("test.events"), "Snapshot should list counters");
+        assertTrue(snapshot.contains("test.latency"), "Snapshot should list histograms");
+    }
+}
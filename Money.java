@@ -0,0 +1,83 @@
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+// Fixed-point money helpers. Amounts are held as long cents so totals are
+// exact integer adds; rates are scaled to integers before they are applied.
+final class Money {
+    // Rates are carried as percent * RATE_SCALE, i.e. to 1e-6 of a percent
+    static final long RATE_SCALE = 1_000_000L;
+
+    private Money() {
+    }
+
+    // Half a cent rounds away from zero, as parseCents does, so a negative
+    // amount is always the exact negation of the positive one
+    public static long toCents(double amount) {
+        long cents = toCentsUnsigned(Math.abs(amount));
+        return amount < 0 ? -cents : cents;
+    }
+
+    private static long toCentsUnsigned(double amount) {
+        double scaled = amount * 100;
+        if (Math.abs(scaled - Math.floor(scaled) - 0.5) < 1e-6) {
+            // Round the decimal the user wrote, not its binary approximation
+            return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        }
+        return Math.round(scaled);
+    }
+
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+
+    // Exact parse of user input such as "1250.5" into cents
+    public static long parseCents(String text) {
+        try {
+            return new BigDecimal(text.trim()).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+    }
+
+    public static long scaleRate(double ratePercent) {
+        return Math.round(ratePercent * RATE_SCALE);
+    }
+
+    // cents * rate% / periodsPerYear, rounded half-up, without overflowing
+    public static long applyRate(long cents, double ratePercent, int periodsPerYear) {
+        long rate = scaleRate(ratePercent);
+        long divisor = 100 * RATE_SCALE * periodsPerYear;
+
+        // Split cents = q * divisor + r so neither product can overflow
+        long q = cents / divisor;
+        long r = cents % divisor;
+        return q * rate + divideRounded(r * rate, divisor);
+    }
+
+    // Level payment that clears principalCents over the given number of
+    // periods, rounded half-up to the cent. The rate is scaled as in
+    // applyRate and the annuity worked in 34-digit decimal, so the result
+    // does not depend on binary rounding in pow.
+    public static long annuityPayment(long principalCents, double ratePercent, int periodsPerYear, int periods) {
+        if (periods <= 0) {
+            return principalCents;
+        }
+        BigDecimal principal = BigDecimal.valueOf(principalCents);
+        long rate = scaleRate(ratePercent);
+        if (rate == 0) {
+            return principal.divide(BigDecimal.valueOf(periods), 0, RoundingMode.HALF_UP).longValueExact();
+        }
+        BigDecimal periodRate = BigDecimal.valueOf(rate)
+                .divide(BigDecimal.valueOf(100 * RATE_SCALE * periodsPerYear), MathContext.DECIMAL128);
+        BigDecimal growth = BigDecimal.ONE.add(periodRate).pow(periods, MathContext.DECIMAL128);
+        return principal.multiply(periodRate).multiply(growth)
+                .divide(growth.subtract(BigDecimal.ONE), MathContext.DECIMAL128)
+                .setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static long divideRounded(long dividend, long divisor) {
+        long half = divisor / 2;
+        return dividend >= 0 ? (dividend + half) / divisor : -((-dividend + half) / divisor);
+    }
+}
@@ -0,0 +1,49 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.Date;
+
+class MoneyTest {
+    @Test
+    void testParseCents() {
+        assertEquals(125050, Money.parseCents("1250.5"), "Parsed cents are incorrect");
+        assertEquals(101, Money.parseCents(" 1.005 "), "Half-cent input should round up");
+        assertThrows(NumberFormatException.class, () -> Money.parseCents("abc"));
+    }
+
+    @Test
+    void testToCentsIsSymmetric() {
+        assertEquals(1, Money.toCents(0.005), "Half-cent should round up");
+        assertEquals(-1, Money.toCents(-0.005), "Negative half-cent should round away from zero");
+        for (double amount : new double[] {1.005, 2.675, 0.125, 1234.565, 0.994999, 1e12 + 0.5, 1e17}) {
+            assertEquals(-Money.toCents(amount), Money.toCents(-amount), "Not symmetric for " + amount);
+        }
+    }
+
+    @Test
+    void testApplyRateRoundsHalfUp() {
+        // $50,000 at 5% / 12 = $208.3333...
+        assertEquals(20833, Money.applyRate(5_000_000, 5.0, 12), "Monthly interest is incorrect");
+        assertEquals(-20833, Money.applyRate(-5_000_000, 5.0, 12), "Negative amounts should round symmetrically");
+        // Large balances must not overflow the scaled product
+        assertEquals(4_200_000_000_000_000L, Money.applyRate(100_000_000_000_000_000L, 4.2, 1), "Large balance overflowed");
+    }
+
+    @Test
+    void testAnnuityPayment() {
+        // $200,000 at 6% over 30 years is $1,199.10 a month
+        assertEquals(119_910, Money.annuityPayment(20_000_000, 6.0, 12, 360), "Monthly payment is incorrect");
+        assertEquals(10_000, Money.annuityPayment(1_200_000, 0, 12, 120), "Interest-free payment is incorrect");
+        assertEquals(1_200_000, Money.annuityPayment(1_200_000, 5.0, 12, 0), "No term should be due at once");
+    }
+
+    @Test
+    void testSummationDoesNotDrift() {
+        ColumnarAssetManager<FinancialAsset> manager = new ColumnarAssetManager<>(FinancialAsset.class);
+        Bond bond = new Bond("Bond", 0, new Date(), 1, new Date());
+        manager.addAsset(bond);
+        for (int i = 0; i < 100000; i++) {
+            bond.setValue(bond.getValue() + 0.1);
+        }
+        assertEquals(1_000_000, manager.getAggregates().getTotalValueCents(), "Running total drifted");
+    }
+}
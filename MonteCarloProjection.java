@@ -0,0 +1,251 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+// Monte Carlo projection of net worth. Stocks and bonds follow correlated
+// lognormal monthly returns, and debt follows each loan's amortization
+// schedule. Paths are split across a fork/join pool. Each subtree draws
+// from its own SplittableRandom, so a seed gives the same bands however
+// many threads run it.
+class MonteCarloProjection {
+    static final double[] PERCENTILES = {5, 25, 50, 75, 95};
+    // Same expected return Stock.calculateInterest assumes
+    static final double STOCK_RETURN = 0.07;
+    static final double STOCK_VOLATILITY = 0.15;
+    static final double BOND_VOLATILITY = 0.05;
+    static final double CORRELATION = 0.1;
+    private static final int PATHS_PER_TASK = 1024;
+    private static final long PROGRESS_POLL_MILLIS = 100;
+
+    private final double stockValue;
+    private final double bondValue;
+    private final double bondReturn;
+    private final int months;
+    // Outstanding debt at the start of each month, index 0 being today
+    private final double[] debtByMonth;
+    private final int[] checkpointYears;
+
+    MonteCarloProjection(double stockValue, double bondValue, double bondReturn, double[] debtByMonth) {
+        this.stockValue = stockValue;
+        this.bondValue = bondValue;
+        this.bondReturn = bondReturn;
+        this.debtByMonth = debtByMonth;
+        this.months = debtByMonth.length - 1;
+        this.checkpointYears = checkpoints(months / 12);
+    }
+
+    // Projection of the portfolio as it stands. The stores must not change while this runs.
+    static MonteCarloProjection of(ColumnarAssetManager<FinancialAsset> assets,
+                                   ColumnarAssetManager<Loan> liabilities,
+                                   LoanAnalytics loanAnalytics, int years) {
+        return of(assets.getAggregates(), liabilities, loanAnalytics, years);
+    }
+
+    // Same, from asset totals and loans that will not change, e.g. a PortfolioVersions snapshot
+    static MonteCarloProjection of(PortfolioAggregates totals, Iterable<Loan> liabilities,
+                                   LoanAnalytics loanAnalytics, int years) {
+        double stocks = totals.getTotalValue(ColumnarAssetManager.TYPE_STOCK);
+        double bonds = totals.getTotalValue(ColumnarAssetManager.TYPE_BOND);
+        // Cash and other assets are carried with the bonds at the coupon rate
+        double other = totals.getTotalValue() - stocks - bonds;
+        double bondReturn = bonds > 0 ? totals.getAnnualBondIncome() / bonds : 0;
+
+        int months = years * 12;
+        double[] debt = new double[months + 1];
+        for (Loan loan : liabilities) {
+            double balance = loan.getValue();
+            double monthlyRate = loan.getInterestRate() / 100 / 12;
+            double payment = loanAnalytics.getMonthlyPayment(loan);
+            int remaining = Math.min(loanAnalytics.getRemainingPayments(loan), months);
+            for (int month = 0; month <= remaining && balance > 0; month++) {
+                debt[month] += balance;
+                balance = balance * (1 + monthlyRate) - payment;
+            }
+        }
+        return new MonteCarloProjection(stocks, bonds + other, bondReturn, debt);
+    }
+
+    static final class Result {
+        final int paths;
+        final int[] years;
+        // Net worth at each checkpoint year, one column per entry of PERCENTILES
+        final double[][] bands;
+        final double startingNetWorth;
+        final double probabilityBelowStart;
+        final long elapsedNanos;
+
+        Result(int paths, int[] years, double[][] bands, double startingNetWorth,
+               double probabilityBelowStart, long elapsedNanos) {
+            this.paths = paths;
+            this.years = years;
+            this.bands = bands;
+            this.startingNetWorth = startingNetWorth;
+            this.probabilityBelowStart = probabilityBelowStart;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+
+    public double getBondReturn() {
+        return bondReturn;
+    }
+
+    public Result run(int paths, long seed) {
+        return run(paths, seed, ForkJoinPool.commonPool(), percent -> { });
+    }
+
+    // Blocks until every path is simulated, reporting progress as it goes.
+    // Interrupting the caller abandons the run with a CancellationException.
+    public Result run(int paths, long seed, ForkJoinPool pool, IntConsumer progress) {
+        long start = System.nanoTime();
+        Simulation simulation = new Simulation(paths);
+        ForkJoinTask<Void> task = pool.submit(new PathRange(simulation, 0, paths, new SplittableRandom(seed)));
+        while (true) {
+            try {
+                task.get(PROGRESS_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                break;
+            } catch (TimeoutException e) {
+                progress.accept((int) (simulation.completed.get() * 100 / paths));
+            } catch (InterruptedException e) {
+                simulation.cancelled = true;
+                task.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Projection interrupted");
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Projection failed", e.getCause());
+            }
+        }
+        progress.accept(100);
+
+        double startingNetWorth = stockValue + bondValue - debtByMonth[0];
+        double[][] bands = new double[checkpointYears.length][PERCENTILES.length];
+        float[] last = null;
+        for (int c = 0; c < checkpointYears.length; c++) {
+            float[] samples = simulation.samples[c];
+            Arrays.parallelSort(samples);
+            for (int p = 0; p < PERCENTILES.length; p++) {
+                bands[c][p] = samples[rank(PERCENTILES[p], paths)];
+            }
+            last = samples;
+        }
+        double belowStart = last == null ? 0 : (double) countBelow(last, (float) startingNetWorth) / paths;
+
+        return new Result(paths, checkpointYears.clone(), bands, startingNetWorth, belowStart,
+                System.nanoTime() - start);
+    }
+
+    // Years 1, 2, 3, 5 and every fifth year after, always ending on the horizon
+    private static int[] checkpoints(int years) {
+        int[] candidates = new int[years + 1];
+        int count = 0;
+        for (int year = 1; year <= years; year++) {
+            if (year <= 3 || year % 5 == 0 || year == years) {
+                candidates[count++] = year;
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    // Nearest-rank percentile index into a sorted sample of size n
+    private static int rank(double percentile, int n) {
+        int index = (int) Math.ceil(percentile / 100 * n) - 1;
+        return Math.max(0, Math.min(n - 1, index));
+    }
+
+    private static int countBelow(float[] sorted, float value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Shared output of one run; each path writes only its own column entries
+    private final class Simulation {
+        // Net worth per checkpoint and path, stored as float to keep a
+        // million paths by a dozen checkpoints under 50 MB
+        final float[][] samples;
+        final AtomicLong completed = new AtomicLong();
+        volatile boolean cancelled;
+
+        Simulation(int paths) {
+            samples = new float[checkpointYears.length][paths];
+        }
+    }
+
+    private final class PathRange extends RecursiveAction {
+        private final Simulation simulation;
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+
+        PathRange(Simulation simulation, int from, int to, SplittableRandom random) {
+            this.simulation = simulation;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            if (simulation.cancelled) {
+                return;
+            }
+            if (to - from > PATHS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                // Split before forking so the stream tree depends only on the path range
+                PathRange right = new PathRange(simulation, mid, to, random.split());
+                PathRange left = new PathRange(simulation, from, mid, random);
+                invokeAll(left, right);
+                return;
+            }
+            simulate();
+        }
+
+        private void simulate() {
+            // Per-month log-return drift and volatility for each asset class
+            double stockDrift = (Math.log1p(STOCK_RETURN) - STOCK_VOLATILITY * STOCK_VOLATILITY / 2) / 12;
+            double stockSigma = STOCK_VOLATILITY / Math.sqrt(12);
+            double bondDrift = (Math.log1p(bondReturn) - BOND_VOLATILITY * BOND_VOLATILITY / 2) / 12;
+            double bondSigma = BOND_VOLATILITY / Math.sqrt(12);
+            double independent = Math.sqrt(1 - CORRELATION * CORRELATION);
+            float[][] samples = simulation.samples;
+
+            for (int path = from; path < to; path++) {
+                // Without rebalancing only the cumulative log return matters,
+                // so exponentiate once per checkpoint rather than every month
+                double stockLog = 0;
+                double bondLog = 0;
+                int checkpoint = 0;
+                int nextMonth = checkpointYears.length > 0 ? checkpointYears[0] * 12 : Integer.MAX_VALUE;
+                for (int month = 1; month <= months; month++) {
+                    double z1 = random.nextGaussian();
+                    double z2 = CORRELATION * z1 + independent * random.nextGaussian();
+                    stockLog += stockDrift + stockSigma * z1;
+                    bondLog += bondDrift + bondSigma * z2;
+                    if (month == nextMonth) {
+                        double netWorth = stockValue * Math.exp(stockLog) + bondValue * Math.exp(bondLog)
+                                - debtByMonth[month];
+                        samples[checkpoint][path] = (float) netWorth;
+                        checkpoint++;
+                        nextMonth = checkpoint < checkpointYears.length ? checkpointYears[checkpoint] * 12 : Integer.MAX_VALUE;
+                    }
+                }
+            }
+            simulation.completed.addAndGet(to - from);
+        }
+    }
+}
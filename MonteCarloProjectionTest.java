@@ -0,0 +1,47 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.Date;
+import java.util.concurrent.ForkJoinPool;
+
+class MonteCarloProjectionTest {
+    @Test
+    void testSameSeedSameBandsAtAnyParallelism() {
+        MonteCarloProjection projection = new MonteCarloProjection(100000, 50000, 0.04, new double[121]);
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            MonteCarloProjection.Result parallel = projection.run(5000, 42);
+            MonteCarloProjection.Result serial = projection.run(5000, 42, single, percent -> { });
+            assertArrayEquals(parallel.bands[parallel.bands.length - 1], serial.bands[serial.bands.length - 1],
+                    "Bands depend on the thread count");
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    void testBandsAreOrderedAndCentered() {
+        MonteCarloProjection projection = new MonteCarloProjection(100000, 0, 0, new double[121]);
+        MonteCarloProjection.Result result = projection.run(20000, 7);
+
+        assertArrayEquals(new int[] {1, 2, 3, 5, 10}, result.years, "Checkpoint years are incorrect");
+        double[] lastYear = result.bands[result.years.length - 1];
+        for (int p = 1; p < lastYear.length; p++) {
+            assertTrue(lastYear[p - 1] <= lastYear[p], "Percentile bands are not ordered");
+        }
+        // Median of a lognormal is exp(mean log return * years)
+        double expectedMedian = 100000 * Math.exp(10 * (Math.log1p(MonteCarloProjection.STOCK_RETURN)
+                - MonteCarloProjection.STOCK_VOLATILITY * MonteCarloProjection.STOCK_VOLATILITY / 2));
+        assertEquals(expectedMedian, lastYear[2], expectedMedian * 0.02, "Median is off the lognormal median");
+    }
+
+    @Test
+    void testDebtFollowsLoanSchedule() {
+        ColumnarAssetManager<FinancialAsset> assets = new ColumnarAssetManager<>(FinancialAsset.class);
+        ColumnarAssetManager<Loan> loans = new ColumnarAssetManager<>(Loan.class);
+        loans.addAsset(new Loan("Car Loan", 12000, new Date(), 0, 12, 0));
+
+        MonteCarloProjection.Result result = MonteCarloProjection.of(assets, loans, new LoanAnalytics(), 2).run(100, 1);
+        assertEquals(-12000, result.startingNetWorth, 0.001, "Starting net worth is incorrect");
+        assertEquals(0, result.bands[0][2], 0.001, "Loan should be paid off after a year");
+    }
+}
@@ -0,0 +1,69 @@
+import java.io.IOException;
+
+// Print layout: fixed-size pages with a title and page number at the top,
+// long lines wrapped, and a form feed between pages
+class PaginatedReportSink extends LineReportSink {
+    static final int LINES_PER_PAGE = 60;
+    static final int WIDTH = 100;
+    // Title, rule and blank line at the top of each page
+    static final int HEADER_LINES = 3;
+
+    private final String title;
+    private int page;
+    // Body lines written on the current page
+    private int linesOnPage = LINES_PER_PAGE;
+
+    PaginatedReportSink(Appendable out, String title) {
+        super(out);
+        this.title = title;
+    }
+
+    public int getPageCount() {
+        return page;
+    }
+
+    @Override
+    protected void line(CharSequence text) throws IOException {
+        int length = text.length();
+        if (length == 0) {
+            bodyLine(text, 0, 0);
+            return;
+        }
+        for (int start = 0; start < length; start += WIDTH) {
+            bodyLine(text, start, Math.min(length, start + WIDTH));
+        }
+    }
+
+    @Override
+    protected void end() throws IOException {
+        if (page == 0) {
+            startPage();
+        }
+    }
+
+    private void bodyLine(CharSequence text, int start, int end) throws IOException {
+        if (linesOnPage == LINES_PER_PAGE) {
+            startPage();
+        }
+        out.append(text, start, end).append('\n');
+        linesOnPage++;
+    }
+
+    private void startPage() throws IOException {
+        if (page > 0) {
+            out.append('\f');
+        }
+        page++;
+        String number = "Page " + page;
+        out.append(title);
+        for (int i = title.length() + number.length(); i < WIDTH; i++) {
+            out.append(' ');
+        }
+        out.append(number).append('\n');
+        for (int i = 0; i < WIDTH; i++) {
+            out.append('-');
+        }
+        out.append("\n\n");
+        linesOnPage = 0;
+    }
+}
@@ -0,0 +1,16 @@
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Spans building a content panel on first visit, or one coalesced refresh
+// of the views after model changes
+@Name("financialmanager.PanelRebuild")
+@Label("Panel Rebuild")
+@Category({"Financial Manager", "UI"})
+class PanelRebuildEvent extends jdk.jfr.Event {
+    @Label("Panel")
+    String panel;
+
+    @Label("Cause")
+    String cause;
+}
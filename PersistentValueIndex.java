@@ -0,0 +1,150 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+// Immutable counterpart of ValueIndex: a treap over (value in cents,
+// insertion sequence) whose add and remove copy only the path they touch,
+// O(log n) nodes, and share the rest with the old index. Old versions stay
+// valid, so a snapshot can keep the index as it was and still answer top-N
+// in O(log n) plus the number of results.
+//
+// A node's priority is a hash of its sequence number rather than a random
+// draw, so the index needs no mutable state and an entry put back under
+// the same key lands where it was.
+final class PersistentValueIndex<T> {
+    private static final PersistentValueIndex<?> EMPTY = new PersistentValueIndex<>(null, 0);
+
+    private final Node<T> root;
+    private final int size;
+
+    private static final class Node<T> {
+        final long value;
+        final long seq;
+        final T item;
+        final int priority;
+        final Node<T> left;
+        final Node<T> right;
+
+        Node(long value, long seq, T item, int priority, Node<T> left, Node<T> right) {
+            this.value = value;
+            this.seq = seq;
+            this.item = item;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+        }
+
+        Node<T> withLeft(Node<T> left) {
+            return new Node<>(value, seq, item, priority, left, right);
+        }
+
+        Node<T> withRight(Node<T> right) {
+            return new Node<>(value, seq, item, priority, left, right);
+        }
+    }
+
+    private PersistentValueIndex(Node<T> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> PersistentValueIndex<T> empty() {
+        return (PersistentValueIndex<T>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // The key must not be present already
+    public PersistentValueIndex<T> add(long value, long seq, T item) {
+        return new PersistentValueIndex<>(insert(root, value, seq, item, priorityOf(seq)), size + 1);
+    }
+
+    // Unchanged when the key is absent
+    public PersistentValueIndex<T> remove(long value, long seq) {
+        Node<T> removed = delete(root, value, seq);
+        return removed == root ? this : new PersistentValueIndex<>(removed, size - 1);
+    }
+
+    // Largest values first; equal values newest first, as ValueIndex.top
+    public List<T> top(int n) {
+        List<T> result = new ArrayList<>(Math.max(0, Math.min(n, size)));
+        ArrayDeque<Node<T>> stack = new ArrayDeque<>();
+        Node<T> node = root;
+        while ((node != null || !stack.isEmpty()) && result.size() < n) {
+            while (node != null) {
+                stack.push(node);
+                node = node.right;
+            }
+            node = stack.pop();
+            result.add(node.item);
+            node = node.left;
+        }
+        return result;
+    }
+
+    private static int compare(Node<?> node, long value, long seq) {
+        int c = Long.compare(node.value, value);
+        return c != 0 ? c : Long.compare(node.seq, seq);
+    }
+
+    // Ordinary BST insert, then rotations on the way back up restore the
+    // heap order; each rotation builds new nodes instead of relinking
+    private static <T> Node<T> insert(Node<T> node, long value, long seq, T item, int priority) {
+        if (node == null) {
+            return new Node<>(value, seq, item, priority, null, null);
+        }
+        if (compare(node, value, seq) > 0) {
+            Node<T> left = insert(node.left, value, seq, item, priority);
+            if (left.priority > node.priority) {
+                return left.withRight(node.withLeft(left.right));
+            }
+            return node.withLeft(left);
+        }
+        Node<T> right = insert(node.right, value, seq, item, priority);
+        if (right.priority > node.priority) {
+            return right.withLeft(node.withRight(right.left));
+        }
+        return node.withRight(right);
+    }
+
+    // The same node back when the key is absent, so nothing is copied
+    private static <T> Node<T> delete(Node<T> node, long value, long seq) {
+        if (node == null) {
+            return null;
+        }
+        int c = compare(node, value, seq);
+        if (c == 0) {
+            return merge(node.left, node.right);
+        }
+        if (c > 0) {
+            Node<T> left = delete(node.left, value, seq);
+            return left == node.left ? node : node.withLeft(left);
+        }
+        Node<T> right = delete(node.right, value, seq);
+        return right == node.right ? node : node.withRight(right);
+    }
+
+    // Every key in left is below every key in right
+    private static <T> Node<T> merge(Node<T> left, Node<T> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            return left.withRight(merge(left.right, right));
+        }
+        return right.withLeft(merge(left, right.left));
+    }
+
+    private static int priorityOf(long seq) {
+        long h = seq * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
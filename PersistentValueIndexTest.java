@@ -0,0 +1,45 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+class PersistentValueIndexTest {
+    @Test
+    void testTopMatchesSortedKeys() {
+        // Keys as value * 2^20 + seq, so a TreeMap orders them the same way
+        SplittableRandom random = new SplittableRandom(11);
+        PersistentValueIndex<Long> index = PersistentValueIndex.empty();
+        TreeMap<Long, Long> expected = new TreeMap<>();
+        List<Long> keys = new ArrayList<>();
+        for (long seq = 0; seq < 20_000; seq++) {
+            long value = random.nextInt(500);
+            index = index.add(value, seq, seq);
+            expected.put((value << 20) + seq, seq);
+            keys.add((value << 20) + seq);
+            if (random.nextInt(3) == 0) {
+                // Swap-remove a random key
+                int at = random.nextInt(keys.size());
+                long key = keys.get(at);
+                keys.set(at, keys.get(keys.size() - 1));
+                keys.remove(keys.size() - 1);
+                index = index.remove(key >>> 20, key & ((1 << 20) - 1));
+                expected.remove(key);
+            }
+        }
+        assertEquals(expected.size(), index.size(), "Size is incorrect");
+        assertEquals(new ArrayList<>(expected.descendingMap().values()).subList(0, 100), index.top(100),
+                "Top entries are out of order");
+    }
+
+    @Test
+    void testOldVersionsAreUnchanged() {
+        PersistentValueIndex<String> before = PersistentValueIndex.<String>empty().add(100, 0, "a").add(300, 1, "b");
+        PersistentValueIndex<String> after = before.remove(300, 1).add(200, 2, "c");
+
+        assertEquals(List.of("b", "a"), before.top(5), "Old version changed");
+        assertEquals(List.of("c", "a"), after.top(5), "New version is incorrect");
+        assertSame(after, after.remove(999, 9), "Removing an absent key copied the index");
+    }
+}
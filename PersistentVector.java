@@ -0,0 +1,208 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Immutable list with structural sharing, after Clojure's vector: a 32-way
+// trie of leaf arrays plus a tail array for the last partial leaf. Every
+// "change" returns a new vector that copies only the path to the touched
+// leaf, at most log32(n) + 1 arrays, and shares everything else with the
+// old one. Old versions stay valid and unchanged, so keeping one costs only
+// what has changed since.
+//
+// get and set are O(log32 n), which is at most four levels for a million
+// entries; append and pop are amortized O(1) because they work on the tail.
+final class PersistentVector<T> implements Iterable<T> {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final Object[] EMPTY_NODE = new Object[WIDTH];
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(0, BITS, EMPTY_NODE, new Object[0]);
+
+    private final int size;
+    private final int shift;
+    private final Object[] root;
+    private final Object[] tail;
+
+    private PersistentVector(int size, int shift, Object[] root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> PersistentVector<T> empty() {
+        return (PersistentVector<T>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) leafFor(index)[index & MASK];
+    }
+
+    public PersistentVector<T> set(int index, T value) {
+        checkIndex(index);
+        if (index >= tailOffset()) {
+            Object[] newTail = tail.clone();
+            newTail[index & MASK] = value;
+            return new PersistentVector<>(size, shift, root, newTail);
+        }
+        return new PersistentVector<>(size, shift, assoc(shift, root, index, value), tail);
+    }
+
+    public PersistentVector<T> append(T value) {
+        // Room in the tail
+        if (size - tailOffset() < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = value;
+            return new PersistentVector<>(size + 1, shift, root, newTail);
+        }
+        // Full tail goes into the trie; grow a level when the root is full
+        Object[] newRoot;
+        int newShift = shift;
+        if ((size >>> BITS) > (1 << shift)) {
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(shift, root, tail);
+        }
+        return new PersistentVector<>(size + 1, newShift, newRoot, new Object[]{value});
+    }
+
+    // Drops the last entry
+    public PersistentVector<T> pop() {
+        if (size == 0) {
+            throw new IllegalStateException("Cannot pop an empty vector");
+        }
+        if (size == 1) {
+            return empty();
+        }
+        if (size - tailOffset() > 1) {
+            return new PersistentVector<>(size - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+        }
+        // The tail empties, so the last leaf of the trie becomes the tail
+        Object[] newTail = leafFor(size - 2);
+        Object[] newRoot = popTail(shift, root);
+        int newShift = shift;
+        if (newRoot == null) {
+            newRoot = EMPTY_NODE;
+        }
+        if (shift > BITS && newRoot[1] == null) {
+            newRoot = (Object[]) newRoot[0];
+            newShift -= BITS;
+        }
+        return new PersistentVector<>(size - 1, newShift, newRoot, newTail);
+    }
+
+    // Walks leaf by leaf, so a full pass is O(n) rather than O(n log n)
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int index;
+            private Object[] leaf = size == 0 ? null : leafFor(0);
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                if (index > 0 && (index & MASK) == 0) {
+                    leaf = leafFor(index);
+                }
+                return (T) leaf[index++ & MASK];
+            }
+        };
+    }
+
+    private int tailOffset() {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private Object[] leafFor(int index) {
+        checkIndex(index);
+        if (index >= tailOffset()) {
+            return tail;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    private static Object[] assoc(int level, Object[] node, int index, Object value) {
+        Object[] copy = node.clone();
+        if (level == 0) {
+            copy[index & MASK] = value;
+        } else {
+            int child = (index >>> level) & MASK;
+            copy[child] = assoc(level - BITS, (Object[]) node[child], index, value);
+        }
+        return copy;
+    }
+
+    private Object[] pushTail(int level, Object[] parent, Object[] leaf) {
+        int child = ((size - 1) >>> level) & MASK;
+        Object[] copy = parent.clone();
+        if (level == BITS) {
+            copy[child] = leaf;
+        } else {
+            Object[] existing = (Object[]) parent[child];
+            copy[child] = existing != null
+                    ? pushTail(level - BITS, existing, leaf)
+                    : newPath(level - BITS, leaf);
+        }
+        return copy;
+    }
+
+    private static Object[] newPath(int level, Object[] leaf) {
+        if (level == 0) {
+            return leaf;
+        }
+        Object[] node = new Object[WIDTH];
+        node[0] = newPath(level - BITS, leaf);
+        return node;
+    }
+
+    // Null when the subtree ends up empty
+    private Object[] popTail(int level, Object[] node) {
+        int child = ((size - 2) >>> level) & MASK;
+        if (level > BITS) {
+            Object[] newChild = popTail(level - BITS, (Object[]) node[child]);
+            if (newChild == null && child == 0) {
+                return null;
+            }
+            Object[] copy = node.clone();
+            copy[child] = newChild;
+            return copy;
+        }
+        if (child == 0) {
+            return null;
+        }
+        Object[] copy = node.clone();
+        copy[child] = null;
+        return copy;
+    }
+}
@@ -0,0 +1,60 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+class PersistentVectorTest {
+    @Test
+    void testMatchesArrayListAcrossLevels() {
+        // Grows past one leaf, one full level and into a third, then shrinks back
+        SplittableRandom random = new SplittableRandom(7);
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 40_000; i++) {
+            vector = vector.append(i);
+            expected.add(i);
+            if (random.nextInt(4) == 0) {
+                int index = random.nextInt(expected.size());
+                vector = vector.set(index, -i);
+                expected.set(index, -i);
+            }
+        }
+        assertContents(expected, vector);
+        while (vector.size() > 5) {
+            vector = vector.pop();
+            expected.remove(expected.size() - 1);
+            if (vector.size() % 997 == 0) {
+                assertContents(expected, vector);
+            }
+        }
+        assertContents(expected, vector);
+    }
+
+    @Test
+    void testOldVersionsAreUnchanged() {
+        PersistentVector<String> built = PersistentVector.empty();
+        for (int i = 0; i < 1000; i++) {
+            built = built.append("v" + i);
+        }
+        PersistentVector<String> vector = built;
+        PersistentVector<String> edited = vector.set(500, "changed").pop().append("new");
+
+        assertEquals("v500", vector.get(500), "Original changed by set");
+        assertEquals("v999", vector.get(999), "Original changed by pop");
+        assertEquals("changed", edited.get(500), "Edit not applied");
+        assertEquals("new", edited.get(999), "Append after pop not applied");
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.get(1000), "Read past the end was allowed");
+    }
+
+    private static void assertContents(List<Integer> expected, PersistentVector<Integer> vector) {
+        assertEquals(expected.size(), vector.size(), "Size is incorrect");
+        int i = 0;
+        for (Integer value : vector) {
+            assertEquals(expected.get(i), value, "Iterator differs at " + i);
+            assertEquals(expected.get(i), vector.get(i), "get differs at " + i);
+            i++;
+        }
+        assertEquals(expected.size(), i, "Iterator stopped early");
+    }
+}
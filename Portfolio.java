@@ -0,0 +1,22 @@
+// One client's holdings: the asset and liability stores the reports run on
+class Portfolio {
+    private final ColumnarAssetManager<FinancialAsset> assets;
+    private final ColumnarAssetManager<Loan> liabilities;
+
+    public Portfolio() {
+        this(new ColumnarAssetManager<>(FinancialAsset.class), new ColumnarAssetManager<>(Loan.class));
+    }
+
+    public Portfolio(ColumnarAssetManager<FinancialAsset> assets, ColumnarAssetManager<Loan> liabilities) {
+        this.assets = assets;
+        this.liabilities = liabilities;
+    }
+
+    public ColumnarAssetManager<FinancialAsset> getAssets() {
+        return assets;
+    }
+
+    public ColumnarAssetManager<Loan> getLiabilities() {
+        return liabilities;
+    }
+}
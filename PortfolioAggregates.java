@@ -0,0 +1,86 @@
+// Running portfolio totals kept up to date from change notifications, so
+// dashboard and report reads are O(1) whatever the portfolio size. Totals
+// are kept in cents, so they never drift however many updates are applied.
+class PortfolioAggregates implements AssetChangeListener {
+    private final long[] totalsByType = new long[ColumnarAssetManager.TYPE_COUNT];
+    private final int[] countsByType = new int[ColumnarAssetManager.TYPE_COUNT];
+    private long totalValueCents;
+    private long totalMonthlyPaymentCents;
+    private long annualBondIncomeCents;
+
+    // An independent copy, e.g. to freeze the totals of a version
+    public PortfolioAggregates copy() {
+        PortfolioAggregates copy = new PortfolioAggregates();
+        System.arraycopy(totalsByType, 0, copy.totalsByType, 0, totalsByType.length);
+        System.arraycopy(countsByType, 0, copy.countsByType, 0, countsByType.length);
+        copy.totalValueCents = totalValueCents;
+        copy.totalMonthlyPaymentCents = totalMonthlyPaymentCents;
+        copy.annualBondIncomeCents = annualBondIncomeCents;
+        return copy;
+    }
+
+    public void add(FinancialAsset asset) {
+        apply(asset, 1);
+    }
+
+    public void remove(FinancialAsset asset) {
+        apply(asset, -1);
+    }
+
+    @Override
+    public void beforeChange(FinancialAsset asset) {
+        remove(asset);
+    }
+
+    @Override
+    public void afterChange(FinancialAsset asset) {
+        add(asset);
+    }
+
+    public double getTotalValue() {
+        return Money.toDouble(totalValueCents);
+    }
+
+    public long getTotalValueCents() {
+        return totalValueCents;
+    }
+
+    public double getTotalValue(byte type) {
+        return Money.toDouble(totalsByType[type]);
+    }
+
+    public long getTotalValueCents(byte type) {
+        return totalsByType[type];
+    }
+
+    public int getCount(byte type) {
+        return countsByType[type];
+    }
+
+    public double getTotalMonthlyPayments() {
+        return Money.toDouble(totalMonthlyPaymentCents);
+    }
+
+    public long getTotalMonthlyPaymentCents() {
+        return totalMonthlyPaymentCents;
+    }
+
+    public double getAnnualBondIncome() {
+        return Money.toDouble(annualBondIncomeCents);
+    }
+
+    private void apply(FinancialAsset asset, int sign) {
+        byte type = ColumnarAssetManager.typeCode(asset);
+        long value = asset.getValueCents();
+
+        totalValueCents += sign * value;
+        totalsByType[type] += sign * value;
+        countsByType[type] += sign;
+
+        if (asset instanceof Loan) {
+            totalMonthlyPaymentCents += sign * ((Loan) asset).getMonthlyPaymentCents();
+        } else if (asset instanceof Bond) {
+            annualBondIncomeCents += sign * Money.applyRate(value, ((Bond) asset).getInterestRate(), 1);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Carries model changes to the views. Store events may arrive on any thread
+// and in any volume; they are folded into dirty row ranges and delivered on
+// the EDT at most once per frame, so a bulk import costs one repaint per
+// frame rather than one per row.
+//
+// A table's row count is taken from its model, not the store, so a model
+// that shows a pinned version of the store (pinned by a batch-start hook)
+// is told about exactly the rows that version added.
+class PortfolioEventBus {
+    static final int FRAME_MILLIS = 16;
+
+    // One sample per delivered frame: table row events plus the summary refresh
+    private static final LatencyHistogram REFRESH_LATENCY = Metrics.histogram("ui.refresh");
+
+    private final List<TableWatch> tables = new CopyOnWriteArrayList<>();
+    private final List<Runnable> batchStarts = new CopyOnWriteArrayList<>();
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Timer flushTimer;
+
+    public PortfolioEventBus() {
+        flushTimer = new Timer(FRAME_MILLIS, e -> flush());
+        flushTimer.setRepeats(false);
+    }
+
+    // Forwards the store's row changes to the table model, coalesced per frame
+    public void watch(ColumnarAssetManager<?> store, AbstractTableModel model) {
+        TableWatch watch = new TableWatch(model);
+        tables.add(watch);
+        store.addStoreListener(watch);
+    }
+
+    // Runs on the EDT at the start of each batch, before any view hears of
+    // it, e.g. to pin the version of the stores the views read
+    public void addBatchStartHook(Runnable hook) {
+        batchStarts.add(hook);
+    }
+
+    // Listeners run on the EDT after each coalesced batch of changes
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(flushTimer::restart);
+        }
+    }
+
+    private void flush() {
+        PanelRebuildEvent event = new PanelRebuildEvent();
+        event.begin();
+        long start = System.nanoTime();
+        flushScheduled.set(false);
+        for (Runnable hook : batchStarts) {
+            hook.run();
+        }
+        for (TableWatch watch : tables) {
+            watch.deliver();
+        }
+
+        ChangeEvent change = new ChangeEvent(this);
+        for (ChangeListener listener : listeners) {
+            listener.stateChanged(change);
+        }
+        REFRESH_LATENCY.recordSince(start);
+        event.panel = "all views";
+        event.cause = "model change";
+        event.commit();
+    }
+
+    private class TableWatch implements AssetStoreListener {
+        private final AbstractTableModel model;
+        // Row count the table last saw; only touched on the EDT
+        private int deliveredSize;
+        private int firstUpdated = Integer.MAX_VALUE;
+        private int lastUpdated = -1;
+        private boolean rowsRemoved;
+
+        TableWatch(AbstractTableModel model) {
+            this.model = model;
+            this.deliveredSize = model.getRowCount();
+        }
+
+        @Override
+        public void rowInserted(int row) {
+            scheduleFlush();
+        }
+
+        @Override
+        public synchronized void rowUpdated(int row) {
+            firstUpdated = Math.min(firstUpdated, row);
+            lastUpdated = Math.max(lastUpdated, row);
+            scheduleFlush();
+        }
+
+        @Override
+        public synchronized void rowRemoved(int row, int lastRow) {
+            rowsRemoved = true;
+            scheduleFlush();
+        }
+
+        void deliver() {
+            int first;
+            int last;
+            boolean removed;
+            synchronized (this) {
+                first = firstUpdated;
+                last = lastUpdated;
+                removed = rowsRemoved;
+                firstUpdated = Integer.MAX_VALUE;
+                lastUpdated = -1;
+                rowsRemoved = false;
+            }
+
+            int size = model.getRowCount();
+            if (removed) {
+                // Removal reorders rows, so let the table re-read everything visible
+                model.fireTableDataChanged();
+            } else {
+                if (size > deliveredSize) {
+                    model.fireTableRowsInserted(deliveredSize, size - 1);
+                }
+                last = Math.min(last, deliveredSize - 1);
+                if (first <= last) {
+                    model.fireTableRowsUpdated(first, last);
+                }
+            }
+            deliveredSize = size;
+        }
+    }
+}
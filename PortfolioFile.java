@@ -0,0 +1,651 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+// Portfolio files are CSV, one holding per line, dates as yyyy-MM-dd:
+//
+//   Stock,name,value,purchaseDate,ticker,shares,pricePerShare
+//   Bond,name,value,purchaseDate,interestRate,maturityDate
+//   Loan,name,balance,startDate,interestRate,termMonths,paymentsMade
+//
+// Fields containing commas or quotes are quoted CSV-style; quoted newlines
+// are not supported. Blank lines and lines starting with '#' are ignored.
+//
+// Files stream through a FileChannel in fixed-size chunks cut at line
+// boundaries. Chunks are parsed in parallel straight from the bytes, so
+// numbers and dates never become Strings, and are bulk-inserted in file
+// order. A fixed set of chunk buffers is recycled, so the import itself
+// needs constant heap whatever the file size.
+final class PortfolioFile {
+    static final int CHUNK_SIZE = 4 << 20;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final int MAX_FIELDS = 7;
+    // Exact powers of ten; mantissa / 10^k is correctly rounded for these
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private PortfolioFile() {
+    }
+
+    public static Portfolio read(Path file) throws IOException {
+        Portfolio portfolio = new Portfolio();
+        importInto(file, portfolio.getAssets(), portfolio.getLiabilities(), ForkJoinPool.commonPool(),
+                ForkJoinPool.commonPool().getParallelism());
+        return portfolio;
+    }
+
+    // Streams the file into the stores and returns the number of holdings added
+    public static long importInto(Path file, AssetManager assets, AssetManager liabilities,
+                                  Executor executor, int parallelism) throws IOException {
+        return importInto(file, assets, liabilities, executor, parallelism, CHUNK_SIZE);
+    }
+
+    static long importInto(Path file, AssetManager assets, AssetManager liabilities,
+                           Executor executor, int parallelism, int chunkSize) throws IOException {
+        return stream(file, (chunkAssets, chunkLoans) -> {
+            if (!chunkAssets.isEmpty()) {
+                assets.addAssets(chunkAssets);
+            }
+            if (!chunkLoans.isEmpty()) {
+                liabilities.addAssets(chunkLoans);
+            }
+        }, executor, parallelism, chunkSize);
+    }
+
+    // Hands each parsed chunk to the sink instead of a store, e.g. to add it
+    // elsewhere; heap stays bounded as long as the sink does not keep chunks
+    public static long stream(Path file, ChunkSink sink, Executor executor, int parallelism) throws IOException {
+        return stream(file, sink, executor, parallelism, CHUNK_SIZE);
+    }
+
+    static long stream(Path file, ChunkSink sink, Executor executor, int parallelism,
+                       int chunkSize) throws IOException {
+        int maxInFlight = Math.max(1, parallelism) * 2;
+        ArrayDeque<CompletableFuture<ParsedChunk>> pending = new ArrayDeque<>();
+        long imported = 0;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // One more buffer than chunks in flight, for the chunk being read
+            ChunkBuffers freeBuffers = new ChunkBuffers(maxInFlight + 1,
+                    (int) Math.min(chunkSize, Math.max(channel.size() + 1, 64)));
+            byte[] buffer = freeBuffers.take();
+            int filled = 0;
+            long chunkOffset = 0;
+            boolean eof = false;
+            while (!eof) {
+                ByteBuffer target = ByteBuffer.wrap(buffer, filled, buffer.length - filled);
+                while (target.hasRemaining()) {
+                    if (channel.read(target) < 0) {
+                        eof = true;
+                        break;
+                    }
+                }
+                filled = target.position();
+
+                // Cut after the last newline; the partial line carries into the next chunk
+                int cut = filled;
+                if (!eof) {
+                    cut = lastNewline(buffer, filled) + 1;
+                    if (cut == 0) {
+                        throw new IOException("Line longer than " + buffer.length + " bytes at byte offset " + chunkOffset);
+                    }
+                }
+                byte[] next = eof ? null : freeBuffers.take();
+                if (next != null) {
+                    System.arraycopy(buffer, cut, next, 0, filled - cut);
+                }
+
+                byte[] chunk = buffer;
+                int length = cut;
+                long offset = chunkOffset;
+                pending.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return new ChunkParser(chunk, length, offset).parse();
+                    } finally {
+                        freeBuffers.release(chunk);
+                    }
+                }, executor));
+
+                if (pending.size() >= maxInFlight) {
+                    imported += insert(pending.poll(), sink);
+                }
+                chunkOffset += cut;
+                filled -= cut;
+                buffer = next;
+            }
+            while (!pending.isEmpty()) {
+                imported += insert(pending.poll(), sink);
+            }
+        } finally {
+            for (CompletableFuture<ParsedChunk> future : pending) {
+                future.cancel(false);
+            }
+        }
+        return imported;
+    }
+
+    public static void write(Path file, Portfolio portfolio) throws IOException {
+        export(file, portfolio.getAssets(), portfolio.getLiabilities());
+    }
+
+    // Writes every holding through a fixed buffer; the stores are locked while they are read
+    public static long export(Path file, ColumnarAssetManager<FinancialAsset> assets,
+                              ColumnarAssetManager<Loan> liabilities) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CsvOut out = new CsvOut(channel);
+            long written = 0;
+            synchronized (assets) {
+                assets.awaitSettled();
+                for (FinancialAsset asset : assets) {
+                    out.holding(asset);
+                    written++;
+                }
+            }
+            synchronized (liabilities) {
+                liabilities.awaitSettled();
+                for (Loan loan : liabilities) {
+                    out.holding(loan);
+                    written++;
+                }
+            }
+            out.flush();
+            return written;
+        }
+    }
+
+    private static long insert(CompletableFuture<ParsedChunk> future, ChunkSink sink) throws IOException {
+        ParsedChunk chunk;
+        try {
+            chunk = future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw new IOException(cause.getMessage(), cause);
+        }
+        sink.add(chunk.assets, chunk.loans);
+        return chunk.assets.size() + chunk.loans.size();
+    }
+
+    // Takes each parsed chunk's holdings, in file order, on the calling
+    // thread; parsing of later chunks carries on meanwhile
+    interface ChunkSink {
+        void add(List<FinancialAsset> assets, List<Loan> loans) throws IOException;
+    }
+
+    // A fixed number of chunk buffers, allocated on first use so small files stay cheap
+    private static final class ChunkBuffers {
+        private final BlockingQueue<byte[]> free;
+        private final int limit;
+        private final int size;
+        private int allocated;
+
+        ChunkBuffers(int limit, int size) {
+            this.free = new ArrayBlockingQueue<>(limit);
+            this.limit = limit;
+            this.size = size;
+        }
+
+        // Called only by the reading thread
+        byte[] take() throws IOException {
+            byte[] buffer = free.poll();
+            if (buffer != null) {
+                return buffer;
+            }
+            if (allocated < limit) {
+                allocated++;
+                return new byte[size];
+            }
+            try {
+                return free.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Import interrupted", e);
+            }
+        }
+
+        void release(byte[] buffer) {
+            free.add(buffer);
+        }
+    }
+
+    private static int lastNewline(byte[] buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static final class ParsedChunk {
+        final List<FinancialAsset> assets = new ArrayList<>();
+        final List<Loan> loans = new ArrayList<>();
+    }
+
+    // Parses one chunk of whole lines straight from the bytes
+    private static final class ChunkParser {
+        private final byte[] buf;
+        private final int length;
+        private final long baseOffset;
+        private final int[] starts = new int[MAX_FIELDS];
+        private final int[] ends = new int[MAX_FIELDS];
+        private final boolean[] quoted = new boolean[MAX_FIELDS];
+        private final ZoneId zone = ZoneId.systemDefault();
+        private int fieldCount;
+        private int lineStart;
+        // Holdings tend to share dates; remember the last conversion
+        private int lastEpochDay = Integer.MIN_VALUE;
+        private long lastMillis;
+
+        ChunkParser(byte[] buf, int length, long baseOffset) {
+            this.buf = buf;
+            this.length = length;
+            this.baseOffset = baseOffset;
+        }
+
+        ParsedChunk parse() {
+            ParsedChunk result = new ParsedChunk();
+            int pos = 0;
+            while (pos < length) {
+                lineStart = pos;
+                int eol = pos;
+                while (eol < length && buf[eol] != '\n') {
+                    eol++;
+                }
+                int end = eol > pos && buf[eol - 1] == '\r' ? eol - 1 : eol;
+                if (end > pos && buf[pos] != '#') {
+                    splitFields(pos, end);
+                    addHolding(result);
+                }
+                pos = eol + 1;
+            }
+            return result;
+        }
+
+        private void splitFields(int from, int to) {
+            fieldCount = 0;
+            int pos = from;
+            while (true) {
+                if (fieldCount == MAX_FIELDS) {
+                    throw error("More than " + MAX_FIELDS + " fields");
+                }
+                boolean isQuoted = pos < to && buf[pos] == '"';
+                int start = isQuoted ? pos + 1 : pos;
+                int end;
+                if (isQuoted) {
+                    end = start;
+                    while (end < to && !(buf[end] == '"' && (end + 1 >= to || buf[end + 1] != '"'))) {
+                        end += buf[end] == '"' ? 2 : 1;
+                    }
+                    if (end >= to) {
+                        throw error("Unterminated quote");
+                    }
+                    pos = end + 1;
+                } else {
+                    end = start;
+                    while (end < to && buf[end] != ',') {
+                        end++;
+                    }
+                    pos = end;
+                }
+                starts[fieldCount] = start;
+                ends[fieldCount] = end;
+                quoted[fieldCount] = isQuoted;
+                fieldCount++;
+
+                if (pos >= to) {
+                    return;
+                }
+                if (buf[pos] != ',') {
+                    throw error("Expected a comma after a quoted field");
+                }
+                pos++;
+            }
+        }
+
+        private void addHolding(ParsedChunk result) {
+            if (fieldCount < 4) {
+                throw error("Expected at least 4 fields but found " + fieldCount);
+            }
+            String name = text(1);
+            double value = Money.toDouble(cents(2));
+            Date purchased = date(3);
+            if (fieldIs(0, "Stock")) {
+                expect(7);
+                result.assets.add(new Stock(name, value, purchased, text(4), integer(5), Money.toDouble(cents(6))));
+            } else if (fieldIs(0, "Bond")) {
+                expect(6);
+                result.assets.add(new Bond(name, value, purchased, decimal(4), date(5)));
+            } else if (fieldIs(0, "Loan")) {
+                expect(7);
+                Loan loan = new Loan(name, value, purchased, decimal(4), integer(5), integer(6));
+                // Worked out here, in parallel, so the stores' totals find it cached
+                loan.getMonthlyPaymentCents();
+                result.loans.add(loan);
+            } else {
+                throw error("Unknown holding type: " + text(0));
+            }
+        }
+
+        private void expect(int count) {
+            if (fieldCount != count) {
+                throw error("Expected " + count + " fields for " + text(0) + " but found " + fieldCount);
+            }
+        }
+
+        private boolean fieldIs(int field, String ascii) {
+            int start = starts[field];
+            if (ends[field] - start != ascii.length()) {
+                return false;
+            }
+            for (int i = 0; i < ascii.length(); i++) {
+                if (buf[start + i] != ascii.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String text(int field) {
+            String value = new String(buf, starts[field], ends[field] - starts[field], StandardCharsets.UTF_8);
+            return quoted[field] ? value.replace("\"\"", "\"") : value;
+        }
+
+        // Decimal amount in cents, rounded half-up past the second fraction digit
+        private long cents(int field) {
+            int pos = starts[field];
+            int end = ends[field];
+            boolean negative = pos < end && buf[pos] == '-';
+            if (negative) {
+                pos++;
+            }
+            long cents = 0;
+            int fractionDigits = -1;
+            boolean roundUp = false;
+            boolean digits = false;
+            for (; pos < end; pos++) {
+                byte b = buf[pos];
+                if (b == '.' && fractionDigits < 0) {
+                    fractionDigits = 0;
+                } else if (b >= '0' && b <= '9') {
+                    digits = true;
+                    if (fractionDigits < 2) {
+                        cents = Math.addExact(Math.multiplyExact(cents, 10), b - '0');
+                        if (fractionDigits >= 0) {
+                            fractionDigits++;
+                        }
+                    } else if (fractionDigits == 2) {
+                        roundUp = b >= '5';
+                        fractionDigits++;
+                    }
+                } else {
+                    throw error("Invalid amount: " + text(field));
+                }
+            }
+            if (!digits) {
+                throw error("Invalid amount: " + text(field));
+            }
+            for (int i = Math.max(fractionDigits, 0); i < 2; i++) {
+                cents *= 10;
+            }
+            if (roundUp) {
+                cents++;
+            }
+            return negative ? -cents : cents;
+        }
+
+        private int integer(int field) {
+            int pos = starts[field];
+            int end = ends[field];
+            if (pos == end) {
+                throw error("Invalid number: " + text(field));
+            }
+            boolean negative = buf[pos] == '-';
+            if (negative) {
+                pos++;
+            }
+            long value = 0;
+            for (; pos < end; pos++) {
+                byte b = buf[pos];
+                if (b < '0' || b > '9' || value > Integer.MAX_VALUE) {
+                    throw error("Invalid number: " + text(field));
+                }
+                value = value * 10 + (b - '0');
+            }
+            return (int) (negative ? -value : value);
+        }
+
+        // Plain decimals take the exact mantissa / 10^k path; anything else falls back
+        private double decimal(int field) {
+            int pos = starts[field];
+            int end = ends[field];
+            boolean negative = pos < end && buf[pos] == '-';
+            if (negative) {
+                pos++;
+            }
+            long mantissa = 0;
+            int scale = -1;
+            int digits = 0;
+            for (; pos < end; pos++) {
+                byte b = buf[pos];
+                if (b == '.' && scale < 0) {
+                    scale = 0;
+                } else if (b >= '0' && b <= '9' && digits < 15) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                    if (scale >= 0) {
+                        scale++;
+                    }
+                } else {
+                    try {
+                        return Double.parseDouble(text(field));
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid number: " + text(field));
+                    }
+                }
+            }
+            if (digits == 0) {
+                throw error("Invalid number: " + text(field));
+            }
+            double value = mantissa / POW10[Math.max(scale, 0)];
+            return negative ? -value : value;
+        }
+
+        // yyyy-MM-dd at midnight in the default time zone
+        private Date date(int field) {
+            int pos = starts[field];
+            if (ends[field] - pos != 10 || buf[pos + 4] != '-' || buf[pos + 7] != '-') {
+                throw error("Invalid date: " + text(field));
+            }
+            int year = digits(pos, 4, field);
+            int month = digits(pos + 5, 2, field);
+            int day = digits(pos + 8, 2, field);
+            if (month < 1 || month > 12 || day < 1 || day > 31) {
+                throw error("Invalid date: " + text(field));
+            }
+
+            int epochDay = epochDay(year, month, day);
+            if (epochDay != lastEpochDay) {
+                lastMillis = LocalDate.ofEpochDay(epochDay).atStartOfDay(zone).toInstant().toEpochMilli();
+                lastEpochDay = epochDay;
+            }
+            return new Date(lastMillis);
+        }
+
+        private int digits(int pos, int count, int field) {
+            int value = 0;
+            for (int i = 0; i < count; i++) {
+                byte b = buf[pos + i];
+                if (b < '0' || b > '9') {
+                    throw error("Invalid date: " + text(field));
+                }
+                value = value * 10 + (b - '0');
+            }
+            return value;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at byte offset " + (baseOffset + lineStart));
+        }
+    }
+
+    // Days-from-civil on the proleptic Gregorian calendar
+    static int epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    // Encodes holdings into a fixed buffer that is drained to the channel when full
+    private static final class CsvOut {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        private final byte[] digits = new byte[20];
+
+        CsvOut(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void holding(FinancialAsset asset) throws IOException {
+            ascii(asset.getType());
+            comma();
+            text(asset.getName());
+            comma();
+            cents(asset.getValueCents());
+            comma();
+            date(asset.getPurchaseDate());
+            comma();
+            if (asset instanceof Stock) {
+                Stock stock = (Stock) asset;
+                text(stock.getTicker());
+                comma();
+                number(stock.getShares());
+                comma();
+                cents(stock.getPriceCents());
+            } else if (asset instanceof Bond) {
+                Bond bond = (Bond) asset;
+                ascii(Double.toString(bond.getInterestRate()));
+                comma();
+                date(bond.getMaturityDate());
+            } else if (asset instanceof Loan) {
+                Loan loan = (Loan) asset;
+                ascii(Double.toString(loan.getInterestRate()));
+                comma();
+                number(loan.getTerm());
+                comma();
+                number(loan.getPaymentsMade());
+            } else {
+                throw new IllegalArgumentException("Unsupported asset: " + asset.getClass().getName());
+            }
+            put((byte) '\n');
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void comma() throws IOException {
+            put((byte) ',');
+        }
+
+        private void put(byte b) throws IOException {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.put(b);
+        }
+
+        private void ascii(String text) throws IOException {
+            for (int i = 0; i < text.length(); i++) {
+                put((byte) text.charAt(i));
+            }
+        }
+
+        private void text(String text) throws IOException {
+            boolean needsQuotes = text.indexOf(',') >= 0 || text.indexOf('"') >= 0;
+            if (needsQuotes) {
+                put((byte) '"');
+                text = text.replace("\"", "\"\"");
+            }
+            boolean plainAscii = true;
+            for (int i = 0; i < text.length() && plainAscii; i++) {
+                plainAscii = text.charAt(i) < 0x80;
+            }
+            if (plainAscii) {
+                ascii(text);
+            } else {
+                for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+                    put(b);
+                }
+            }
+            if (needsQuotes) {
+                put((byte) '"');
+            }
+        }
+
+        private void number(long value) throws IOException {
+            if (value < 0) {
+                put((byte) '-');
+                value = -value;
+            }
+            int count = 0;
+            do {
+                digits[count++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            while (count > 0) {
+                put(digits[--count]);
+            }
+        }
+
+        private void cents(long cents) throws IOException {
+            if (cents < 0) {
+                put((byte) '-');
+                cents = -cents;
+            }
+            number(cents / 100);
+            put((byte) '.');
+            put((byte) ('0' + cents % 100 / 10));
+            put((byte) ('0' + cents % 10));
+        }
+
+        private void date(Date date) throws IOException {
+            LocalDate day = LocalDate.ofEpochDay(FastFormat.toEpochDay(date));
+            int year = day.getYear();
+            put((byte) ('0' + year / 1000 % 10));
+            put((byte) ('0' + year / 100 % 10));
+            put((byte) ('0' + year / 10 % 10));
+            put((byte) ('0' + year % 10));
+            put((byte) '-');
+            put((byte) ('0' + day.getMonthValue() / 10));
+            put((byte) ('0' + day.getMonthValue() % 10));
+            put((byte) '-');
+            put((byte) ('0' + day.getDayOfMonth() / 10));
+            put((byte) ('0' + day.getDayOfMonth() % 10));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+class PortfolioFileTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testParallelChunksKeepFileOrder() throws IOException {
+        Portfolio portfolio = new Portfolio();
+        for (int i = 0; i < 5000; i++) {
+            portfolio.getAssets().addAsset(new Stock("Stock " + i, 1000 + i, new Date(), "T" + i, 10, 100 + i / 100.0));
+            portfolio.getLiabilities().addAsset(new Loan("Loan " + i, 5000, new Date(), 4.25, 60, i % 60));
+        }
+        Path file = dir.resolve("positions.csv");
+        PortfolioFile.write(file, portfolio);
+
+        // Small chunks so the file is cut into dozens of pieces
+        Portfolio read = new Portfolio();
+        long count = PortfolioFile.importInto(file, read.getAssets(), read.getLiabilities(),
+                ForkJoinPool.commonPool(), 4, 4096);
+
+        assertEquals(10000, count, "Holding count is incorrect");
+        assertEquals(portfolio.getAssets().getAggregates().getTotalValueCents(),
+                read.getAssets().getAggregates().getTotalValueCents(), "Asset total is incorrect");
+        assertEquals("Stock 4321", read.getAssets().get(4321).getName(), "File order was not kept");
+        assertEquals(4.25, read.getLiabilities().get(17).getInterestRate(), 0, "Rate not parsed exactly");
+        assertEquals(49.99, ((Stock) read.getAssets().findByTicker("T4999").get(0)).getPricePerShare() - 100, 0.001,
+                "Price is incorrect");
+    }
+
+    @Test
+    void testStreamedImportIsOneUndoableStep() throws IOException {
+        Portfolio portfolio = new Portfolio();
+        for (int i = 0; i < 3000; i++) {
+            portfolio.getAssets().addAsset(new Bond("Bond " + i, 100, new Date(), 3.0, new Date()));
+            portfolio.getLiabilities().addAsset(new Loan("Loan " + i, 500, new Date(), 4.5, 60, 0));
+        }
+        Path file = dir.resolve("import.csv");
+        PortfolioFile.write(file, portfolio);
+
+        // Small chunks, each added in two pieces, as the window adds them
+        Portfolio read = new Portfolio();
+        PortfolioVersions versions = new PortfolioVersions(read.getAssets(), read.getLiabilities());
+        PortfolioVersions.PendingEdit importEdit = versions.beginEdit("Import");
+        long count = PortfolioFile.stream(file, (chunkAssets, chunkLoans) -> {
+            int half = chunkAssets.size() / 2;
+            importEdit.apply(() -> read.getAssets().addAssets(chunkAssets.subList(0, half)));
+            importEdit.apply(() -> read.getAssets().addAssets(chunkAssets.subList(half, chunkAssets.size())));
+            // Outside the edit, so undo must leave these
+            read.getLiabilities().addAssets(chunkLoans);
+        }, ForkJoinPool.commonPool(), 2, 4096);
+        importEdit.finish();
+
+        assertEquals(6000, count, "Holding count is incorrect");
+        assertEquals("Bond 2999", read.getAssets().get(2999).getName(), "File order was not kept");
+        assertTrue(versions.undo(), "Import not recorded");
+        assertEquals(3000, read.getLiabilities().size(), "Changes outside the edit were undone");
+        assertEquals(0, read.getAssets().size(), "Import not undone as one step");
+    }
+
+    @Test
+    void testQuotedNamesAndDates() throws IOException {
+        Path file = dir.resolve("quoted.csv");
+        Files.writeString(file, "# header\r\nBond,\"Muni \"\"A\"\", 2030\",1000.005,2024-02-29,3.1,2030-01-15\r\n");
+        Portfolio read = PortfolioFile.read(file);
+
+        Bond bond = (Bond) read.getAssets().get(0);
+        assertEquals("Muni \"A\", 2030", bond.getName(), "Quoted name is incorrect");
+        assertEquals(100001, bond.getValueCents(), "Amount not rounded half-up");
+        assertEquals("02/29/2024", FastFormat.formatDate(bond.getPurchaseDate()), "Date is incorrect");
+    }
+
+    @Test
+    void testErrorReportsOffset() throws IOException {
+        Path file = dir.resolve("broken.csv");
+        Files.writeString(file, "Stock,Apple,1000.00,2024-01-02,AAPL,10,100.00\nStock,Apple,abc,2024-01-02,AAPL,10,100.00\n");
+        IOException e = assertThrows(IOException.class, () -> PortfolioFile.read(file));
+        assertTrue(e.getMessage().contains("byte offset 46"), "Error does not locate the line: " + e.getMessage());
+    }
+}
@@ -0,0 +1,392 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+// Read-only JSON over HTTP for local tools, on the JDK's built-in server.
+// Every request runs on its own virtual thread and answers from a single
+// PortfolioVersions snapshot, so it never waits on, or sees half of, an
+// edit in progress. Amounts are dollars with exactly two decimals, written
+// from the cents, so they are exact.
+//
+//   GET /networth          totals and net worth
+//   GET /totals            value and count per asset type, monthly payments
+//   GET /loans             each loan with its payment analytics
+//   GET /reports           the report types and their paths
+//   GET /reports/<slug>    one report's text, e.g. /reports/debt-overview
+//
+// Binds to the loopback address only. Headless:
+//
+//   java FinancialManager --serve <portfolio.csv> [--port n] [--paths n]
+final class PortfolioServer implements AutoCloseable {
+    static final String SERVE_FLAG = "--serve";
+    static final String USAGE = "Usage: FinancialManager --serve <portfolio.csv> [--port n] [--paths n]";
+    static final int DEFAULT_PORT = 8080;
+    private static final String REPORTS_PATH = "/reports/";
+    private static final int STREAM_BUFFER_SIZE = 16 * 1024;
+    private static final LongAdder ERRORS = Metrics.counter("http.errors");
+
+    static {
+        // Headers and body go out as separate writes; with Nagle on, the body
+        // waits for the client's delayed ACK, about 40 ms on Linux
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final PortfolioVersions versions;
+    private final ReportGenerator reportGenerator;
+    private final LoanAnalytics loanAnalytics;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    PortfolioServer(PortfolioVersions versions, LoanAnalytics loanAnalytics, int projectionPaths, int port)
+            throws IOException {
+        this.versions = versions;
+        this.loanAnalytics = loanAnalytics;
+        this.reportGenerator = new ReportGenerator(versions, loanAnalytics, projectionPaths,
+                new ReportCache(ReportCache.DEFAULT_MAX_BYTES));
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        route("/networth", "networth", this::netWorth);
+        route("/totals", "totals", this::totals);
+        route("/loans", "loans", this::loans);
+        route("/reports", "report", this::reports);
+        server.setExecutor(executor);
+    }
+
+    private void route(String path, String name, Handler handler) {
+        LatencyHistogram latency = Metrics.histogram("http." + name);
+        server.createContext(path, exchange -> handle(exchange, latency, handler));
+    }
+
+    // Port 0 picks a free port; see getPort()
+    static PortfolioServer start(PortfolioVersions versions, LoanAnalytics loanAnalytics, int projectionPaths,
+                                 int port) throws IOException {
+        PortfolioServer server = new PortfolioServer(versions, loanAnalytics, projectionPaths, port);
+        server.server.start();
+        return server;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    // Returns a non-zero exit code on bad arguments or an unreadable file;
+    // otherwise the server keeps the process alive until it is stopped
+    static int run(String[] args) {
+        String file = null;
+        int port = DEFAULT_PORT;
+        int paths = BatchReportRunner.DEFAULT_BATCH_PATHS;
+        try {
+            // args[0] is --serve
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--port":
+                        port = Integer.parseInt(args[++i]);
+                        break;
+                    case "--paths":
+                        paths = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        if (file != null || args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+                        }
+                        file = args[i];
+                }
+            }
+            if (file == null || paths < 1) {
+                throw new IllegalArgumentException("A portfolio file is required");
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        try {
+            Portfolio portfolio = PortfolioFile.read(Paths.get(file));
+            PortfolioVersions versions = new PortfolioVersions(portfolio.getAssets(), portfolio.getLiabilities());
+            PortfolioServer server = start(versions, new LoanAnalytics(), paths, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close, "server-close"));
+            System.out.println("Serving " + file + " on http://localhost:" + server.getPort() + "/");
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Could not start the server: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange, PortfolioVersions.Snapshot portfolio) throws IOException;
+    }
+
+    // Timed per endpoint as "http.<name>"
+    private void handle(HttpExchange exchange, LatencyHistogram latency, Handler handler) throws IOException {
+        long start = System.nanoTime();
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendError(exchange, 405, "Only GET is supported");
+                return;
+            }
+            handler.handle(exchange, versions.snapshot());
+        } catch (RuntimeException e) {
+            ERRORS.increment();
+            System.err.println("Request " + exchange.getRequestURI() + " failed: " + e);
+            // Once a stream has started the client can only see it cut short
+            if (exchange.getResponseCode() == -1) {
+                sendError(exchange, 500, String.valueOf(e));
+            }
+        } catch (IOException e) {
+            // Usually the client hanging up
+            ERRORS.increment();
+            throw e;
+        } finally {
+            exchange.close();
+            latency.recordSince(start);
+        }
+    }
+
+    private void netWorth(HttpExchange exchange, PortfolioVersions.Snapshot portfolio) throws IOException {
+        if (!exactPath(exchange, "/networth")) {
+            return;
+        }
+        long assets = portfolio.getAssetTotals().getTotalValueCents();
+        long liabilities = portfolio.getLiabilityTotals().getTotalValueCents();
+        StringBuilder json = new StringBuilder(128);
+        json.append("{\"version\":").append(portfolio.getVersion());
+        appendAmountField(json, "assets", assets);
+        appendAmountField(json, "liabilities", liabilities);
+        appendAmountField(json, "netWorth", assets - liabilities);
+        json.append('}');
+        send(exchange, 200, json);
+    }
+
+    private void totals(HttpExchange exchange, PortfolioVersions.Snapshot portfolio) throws IOException {
+        if (!exactPath(exchange, "/totals")) {
+            return;
+        }
+        PortfolioAggregates assets = portfolio.getAssetTotals();
+        PortfolioAggregates liabilities = portfolio.getLiabilityTotals();
+        StringBuilder json = new StringBuilder(384);
+        json.append("{\"version\":").append(portfolio.getVersion()).append(",\"assets\":{");
+        appendTypeTotal(json, "stock", assets, ColumnarAssetManager.TYPE_STOCK);
+        json.append(',');
+        appendTypeTotal(json, "bond", assets, ColumnarAssetManager.TYPE_BOND);
+        json.append(',');
+        appendTypeTotal(json, "other", assets, ColumnarAssetManager.TYPE_OTHER);
+        json.append("},\"liabilities\":{");
+        appendTypeTotal(json, "loan", liabilities, ColumnarAssetManager.TYPE_LOAN);
+        json.append('}');
+        appendAmountField(json, "monthlyPayments", liabilities.getTotalMonthlyPaymentCents());
+        appendAmountField(json, "annualBondIncome", Money.toCents(assets.getAnnualBondIncome()));
+        json.append('}');
+        send(exchange, 200, json);
+    }
+
+    // Streamed, since a book can hold any number of loans
+    private void loans(HttpExchange exchange, PortfolioVersions.Snapshot portfolio) throws IOException {
+        if (!exactPath(exchange, "/loans")) {
+            return;
+        }
+        Writer out = startStream(exchange);
+        StringBuilder json = new StringBuilder(512);
+        json.append("{\"version\":").append(portfolio.getVersion()).append(",\"loans\":[");
+        boolean first = true;
+        for (Loan loan : portfolio.getLiabilities()) {
+            LoanAnalytics.Result analysis = loanAnalytics.analyze(loan);
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append("{\"name\":");
+            appendString(json, loan.getName());
+            appendAmountField(json, "balance", loan.getValueCents());
+            json.append(",\"interestRate\":").append(loan.getInterestRate());
+            json.append(",\"term\":").append(loan.getTerm());
+            json.append(",\"paymentsMade\":").append(loan.getPaymentsMade());
+            appendAmountField(json, "monthlyPayment", Money.toCents(analysis.monthlyPayment));
+            json.append(",\"remainingPayments\":").append(analysis.remainingPayments);
+            appendAmountField(json, "remainingInterest", Money.toCents(analysis.remainingInterest));
+            json.append(",\"payoffDate\":\"").append(isoDate(loanAnalytics.getPayoffDate(loan))).append("\"}");
+            out.append(json);
+            json.setLength(0);
+        }
+        out.append("]}");
+        out.flush();
+    }
+
+    private void reports(HttpExchange exchange, PortfolioVersions.Snapshot portfolio) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals("/reports") || path.equals(REPORTS_PATH)) {
+            StringBuilder json = new StringBuilder(512);
+            json.append("{\"reports\":[");
+            for (int i = 0; i < ReportGenerator.REPORT_TYPES.length; i++) {
+                String reportType = ReportGenerator.REPORT_TYPES[i];
+                json.append(i == 0 ? "{\"type\":" : ",{\"type\":");
+                appendString(json, reportType);
+                json.append(",\"path\":");
+                appendString(json, REPORTS_PATH + BatchReportRunner.slug(reportType));
+                json.append('}');
+            }
+            json.append("]}");
+            send(exchange, 200, json);
+            return;
+        }
+
+        String reportType = path.startsWith(REPORTS_PATH) ? reportType(path.substring(REPORTS_PATH.length())) : null;
+        if (reportType == null) {
+            sendError(exchange, 404, "No such report: " + path);
+            return;
+        }
+        // The text is escaped as the generator produces it, never held whole
+        Writer out = startStream(exchange);
+        out.append("{\"type\":");
+        appendString(out, reportType);
+        out.append(",\"version\":").append(Long.toString(portfolio.getVersion())).append(",\"text\":\"");
+        try {
+            reportGenerator.writeReport(portfolio, reportType, new ReportWriter(text -> {
+                try {
+                    appendEscaped(out, text);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.append("\"}");
+        out.flush();
+    }
+
+    private static String reportType(String slug) {
+        for (String reportType : ReportGenerator.REPORT_TYPES) {
+            if (BatchReportRunner.slug(reportType).equals(slug)) {
+                return reportType;
+            }
+        }
+        return null;
+    }
+
+    private static boolean exactPath(HttpExchange exchange, String path) throws IOException {
+        if (exchange.getRequestURI().getPath().equals(path)) {
+            return true;
+        }
+        sendError(exchange, 404, "No such resource: " + exchange.getRequestURI().getPath());
+        return false;
+    }
+
+    private static void send(HttpExchange exchange, int status, CharSequence json) throws IOException {
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder(64).append("{\"error\":");
+        appendString(json, message);
+        send(exchange, status, json.append('}'));
+    }
+
+    // Chunked; the exchange closes the stream
+    private static Writer startStream(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8),
+                STREAM_BUFFER_SIZE);
+    }
+
+    private static void appendTypeTotal(StringBuilder json, String name, PortfolioAggregates totals, byte type) {
+        json.append('"').append(name).append("\":{\"count\":").append(totals.getCount(type));
+        appendAmountField(json, "value", totals.getTotalValueCents(type));
+        json.append('}');
+    }
+
+    // ,"name":1234.56
+    private static void appendAmountField(StringBuilder json, String name, long cents) {
+        json.append(",\"").append(name).append("\":");
+        appendAmount(json, cents);
+    }
+
+    static StringBuilder appendAmount(StringBuilder json, long cents) {
+        if (cents < 0) {
+            json.append('-');
+        }
+        long magnitude = Math.abs(cents);
+        long fraction = magnitude % 100;
+        return json.append(magnitude / 100).append('.').append(fraction < 10 ? "0" : "").append(fraction);
+    }
+
+    static void appendString(Appendable json, String text) throws IOException {
+        json.append('"');
+        appendEscaped(json, text);
+        json.append('"');
+    }
+
+    private static void appendString(StringBuilder json, String text) {
+        try {
+            appendString((Appendable) json, text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Escapes quotes, backslashes and control characters, copying clean runs whole
+    static void appendEscaped(Appendable json, CharSequence text) throws IOException {
+        int run = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            json.append(text, run, i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    json.append(String.format("\\u%04x", (int) c));
+            }
+            run = i + 1;
+        }
+        json.append(text, run, text.length());
+    }
+
+    private static String isoDate(Date date) {
+        return LocalDate.ofEpochDay(FastFormat.toEpochDay(date)).toString();
+    }
+}
@@ -0,0 +1,63 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Date;
+
+class PortfolioServerTest {
+    private Portfolio portfolio;
+    private PortfolioServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        portfolio = new Portfolio();
+        portfolio.getAssets().addAsset(new Stock("Apple \"AAPL\"", 55000.25, new Date(), "AAPL", 100, 550.0025));
+        portfolio.getAssets().addAsset(new Bond("Gov Bond", 25000, new Date(), 4.8, new Date()));
+        portfolio.getLiabilities().addAsset(new Loan("Mortgage", 350000, new Date(), 3.5, 360, 24));
+        PortfolioVersions versions = new PortfolioVersions(portfolio.getAssets(), portfolio.getLiabilities());
+        server = PortfolioServer.start(versions, new LoanAnalytics(), 100, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void testNetWorthFollowsEdits() throws Exception {
+        assertEquals("{\"version\":0,\"assets\":80000.25,\"liabilities\":350000.00,\"netWorth\":-269999.75}",
+                get("/networth").body(), "Net worth response is incorrect");
+
+        portfolio.getLiabilities().get(0).setValue(300000);
+        assertTrue(get("/networth").body().contains("\"netWorth\":-219999.75"), "Edit not served");
+        assertTrue(get("/totals").body().contains("\"bond\":{\"count\":1,\"value\":25000.00}"),
+                "Bond totals are incorrect");
+    }
+
+    @Test
+    void testReportsAndErrors() throws Exception {
+        String report = get("/reports/net-worth-summary").body();
+        assertTrue(report.startsWith("{\"type\":\"Net Worth Summary\",\"version\":0,\"text\":\"=== Net Worth Summary ===\\n"),
+                "Report header is incorrect");
+        assertTrue(report.contains("- Apple \\\"AAPL\\\": $55,000.25\\n"), "Quotes in names not escaped");
+        assertTrue(get("/loans").body().contains("\"name\":\"Mortgage\",\"balance\":350000.00"), "Loan missing");
+
+        assertEquals(404, get("/reports/nope").statusCode(), "Unknown report was served");
+        HttpResponse<String> post = client.send(HttpRequest.newBuilder(uri("/networth"))
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, post.statusCode(), "POST was accepted");
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+}
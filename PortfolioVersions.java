@@ -0,0 +1,582 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+// Immutable, versioned views of a pair of asset stores, kept in step with
+// them through row notifications. Each store is mirrored by a
+// PersistentVector of row cells in the same order, so snapshot() is O(1).
+// A Snapshot never changes afterwards, so a background report can read one
+// while the stores carry on being edited. The asset cells are also kept in
+// a PersistentValueIndex, so a snapshot's top holdings need no scan.
+//
+// Rows are frozen lazily. A cell refers to the live asset until the first
+// change after a snapshot has seen it; only then is the old state copied
+// into the cell and a fresh cell put in its place. A row costs one copy
+// per snapshot it changes under, however often it changes in between, and
+// nothing at all while no snapshot is taken. Reading a cell that is still
+// live copies the asset out, checks that no change began meanwhile and
+// keeps the copy as the cell's frozen state, so every read of a row hands
+// out the same object and figures memoized per object, e.g. by
+// LoanAnalytics, are worked out once per row rather than once per read.
+//
+// Edits made through edit() are also recorded for undo and redo as the
+// before and after copies of each row they touched; history costs memory
+// in proportion to what changed, never to the size of the portfolio.
+// Undoing puts back only the fields an edit changed and nothing has
+// changed since, so a price tick that landed after the edit survives it;
+// the stores, views and totals all update as for any edit.
+//
+// Notifications arrive under the store's lock, so the mirror takes its
+// own lock only inside them, and edit(), undo() and redo() never hold it
+// while changing a store.
+class PortfolioVersions {
+    private final Mirror<FinancialAsset> assets;
+    private final Mirror<Loan> liabilities;
+    private final Deque<Edit> undoStack = new ArrayDeque<>();
+    private final Deque<Edit> redoStack = new ArrayDeque<>();
+    // Assets between rowChanging and rowUpdated, each with its before copy
+    // when the change is being recorded
+    private final Map<FinancialAsset, FinancialAsset> changing = new IdentityHashMap<>();
+    private long version;
+    // Snapshots built so far; a cell made before the latest may be seen by one
+    private long epoch;
+    // Built on demand and reused until the next change
+    private Snapshot published;
+    private Thread recorder;
+    private List<Change> recording;
+
+    public PortfolioVersions(ColumnarAssetManager<FinancialAsset> assets, ColumnarAssetManager<Loan> liabilities) {
+        this.assets = new Mirror<>(assets, true);
+        this.liabilities = new Mirror<>(liabilities, false);
+    }
+
+    // Waits for changes in progress, whose rows are neither before nor after
+    public synchronized Snapshot snapshot() {
+        boolean interrupted = false;
+        while (!changing.isEmpty()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (published == null) {
+            epoch++;
+            published = new Snapshot(version, new Rows<>(assets.rows), assets.rowsByType(), assets.byValue,
+                    new Rows<>(liabilities.rows), assets.totals.copy(), liabilities.totals.copy());
+        }
+        return published;
+    }
+
+    // Runs the change as one undoable step, e.g. a payment that moves both
+    // the balance and the payment count. Only changes made by this thread
+    // are recorded; price ticks applied meanwhile are not part of the step.
+    public void edit(String label, Runnable change) {
+        push(record(label, change));
+    }
+
+    // One undoable step fed in several calls, e.g. an import added a batch
+    // at a time so the EDT can repaint in between. It joins the history
+    // when finished; other edits may be made meanwhile. Apply and finish it
+    // on one thread, e.g. the EDT.
+    public PendingEdit beginEdit(String label) {
+        return new PendingEdit(label);
+    }
+
+    private void push(Edit edit) {
+        if (!edit.changes.isEmpty()) {
+            synchronized (this) {
+                undoStack.push(edit);
+                redoStack.clear();
+            }
+        }
+    }
+
+    // False when there is nothing to undo
+    public boolean undo() {
+        Edit edit;
+        synchronized (this) {
+            if (undoStack.isEmpty()) {
+                return false;
+            }
+            edit = undoStack.pop();
+        }
+        Edit inverse = record(edit.label, edit::revert);
+        synchronized (this) {
+            redoStack.push(inverse);
+        }
+        return true;
+    }
+
+    public boolean redo() {
+        Edit edit;
+        synchronized (this) {
+            if (redoStack.isEmpty()) {
+                return false;
+            }
+            edit = redoStack.pop();
+        }
+        Edit inverse = record(edit.label, edit::revert);
+        synchronized (this) {
+            undoStack.push(inverse);
+        }
+        return true;
+    }
+
+    // Label of the step undo() would revert, or null
+    public synchronized String getUndoLabel() {
+        return undoStack.isEmpty() ? null : undoStack.peek().label;
+    }
+
+    public synchronized String getRedoLabel() {
+        return redoStack.isEmpty() ? null : redoStack.peek().label;
+    }
+
+    private Edit record(String label, Runnable change) {
+        synchronized (this) {
+            if (recorder != null) {
+                throw new IllegalStateException("An edit is already in progress");
+            }
+            recorder = Thread.currentThread();
+            recording = new ArrayList<>();
+        }
+        List<Change> changes;
+        try {
+            change.run();
+        } finally {
+            synchronized (this) {
+                changes = recording;
+                recorder = null;
+                recording = null;
+            }
+        }
+        return new Edit(label, changes);
+    }
+
+    // Called with this lock held
+    private boolean recording() {
+        return recorder == Thread.currentThread();
+    }
+
+    // Called with this lock held; change is null when not recording
+    private void changed(Change change) {
+        version++;
+        published = null;
+        if (change != null) {
+            recording.add(change);
+        }
+    }
+
+    private void changeEnded(FinancialAsset live) {
+        changing.remove(live);
+        if (changing.isEmpty()) {
+            notifyAll();
+        }
+    }
+
+    final class PendingEdit {
+        private final Edit edit;
+        private boolean finished;
+
+        private PendingEdit(String label) {
+            this.edit = new Edit(label, new ArrayList<>());
+        }
+
+        // Runs part of the step; as with edit(), only this thread's changes count
+        public void apply(Runnable change) {
+            if (finished) {
+                throw new IllegalStateException("Edit already finished: " + edit.label);
+            }
+            edit.changes.addAll(record(edit.label, change).changes);
+        }
+
+        public void finish() {
+            if (!finished) {
+                finished = true;
+                push(edit);
+            }
+        }
+    }
+
+    // One store's rows as cells, with their running totals. The same cells
+    // are also bucketed by asset type, as the store's own type buckets, so
+    // a report on one type reads only its rows.
+    private final class Mirror<T extends FinancialAsset> implements AssetStoreListener {
+        private final ColumnarAssetManager<T> store;
+        private final PortfolioAggregates totals = new PortfolioAggregates();
+        private PersistentVector<Cell<T>> rows = PersistentVector.empty();
+        private final PersistentVector<Cell<T>>[] byType = newBuckets();
+        // Each row's position in its type's bucket
+        private int[] bucketPositions = new int[16];
+        // Cells by value, for top-N without a scan; kept only when asked for
+        private final boolean indexValues;
+        private PersistentValueIndex<Cell<T>> byValue = PersistentValueIndex.empty();
+        // Each row's key in byValue
+        private long[] valueKeys = new long[16];
+
+        Mirror(ColumnarAssetManager<T> store, boolean indexValues) {
+            this.store = store;
+            this.indexValues = indexValues;
+            // Registered under the store's lock, so no row is missed or seen twice
+            synchronized (store) {
+                for (T asset : store) {
+                    append(new Cell<>(asset, 0));
+                    totals.add(asset);
+                }
+                store.addStoreListener(this);
+            }
+        }
+
+        @Override
+        public void rowInserted(int row) {
+            T live = store.get(row);
+            synchronized (PortfolioVersions.this) {
+                append(new Cell<>(live, epoch));
+                totals.add(live);
+                // Undoing an insertion only removes the row, so no copy is kept
+                changed(recording() ? new Change(store, live, null, live) : null);
+            }
+        }
+
+        @Override
+        public void rowChanging(int row) {
+            T live = store.get(row);
+            synchronized (PortfolioVersions.this) {
+                Cell<T> cell = rows.get(row);
+                if (cell.epoch < epoch) {
+                    cell.freeze();
+                }
+                totals.remove(live);
+                // A cell no snapshot has seen changes in place, so its before
+                // copy must not be kept in it
+                changing.put(live, !recording() ? null : cell.epoch < epoch ? cell.copy() : live.freeze());
+            }
+        }
+
+        @Override
+        public void rowUpdated(int row) {
+            T live = store.get(row);
+            synchronized (PortfolioVersions.this) {
+                // updateAsset() also notifies when nothing has changed
+                if (!changing.containsKey(live)) {
+                    return;
+                }
+                FinancialAsset before = changing.get(live);
+                changeEnded(live);
+                Cell<T> cell = rows.get(row);
+                if (cell.epoch < epoch) {
+                    cell = new Cell<>(live, epoch);
+                    replace(row, cell);
+                    reindexValue(row, cell);
+                } else if (live.getValueCents() != valueKeys[row]) {
+                    reindexValue(row, cell);
+                }
+                totals.add(live);
+                changed(before != null ? new Change(store, live, before, live.freeze()) : null);
+            }
+        }
+
+        @Override
+        public void rowRemoved(int row, int lastRow) {
+            synchronized (PortfolioVersions.this) {
+                Cell<T> cell = rows.get(row);
+                T live = cell.live;
+                // Once out of the store the asset changes unseen, so pin what snapshots saw
+                if (cell.epoch < epoch) {
+                    cell.freeze();
+                }
+                if (changing.containsKey(live)) {
+                    // Taken out mid-change; its totals were already removed
+                    changeEnded(live);
+                } else {
+                    totals.remove(live);
+                }
+                remove(row, lastRow, cell);
+                changed(recording() ? new Change(store, live, cell.copy(), null) : null);
+            }
+        }
+
+        private void append(Cell<T> cell) {
+            int row = rows.size();
+            if (row == bucketPositions.length) {
+                bucketPositions = Arrays.copyOf(bucketPositions, row * 2);
+                valueKeys = Arrays.copyOf(valueKeys, row * 2);
+            }
+            byte type = ColumnarAssetManager.typeCode(cell.live);
+            bucketPositions[row] = byType[type].size();
+            byType[type] = byType[type].append(cell);
+            rows = rows.append(cell);
+            valueKeys[row] = cell.live.getValueCents();
+            if (indexValues) {
+                byValue = byValue.add(valueKeys[row], cell.live.storeSeq, cell);
+            }
+        }
+
+        // The row's cell or value has changed; its old key is still in valueKeys
+        private void reindexValue(int row, Cell<T> cell) {
+            long value = cell.live.getValueCents();
+            if (indexValues) {
+                byValue = byValue.remove(valueKeys[row], cell.live.storeSeq).add(value, cell.live.storeSeq, cell);
+            }
+            valueKeys[row] = value;
+        }
+
+        private void replace(int row, Cell<T> cell) {
+            byte type = ColumnarAssetManager.typeCode(cell.live);
+            byType[type] = byType[type].set(bucketPositions[row], cell);
+            rows = rows.set(row, cell);
+        }
+
+        // Mirrors the store's swap-remove in the rows and in the type bucket
+        private void remove(int row, int lastRow, Cell<T> cell) {
+            if (indexValues) {
+                byValue = byValue.remove(valueKeys[row], cell.live.storeSeq);
+            }
+            int position = bucketPositions[row];
+            if (row != lastRow) {
+                rows = rows.set(row, rows.get(lastRow));
+                bucketPositions[row] = bucketPositions[lastRow];
+                valueKeys[row] = valueKeys[lastRow];
+            }
+            rows = rows.pop();
+
+            byte type = ColumnarAssetManager.typeCode(cell.live);
+            PersistentVector<Cell<T>> bucket = byType[type];
+            Cell<T> moved = bucket.get(bucket.size() - 1);
+            if (moved != cell) {
+                bucket = bucket.set(position, moved);
+                // Under the store's lock, so its slot is already the row it now mirrors
+                bucketPositions[moved.live.storeSlot] = position;
+            }
+            byType[type] = bucket.pop();
+        }
+
+        List<Rows<T>> rowsByType() {
+            List<Rows<T>> buckets = new ArrayList<>(ColumnarAssetManager.TYPE_COUNT);
+            for (PersistentVector<Cell<T>> bucket : byType) {
+                buckets.add(new Rows<>(bucket));
+            }
+            return buckets;
+        }
+
+        @SuppressWarnings("unchecked")
+        private PersistentVector<Cell<T>>[] newBuckets() {
+            PersistentVector<Cell<T>>[] buckets =
+                    (PersistentVector<Cell<T>>[]) new PersistentVector<?>[ColumnarAssetManager.TYPE_COUNT];
+            Arrays.fill(buckets, PersistentVector.empty());
+            return buckets;
+        }
+    }
+
+    // One row of a mirror: the live asset, and once it has changed under a
+    // snapshot or been read, a copy of what it held while current
+    private static final class Cell<T extends FinancialAsset> {
+        private static final VarHandle FROZEN;
+
+        static {
+            try {
+                FROZEN = MethodHandles.lookup().findVarHandle(Cell.class, "frozen", FinancialAsset.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        final T live;
+        // Value of epoch when this cell became the row's current one
+        final long epoch;
+        private volatile T frozen;
+
+        Cell(T live, long epoch) {
+            this.live = live;
+            this.epoch = epoch;
+        }
+
+        // Called under the mirror's lock, before the live asset is touched
+        void freeze() {
+            if (frozen == null) {
+                // A reader may have kept its copy first; either holds this state
+                FROZEN.compareAndSet(this, null, copyOf(live));
+                // The live asset's writes must not be seen before frozen is
+                VarHandle.storeStoreFence();
+            }
+        }
+
+        // The row as it was when the cell was current; the same shared copy
+        // on every call, which callers must not change
+        @SuppressWarnings("unchecked")
+        T copy() {
+            T saved = frozen;
+            if (saved != null) {
+                return saved;
+            }
+            T copy = copyOf(live);
+            // As StampedLock.validate: if frozen is still unset after the
+            // reads, no writer had started on the asset, so the copy is whole
+            VarHandle.acquireFence();
+            saved = frozen;
+            if (saved != null) {
+                return saved;
+            }
+            return FROZEN.compareAndSet(this, null, copy) ? copy : (T) FROZEN.getVolatile(this);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T extends FinancialAsset> T copyOf(T asset) {
+            return (T) asset.freeze();
+        }
+    }
+
+    // One row's state before and after; before is null for an insertion,
+    // whose after is the live asset itself, and after is null for a removal
+    private static final class Change {
+        final ColumnarAssetManager<?> store;
+        final FinancialAsset live;
+        final FinancialAsset before;
+        final FinancialAsset after;
+
+        Change(ColumnarAssetManager<?> store, FinancialAsset live, FinancialAsset before, FinancialAsset after) {
+            this.store = store;
+            this.live = live;
+            this.before = before;
+            this.after = after;
+        }
+
+        void revert() {
+            if (before == null) {
+                store.removeAsset(live);
+            } else if (after == null) {
+                // The same object goes back, so later steps that refer to it
+                // still change the row in the store
+                live.copyState(before);
+                store.addAsset(live);
+            } else {
+                live.revert(before, after);
+            }
+        }
+    }
+
+    private static final class Edit {
+        final String label;
+        final List<Change> changes;
+
+        Edit(String label, List<Change> changes) {
+            this.label = label;
+            this.changes = changes;
+        }
+
+        // Latest change first, so repeated changes to a row unwind in order
+        void revert() {
+            for (int i = changes.size() - 1; i >= 0; i--) {
+                changes.get(i).revert();
+            }
+        }
+    }
+
+    // A snapshot's rows of one store. Each read hands out a detached copy,
+    // the same one for a row every time, so the caller may keep it but must
+    // not change it.
+    static final class Rows<T extends FinancialAsset> implements Iterable<T> {
+        private final PersistentVector<Cell<T>> cells;
+
+        private Rows(PersistentVector<Cell<T>> cells) {
+            this.cells = cells;
+        }
+
+        public int size() {
+            return cells.size();
+        }
+
+        public boolean isEmpty() {
+            return cells.isEmpty();
+        }
+
+        public T get(int index) {
+            return cells.get(index).copy();
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            Iterator<Cell<T>> it = cells.iterator();
+            return new Iterator<T>() {
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    return it.next().copy();
+                }
+            };
+        }
+    }
+
+    // A consistent, unchanging view of both stores at one version
+    static final class Snapshot {
+        private final long version;
+        private final Rows<FinancialAsset> assets;
+        private final List<Rows<FinancialAsset>> assetsByType;
+        private final PersistentValueIndex<Cell<FinancialAsset>> assetsByValue;
+        private final Rows<Loan> liabilities;
+        private final PortfolioAggregates assetTotals;
+        private final PortfolioAggregates liabilityTotals;
+
+        Snapshot(long version, Rows<FinancialAsset> assets, List<Rows<FinancialAsset>> assetsByType,
+                 PersistentValueIndex<Cell<FinancialAsset>> assetsByValue, Rows<Loan> liabilities,
+                 PortfolioAggregates assetTotals, PortfolioAggregates liabilityTotals) {
+            this.version = version;
+            this.assets = assets;
+            this.assetsByType = assetsByType;
+            this.assetsByValue = assetsByValue;
+            this.liabilities = liabilities;
+            this.assetTotals = assetTotals;
+            this.liabilityTotals = liabilityTotals;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public Rows<FinancialAsset> getAssets() {
+            return assets;
+        }
+
+        // The assets of one type, e.g. ColumnarAssetManager.TYPE_STOCK; order is unspecified
+        public Rows<FinancialAsset> getAssets(byte type) {
+            return assetsByType.get(type);
+        }
+
+        public Rows<Loan> getLiabilities() {
+            return liabilities;
+        }
+
+        public PortfolioAggregates getAssetTotals() {
+            return assetTotals;
+        }
+
+        public PortfolioAggregates getLiabilityTotals() {
+            return liabilityTotals;
+        }
+
+        // The n most valuable assets, largest first and equal values newest
+        // first, as ColumnarAssetManager.topByValue; O(log n) plus n copies
+        public List<FinancialAsset> topAssetsByValue(int n) {
+            List<Cell<FinancialAsset>> cells = assetsByValue.top(n);
+            List<FinancialAsset> top = new ArrayList<>(cells.size());
+            for (Cell<FinancialAsset> cell : cells) {
+                top.add(cell.copy());
+            }
+            return top;
+        }
+    }
+}
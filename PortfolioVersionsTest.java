@@ -0,0 +1,196 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.Date;
+import java.util.List;
+
+class PortfolioVersionsTest {
+    private ColumnarAssetManager<FinancialAsset> assets;
+    private ColumnarAssetManager<Loan> liabilities;
+    private PortfolioVersions versions;
+    private Loan mortgage;
+
+    @BeforeEach
+    void setUp() {
+        assets = new ColumnarAssetManager<>(FinancialAsset.class);
+        liabilities = new ColumnarAssetManager<>(Loan.class);
+        assets.addAsset(new Stock("Apple", 10000, new Date(), "AAPL", 100, 100));
+        mortgage = new Loan("Mortgage", 300000, new Date(), 3.5, 360, 24);
+        liabilities.addAsset(mortgage);
+        versions = new PortfolioVersions(assets, liabilities);
+    }
+
+    @Test
+    void testSnapshotDoesNotSeeLaterChanges() {
+        PortfolioVersions.Snapshot before = versions.snapshot();
+        mortgage.setValue(250000);
+        assets.addAsset(new Bond("Gov Bond", 5000, new Date(), 5, new Date()));
+
+        assertEquals(300000, before.getLiabilities().get(0).getValue(), 0.001, "Snapshot row changed");
+        assertEquals(300000, before.getLiabilityTotals().getTotalValue(), 0.001, "Snapshot totals changed");
+        assertEquals(1, before.getAssets().size(), "Snapshot gained a row");
+
+        PortfolioVersions.Snapshot after = versions.snapshot();
+        assertTrue(after.getVersion() > before.getVersion(), "Version did not advance");
+        assertEquals(250000, after.getLiabilityTotals().getTotalValue(), 0.001, "New snapshot missed the change");
+        assertEquals(15000, after.getAssetTotals().getTotalValue(), 0.001, "New snapshot missed the bond");
+        assertSame(after, versions.snapshot(), "Unchanged version was rebuilt");
+    }
+
+    @Test
+    void testRowReadsShareOneCopy() {
+        PortfolioVersions.Snapshot before = versions.snapshot();
+        Loan first = before.getLiabilities().get(0);
+        assertSame(first, before.getLiabilities().iterator().next(), "Row copied again on a second read");
+        assertNotSame(mortgage, first, "Live loan handed out");
+
+        mortgage.setValue(250000);
+        assertSame(first, before.getLiabilities().get(0), "Old snapshot lost its copy");
+        assertEquals(300000, first.getValue(), 0.001, "Shared copy followed the live loan");
+        assertEquals(250000, versions.snapshot().getLiabilities().get(0).getValue(), 0.001,
+                "New snapshot missed the change");
+    }
+
+    @Test
+    void testTopAssetsFollowValueChanges() {
+        Bond bond = new Bond("Gov Bond", 5000, new Date(), 5, new Date());
+        assets.addAsset(bond);
+        PortfolioVersions.Snapshot before = versions.snapshot();
+        bond.setValue(50000);
+        assets.removeAsset(assets.get(0));
+
+        assertEquals("Apple", before.topAssetsByValue(1).get(0).getName(), "Old snapshot's top holding changed");
+        assertEquals(2, before.topAssetsByValue(5).size(), "Old snapshot's holdings changed");
+        List<FinancialAsset> top = versions.snapshot().topAssetsByValue(5);
+        assertEquals(1, top.size(), "Removed asset still listed");
+        assertEquals(50000, top.get(0).getValue(), 0.001, "Top holding has a stale value");
+    }
+
+    @Test
+    void testUndoAndRedoPayment() {
+        versions.edit("Payment", () -> {
+            mortgage.setValueCents(mortgage.getValueCents() - 200000);
+            mortgage.setPaymentsMade(mortgage.getPaymentsMade() + 1);
+            liabilities.updateAsset(mortgage);
+        });
+        assertEquals("Payment", versions.getUndoLabel(), "Edit not recorded");
+
+        assertTrue(versions.undo(), "Nothing to undo");
+        assertEquals(300000, mortgage.getValue(), 0.001, "Balance not restored");
+        assertEquals(24, mortgage.getPaymentsMade(), "Payment count not restored");
+        assertEquals(300000, liabilities.getAggregates().getTotalValue(), 0.001, "Store totals not restored");
+        assertNull(versions.getUndoLabel(), "Undo stack not emptied");
+
+        assertTrue(versions.redo(), "Nothing to redo");
+        assertEquals(298000, mortgage.getValue(), 0.001, "Balance not reapplied");
+        assertEquals(25, mortgage.getPaymentsMade(), "Payment count not reapplied");
+        assertEquals(298000, versions.snapshot().getLiabilityTotals().getTotalValue(), 0.001,
+                "Snapshot disagrees with the store");
+    }
+
+    @Test
+    void testUndoAddRemovesAsset() {
+        Bond bond = new Bond("Gov Bond", 5000, new Date(), 5, new Date());
+        versions.edit("Add bond", () -> assets.addAsset(bond));
+        // Changes made outside an edit are not part of it
+        assets.get(0).setValue(20000);
+
+        versions.undo();
+        assertEquals(1, assets.size(), "Added asset not removed");
+        assertEquals(20000, assets.getAggregates().getTotalValue(), 0.001, "Unrelated change was undone");
+        versions.redo();
+        assertEquals(2, assets.size(), "Asset not added back");
+        assertEquals(25000, versions.snapshot().getAssetTotals().getTotalValue(), 0.001, "Totals not updated");
+        assertFalse(versions.redo(), "Redo stack not emptied");
+    }
+
+    @Test
+    void testRedoAddThenPaymentReachesStore() {
+        Loan loan = new Loan("Car Loan", 1000, new Date(), 5.0, 12, 0);
+        versions.edit("Add loan", () -> liabilities.addAsset(loan));
+        versions.edit("Payment", () -> {
+            loan.setValueCents(loan.getValueCents() - 10000);
+            liabilities.updateAsset(loan);
+        });
+
+        versions.undo();
+        versions.undo();
+        assertEquals(300000, liabilities.getAggregates().getTotalValue(), 0.001, "Loan not removed");
+        versions.redo();
+        versions.redo();
+        assertSame(loan, liabilities.get(1), "Redo added a different object");
+        assertEquals(300900, liabilities.getAggregates().getTotalValue(), 0.001, "Payment not redone in the store");
+        assertEquals(300900, versions.snapshot().getLiabilityTotals().getTotalValue(), 0.001,
+                "Snapshot disagrees with the store");
+    }
+
+    @Test
+    void testRenameIsVersioned() {
+        PortfolioVersions.Snapshot before = versions.snapshot();
+        versions.edit("Rename", () -> mortgage.setName("Home Loan"));
+
+        PortfolioVersions.Snapshot after = versions.snapshot();
+        assertTrue(after.getVersion() > before.getVersion(), "Rename did not advance the version");
+        assertEquals("Home Loan", after.getLiabilities().get(0).getName(), "Snapshot kept the old name");
+        versions.undo();
+        assertEquals("Mortgage", mortgage.getName(), "Rename not undone");
+    }
+
+    @Test
+    void testUndoKeepsLaterTick() {
+        Stock apple = (Stock) assets.get(0);
+        versions.edit("Buy shares", () -> apple.setShares(200));
+        // A price tick lands after the edit, outside it
+        apple.setPriceCents(12000);
+
+        versions.undo();
+        assertEquals(100, apple.getShares(), "Shares not restored");
+        assertEquals(12000, apple.getPriceCents(), "Undo rolled back the tick");
+        assertEquals(1200000, apple.getValueCents(), "Value does not follow the restored shares");
+        assertEquals(12000, versions.snapshot().getAssetTotals().getTotalValue(), 0.001, "Totals not updated");
+
+        versions.redo();
+        assertEquals(200, apple.getShares(), "Shares not reapplied");
+        assertEquals(12000, apple.getPriceCents(), "Redo rolled back the tick");
+    }
+
+    @Test
+    void testEachSnapshotKeepsItsOwnRows() {
+        Stock apple = (Stock) assets.get(0);
+        PortfolioVersions.Snapshot first = versions.snapshot();
+        apple.setPriceCents(11000);
+        apple.setPriceCents(12000);
+        PortfolioVersions.Snapshot second = versions.snapshot();
+        apple.setPriceCents(13000);
+        assets.removeAsset(apple);
+        // Out of the store now, so no snapshot may see this
+        apple.setPriceCents(14000);
+
+        assertEquals(1000000, first.getAssets().get(0).getValueCents(), "First snapshot saw a later tick");
+        assertEquals(1200000, second.getAssets().get(0).getValueCents(), "Second snapshot missed its tick");
+        assertEquals(0, versions.snapshot().getAssets().size(), "Removed row still mirrored");
+        assertNotSame(first.getAssets().get(0), apple, "Snapshot handed out the live asset");
+    }
+
+    @Test
+    void testTypeBucketsFollowRemovals() {
+        Bond bond = new Bond("Gov Bond", 5000, new Date(), 5, new Date());
+        assets.addAsset(new Stock("Amazon", 8000, new Date(), "AMZN", 10, 800));
+        assets.addAsset(bond);
+        assets.addAsset(new Stock("Microsoft", 4000, new Date(), "MSFT", 10, 400));
+        assets.removeAsset(assets.get(0));
+        bond.setValue(6000);
+
+        PortfolioVersions.Snapshot snapshot = versions.snapshot();
+        PortfolioVersions.Rows<FinancialAsset> stocks = snapshot.getAssets(ColumnarAssetManager.TYPE_STOCK);
+        assertEquals(2, stocks.size(), "Stock bucket has the wrong rows");
+        long stockTotal = 0;
+        for (FinancialAsset stock : stocks) {
+            assertTrue(stock instanceof Stock, "Bond in the stock bucket");
+            stockTotal += stock.getValueCents();
+        }
+        assertEquals(1200000, stockTotal, "Stock bucket has the wrong rows");
+        assertEquals(600000, snapshot.getAssets(ColumnarAssetManager.TYPE_BOND).get(0).getValueCents(),
+                "Bond bucket missed the change");
+    }
+}
@@ -0,0 +1,153 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+// Finished report text keyed by report type, portfolio version, the
+// generator's settings and the day it was written on. The version moves on
+// with every change to either store, so an entry can never be served for a
+// portfolio it was not built from, and payoff dates count from the day, so
+// a report is never replayed after midnight either. Storing a newer report
+// drops the older ones at once rather than waiting for them to age out.
+//
+// Bounded by an estimate of the bytes held, evicting the least recently
+// used entries first. Hits, misses and evictions are counted as
+// "reportCache.hits", "reportCache.misses" and "reportCache.evictions".
+class ReportCache {
+    static final long DEFAULT_MAX_BYTES = 64L << 20;
+    // Object header, fields and array header of each chunk string, roughly
+    private static final int CHUNK_OVERHEAD = 56;
+    private static final LongAdder HITS = Metrics.counter("reportCache.hits");
+    private static final LongAdder MISSES = Metrics.counter("reportCache.misses");
+    private static final LongAdder EVICTIONS = Metrics.counter("reportCache.evictions");
+
+    private final long maxBytes;
+    // Access order, so iteration starts at the least recently used
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    public ReportCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    // The report as the chunks it was written in, or null
+    public synchronized List<String> get(String reportType, long version, int settings, int epochDay) {
+        Entry entry = entries.get(new Key(reportType, version, settings, epochDay));
+        if (entry == null) {
+            MISSES.increment();
+            return null;
+        }
+        HITS.increment();
+        return entry.chunks;
+    }
+
+    // Ignored when the report alone is over the limit
+    public synchronized void put(String reportType, long version, int settings, int epochDay, List<String> chunks) {
+        long size = sizeOf(chunks);
+        if (size > maxBytes) {
+            return;
+        }
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> old = it.next();
+            if (old.getKey().supersededBy(reportType, version, settings, epochDay)) {
+                bytes -= old.getValue().bytes;
+                it.remove();
+            }
+        }
+        Entry previous = entries.put(new Key(reportType, version, settings, epochDay),
+                new Entry(List.copyOf(chunks), size));
+        if (previous != null) {
+            bytes -= previous.bytes;
+        }
+        bytes += size;
+
+        it = entries.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= it.next().getValue().bytes;
+            it.remove();
+            EVICTIONS.increment();
+        }
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    static long sizeOf(List<String> chunks) {
+        long size = 0;
+        for (String chunk : chunks) {
+            size += sizeOf(chunk);
+        }
+        return size;
+    }
+
+    // UTF-16 estimate; compact Latin-1 strings take about half
+    static long sizeOf(String chunk) {
+        return CHUNK_OVERHEAD + 2L * chunk.length();
+    }
+
+    private static final class Key {
+        final String reportType;
+        final long version;
+        final int settings;
+        final int epochDay;
+
+        Key(String reportType, long version, int settings, int epochDay) {
+            this.reportType = reportType;
+            this.version = version;
+            this.settings = settings;
+            this.epochDay = epochDay;
+        }
+
+        // An older version or an earlier day of the same report
+        boolean supersededBy(String reportType, long version, int settings, int epochDay) {
+            return this.version <= version && this.epochDay <= epochDay
+                    && (this.version < version || this.epochDay < epochDay)
+                    && this.settings == settings && this.reportType.equals(reportType);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return version == other.version && settings == other.settings && epochDay == other.epochDay
+                    && reportType.equals(other.reportType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(reportType, version, settings, epochDay);
+        }
+    }
+
+    private static final class Entry {
+        final List<String> chunks;
+        final long bytes;
+
+        Entry(List<String> chunks, long bytes) {
+            this.chunks = chunks;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+class ReportCacheTest {
+    private ColumnarAssetManager<FinancialAsset> assets;
+    private ColumnarAssetManager<Loan> liabilities;
+    private static final int DAY = 20_000;
+
+    private ReportGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        assets = new ColumnarAssetManager<>(FinancialAsset.class);
+        liabilities = new ColumnarAssetManager<>(Loan.class);
+        assets.addAsset(new Stock("Apple", 10000, new Date(), "AAPL", 100, 100));
+        liabilities.addAsset(new Loan("Mortgage", 300000, new Date(), 3.5, 360, 24));
+        generator = new ReportGenerator(new PortfolioVersions(assets, liabilities), new LoanAnalytics(), 1000,
+                new ReportCache(ReportCache.DEFAULT_MAX_BYTES));
+    }
+
+    @Test
+    void testRepeatedReportIsReplayed() {
+        LongAdder hits = Metrics.counter("reportCache.hits");
+        long hitsBefore = hits.sum();
+
+        String first = generate("Monte Carlo Projection");
+        String second = generate("Monte Carlo Projection");
+
+        assertEquals(first, second, "Replayed report differs");
+        assertEquals(hitsBefore + 1, hits.sum(), "Second report was not a cache hit");
+    }
+
+    @Test
+    void testEditInvalidates() {
+        LongAdder misses = Metrics.counter("reportCache.misses");
+        generate("Net Worth Summary");
+        long missesBefore = misses.sum();
+
+        assets.addAsset(new Bond("Gov Bond", 5000, new Date(), 5, new Date()));
+        String report = generate("Net Worth Summary");
+
+        assertTrue(report.contains("Gov Bond"), "Stale report served after an edit");
+        assertEquals(missesBefore + 1, misses.sum(), "Edit did not force a regeneration");
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        String text = "x".repeat(1000);
+        long entryBytes = ReportCache.sizeOf(List.of(text));
+        ReportCache cache = new ReportCache(entryBytes * 2);
+
+        cache.put("A", 1, 0, DAY, List.of(text));
+        cache.put("B", 1, 0, DAY, List.of(text));
+        assertNotNull(cache.get("A", 1, 0, DAY), "A was evicted early");
+        cache.put("C", 1, 0, DAY, List.of(text));
+
+        assertNull(cache.get("B", 1, 0, DAY), "Least recently used entry was kept");
+        assertNotNull(cache.get("A", 1, 0, DAY), "Recently used entry was evicted");
+        assertEquals(2 * entryBytes, cache.getBytes(), "Byte count out of step");
+
+        cache.put("A", 2, 0, DAY, List.of(text));
+        assertNull(cache.get("A", 1, 0, DAY), "Superseded version was kept");
+        assertEquals(2, cache.size(), "Wrong number of entries");
+    }
+
+    @Test
+    void testEarlierDayIsNotServed() {
+        ReportCache cache = new ReportCache(ReportCache.DEFAULT_MAX_BYTES);
+        cache.put("A", 1, 0, DAY, List.of("Payoff Date: today"));
+
+        assertNull(cache.get("A", 1, 0, DAY + 1), "Yesterday's report was served");
+        cache.put("A", 1, 0, DAY + 1, List.of("Payoff Date: tomorrow"));
+        assertEquals(1, cache.size(), "Yesterday's report was kept");
+    }
+
+    private String generate(String reportType) {
+        StringBuilder out = new StringBuilder();
+        generator.writeReport(reportType, new ReportWriter(ReportSink.of(out)));
+        return out.toString();
+    }
+}
@@ -0,0 +1,112 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntConsumer;
+
+// Streams a report straight to disk. The generator writes through a
+// ReportWriter into a format sink and on through a buffered channel writer,
+// so memory use is the same for a ten-line report and a two-million-line one.
+final class ReportExporter {
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    enum Format {
+        TEXT("Plain text", "txt"),
+        CSV("CSV", "csv"),
+        PRINT_LAYOUT("Print layout", "txt");
+
+        final String description;
+        final String extension;
+
+        Format(String description, String extension) {
+            this.description = description;
+            this.extension = extension;
+        }
+    }
+
+    private ReportExporter() {
+    }
+
+    // Returns the number of characters written
+    public static long export(ReportGenerator generator, String reportType, Format format, Path file,
+                              IntConsumer progress) throws IOException {
+        return export(generator, generator.snapshot(), reportType, format, file, progress);
+    }
+
+    // Exports the report as of the given version, e.g. the one a preview showed
+    public static long export(ReportGenerator generator, PortfolioVersions.Snapshot portfolio, String reportType,
+                              Format format, Path file, IntConsumer progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+             Writer out = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), WRITE_BUFFER_SIZE)) {
+            CountingAppendable counted = new CountingAppendable(out);
+            LineReportSink lineSink = null;
+            ReportSink sink;
+            switch (format) {
+                case CSV:
+                    sink = lineSink = new CsvReportSink(counted);
+                    break;
+                case PRINT_LAYOUT:
+                    sink = lineSink = new PaginatedReportSink(counted, reportType);
+                    break;
+                default:
+                    sink = ReportSink.of(counted);
+            }
+
+            ReportSink target = sink;
+            try {
+                generator.writeReport(portfolio, reportType, new ReportWriter(new ReportSink() {
+                    @Override
+                    public void write(CharSequence text) {
+                        target.write(text);
+                    }
+
+                    @Override
+                    public void progress(int percent) {
+                        progress.accept(percent);
+                    }
+                }));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (lineSink != null) {
+                lineSink.finish();
+            }
+            return counted.count;
+        }
+    }
+
+    private static final class CountingAppendable implements Appendable {
+        private final Appendable out;
+        long count;
+
+        CountingAppendable(Appendable out) {
+            this.out = out;
+        }
+
+        @Override
+        public Appendable append(CharSequence text) throws IOException {
+            out.append(text);
+            count += text.length();
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence text, int start, int end) throws IOException {
+            out.append(text, start, end);
+            count += end - start;
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            out.append(c);
+            count++;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.awt.image.BufferedImage;
+import java.awt.print.PageFormat;
+import java.awt.print.Printable;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+class ReportExporterTest {
+    @TempDir
+    Path dir;
+
+    private ReportGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        Portfolio portfolio = new Portfolio();
+        portfolio.getAssets().addAsset(new Stock("Apple Stock", 55000, new Date(), "AAPL", 100, 550.0));
+        for (int i = 0; i < 20000; i++) {
+            portfolio.getLiabilities().addAsset(new Loan("Loan " + i, 10000, new Date(), 5.0, 60, 12));
+        }
+        generator = new ReportGenerator(portfolio.getAssets(), portfolio.getLiabilities(), new LoanAnalytics());
+    }
+
+    @Test
+    void testTextMatchesReport() throws Exception {
+        StringBuilder expected = new StringBuilder();
+        generator.writeReport("Debt Overview", new ReportWriter(ReportSink.of(expected)));
+
+        Path file = dir.resolve("debt.txt");
+        long written = ReportExporter.export(generator, "Debt Overview", ReportExporter.Format.TEXT, file, percent -> { });
+
+        assertEquals(expected.length(), written, "Character count is incorrect");
+        assertEquals(expected.toString(), Files.readString(file), "Saved text differs from the report");
+    }
+
+    @Test
+    void testCsvRows() throws Exception {
+        Path file = dir.resolve("debt.csv");
+        ReportExporter.export(generator, "Debt Overview", ReportExporter.Format.CSV, file, percent -> { });
+        List<String> rows = Files.readAllLines(file);
+
+        assertEquals("section,item,value", rows.get(0), "Header row is incorrect");
+        assertTrue(rows.contains("DEBT OVERVIEW,Total Debt,\"$200,000,000.00\""), "Total row is missing");
+        assertTrue(rows.contains("LOANS BREAKDOWN,Loan 7 / Remaining Payments,48"), "Nested loan row is missing");
+    }
+
+    @Test
+    void testPrintLayoutPages() throws Exception {
+        StringBuilder text = new StringBuilder();
+        generator.writeReport("Debt Overview", new ReportWriter(ReportSink.of(text)));
+        long lines = text.chars().filter(c -> c == '\n').count();
+
+        Path file = dir.resolve("debt-print.txt");
+        ReportExporter.export(generator, "Debt Overview", ReportExporter.Format.PRINT_LAYOUT, file, percent -> { });
+        String layout = Files.readString(file);
+
+        long pages = layout.chars().filter(c -> c == '\f').count() + 1;
+        assertEquals((lines + PaginatedReportSink.LINES_PER_PAGE - 1) / PaginatedReportSink.LINES_PER_PAGE, pages,
+                "Page count is incorrect");
+        assertTrue(layout.startsWith("Debt Overview"), "Page header is missing");
+        assertTrue(layout.contains("Page " + pages + "\n"), "Last page number is missing");
+    }
+
+    @Test
+    void testPrintsEveryLayoutPage() throws Exception {
+        Path file = dir.resolve("debt-print.txt");
+        ReportExporter.export(generator, "Debt Overview", ReportExporter.Format.PRINT_LAYOUT, file, percent -> { });
+        String[] pages = Files.readString(file).split("\f");
+
+        ReportPrintable printable = ReportPrintable.open(file);
+        assertEquals(pages.length, printable.getPageCount(), "Page count is incorrect");
+        String[] last = printable.readPage(pages.length - 1);
+        assertTrue(last[0].startsWith("Debt Overview") && last[0].endsWith("Page " + pages.length),
+                "Last page header is incorrect");
+
+        BufferedImage image = new BufferedImage(600, 800, BufferedImage.TYPE_INT_RGB);
+        PageFormat format = new PageFormat();
+        assertEquals(Printable.PAGE_EXISTS, printable.print(image.createGraphics(), format, pages.length - 1),
+                "Last page was not printed");
+        assertEquals(Printable.NO_SUCH_PAGE, printable.print(image.createGraphics(), format, pages.length),
+                "Printed past the last page");
+    }
+
+    @Test
+    void testSaveNameFollowsFormat() {
+        assertEquals("debt.csv", FinancialManager.withExtension(new File("debt.txt"), "csv").getName(),
+                "Format extension was not swapped");
+        assertEquals("debt.txt", FinancialManager.withExtension(new File("debt"), "txt").getName(),
+                "Extension was not added");
+        assertEquals("debt.v2.csv", FinancialManager.withExtension(new File("debt.v2"), "csv").getName(),
+                "Other extensions should be kept");
+    }
+}
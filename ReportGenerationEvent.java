@@ -0,0 +1,15 @@
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Spans one ReportGenerator.writeReport call, on whichever thread ran it
+@Name("financialmanager.ReportGeneration")
+@Label("Report Generation")
+@Category({"Financial Manager", "Reports"})
+class ReportGenerationEvent extends jdk.jfr.Event {
+    @Label("Report Type")
+    String reportType;
+
+    @Label("Served From Cache")
+    boolean cached;
+}
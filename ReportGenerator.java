@@ -0,0 +1,435 @@
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// Builds the text reports from a pair of asset stores. Nothing here touches
+// Swing, so the same reports back the desktop dialog and headless batch runs.
+// Each report reads one PortfolioVersions snapshot, so its figures agree
+// with each other however long it runs and whatever is edited meanwhile.
+// With a ReportCache, a report asked for again at the same version on the
+// same day is replayed from the text generated the first time; only the
+// heading with the generation date is written afresh.
+class ReportGenerator {
+    static final String[] REPORT_TYPES = {
+            "Net Worth Summary",
+            "Asset Allocation",
+            "Debt Overview",
+            "Cash Flow Analysis",
+            "Monte Carlo Projection"
+    };
+
+    // Monte Carlo projection settings
+    static final int PROJECTION_YEARS = 30;
+    static final int DEFAULT_PROJECTION_PATHS = 100_000;
+    // Holdings listed at the top of the allocation report
+    private static final int TOP_HOLDINGS = 5;
+    // Extra monthly budgets the debt report simulates, and how many it lists.
+    // All the levels are simulated for up to DEBT_FULL_SEARCH_LOANS loans;
+    // beyond that the levels shrink with the loan count, down to only those
+    // listed, so the report's cost stops growing with the budgets.
+    static final int DEBT_BUDGET_LEVELS = 200;
+    static final int DEBT_FULL_SEARCH_LOANS = 1_000;
+    // Past this many loans the repayment orders are not compared at all
+    static final int DEBT_MAX_OPTIMIZED_LOANS = 100_000;
+    private static final int REPORTED_DEBT_BUDGETS = 11;
+
+    private final PortfolioVersions versions;
+    private final LoanAnalytics loanAnalytics;
+    private final int projectionPaths;
+    // Null when every report is generated afresh
+    private final ReportCache cache;
+
+    public ReportGenerator(ColumnarAssetManager<FinancialAsset> assets, ColumnarAssetManager<Loan> liabilities,
+                           LoanAnalytics loanAnalytics) {
+        this(assets, liabilities, loanAnalytics, DEFAULT_PROJECTION_PATHS);
+    }
+
+    public ReportGenerator(ColumnarAssetManager<FinancialAsset> assets, ColumnarAssetManager<Loan> liabilities,
+                           LoanAnalytics loanAnalytics, int projectionPaths) {
+        this(new PortfolioVersions(assets, liabilities), loanAnalytics, projectionPaths);
+    }
+
+    public ReportGenerator(PortfolioVersions versions, LoanAnalytics loanAnalytics, int projectionPaths) {
+        this(versions, loanAnalytics, projectionPaths, null);
+    }
+
+    // The cache is keyed by this generator's versions, so it must not be
+    // shared with a generator over a different PortfolioVersions
+    public ReportGenerator(PortfolioVersions versions, LoanAnalytics loanAnalytics, int projectionPaths,
+                           ReportCache cache) {
+        this.versions = versions;
+        this.loanAnalytics = loanAnalytics;
+        this.projectionPaths = projectionPaths;
+        this.cache = cache;
+    }
+
+    // The current version, for callers that want several reports to agree
+    public PortfolioVersions.Snapshot snapshot() {
+        return versions.snapshot();
+    }
+
+    public void writeReport(String reportType, ReportWriter report) {
+        writeReport(versions.snapshot(), reportType, report);
+    }
+
+    // Timed per report type as "report.<type>", e.g. "report.debt-overview",
+    // including the time the sink takes to accept the text, and recorded as
+    // a ReportGenerationEvent for Flight Recorder
+    public void writeReport(PortfolioVersions.Snapshot portfolio, String reportType, ReportWriter report) {
+        ReportGenerationEvent event = new ReportGenerationEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean cached = false;
+        try {
+            Date now = new Date();
+            report.append("=== ").append(reportType).append(" ===\n\n");
+            report.append("Generated on: ").appendDate(now).append("\n\n");
+            report.endSection();
+            if (cache == null) {
+                writeReportBody(portfolio, reportType, report);
+            } else {
+                cached = writeCachedReport(portfolio, reportType, FastFormat.toEpochDay(now), report);
+            }
+        } finally {
+            Metrics.histogram("report." + BatchReportRunner.slug(reportType)).recordSince(start);
+            event.reportType = reportType;
+            event.cached = cached;
+            event.commit();
+        }
+    }
+
+    // True when the report was replayed from the cache. A fresh report is
+    // passed through to the caller as it is generated and only stored once
+    // it has finished, so a cancelled or failed one is never served.
+    private boolean writeCachedReport(PortfolioVersions.Snapshot portfolio, String reportType, int epochDay,
+                                      ReportWriter report) {
+        List<String> chunks = cache.get(reportType, portfolio.getVersion(), projectionPaths, epochDay);
+        if (chunks != null) {
+            for (String chunk : chunks) {
+                report.append(chunk);
+                report.flush();
+            }
+            report.progress(100);
+            return true;
+        }
+        CapturingSink capture = new CapturingSink(report, cache.getMaxBytes());
+        writeReportBody(portfolio, reportType, new ReportWriter(capture));
+        if (capture.chunks != null) {
+            cache.put(reportType, portfolio.getVersion(), projectionPaths, epochDay, capture.chunks);
+        }
+        return false;
+    }
+
+    private void writeReportBody(PortfolioVersions.Snapshot portfolio, String reportType, ReportWriter report) {
+        switch (reportType) {
+            case "Net Worth Summary":
+                generateNetWorthReport(portfolio, report);
+                break;
+            case "Asset Allocation":
+                generateAssetAllocationReport(portfolio, report);
+                break;
+            case "Debt Overview":
+                generateDebtReport(portfolio, report);
+                break;
+            case "Cash Flow Analysis":
+                generateCashFlowReport(portfolio, report);
+                break;
+            case "Monte Carlo Projection":
+                generateProjectionReport(portfolio, report);
+                break;
+        }
+        report.flush();
+    }
+
+    private void generateNetWorthReport(PortfolioVersions.Snapshot portfolio, ReportWriter report) {
+        double totalAssets = portfolio.getAssetTotals().getTotalValue();
+        double totalLiabilities = portfolio.getLiabilityTotals().getTotalValue();
+        double netWorth = totalAssets - totalLiabilities;
+
+        report.append("TOTAL ASSETS: $").appendCurrency(totalAssets).append("\n");
+        report.append("TOTAL LIABILITIES: $").appendCurrency(totalLiabilities).append("\n");
+        report.append("NET WORTH: $").appendCurrency(netWorth).append("\n\n");
+
+        report.endSection();
+
+        int rows = portfolio.getAssets().size() + portfolio.getLiabilities().size();
+        int row = 0;
+        report.append("ASSET BREAKDOWN:\n");
+        for (FinancialAsset asset : portfolio.getAssets()) {
+            report.append("- ").append(asset.getName()).append(": $").appendCurrency(asset.getValue()).append("\n");
+            report.progress(++row, rows);
+        }
+        report.endSection();
+
+        report.append("\nLIABILITY BREAKDOWN:\n");
+        for (Loan loan : portfolio.getLiabilities()) {
+            report.append("- ").append(loan.getName()).append(": $").appendCurrency(loan.getValue()).append("\n");
+            report.progress(++row, rows);
+        }
+        report.endSection();
+
+        report.append("\nFINANCIAL HEALTH INDICATORS:\n");
+        double debtToAssetRatio = totalLiabilities / totalAssets;
+        report.append("- Debt-to-Asset Ratio: ").appendFixed2(debtToAssetRatio);
+        if (debtToAssetRatio < 0.3) {
+            report.append(" (Excellent)\n");
+        } else if (debtToAssetRatio < 0.5) {
+            report.append(" (Good)\n");
+        } else if (debtToAssetRatio < 0.7) {
+            report.append(" (Fair)\n");
+        } else {
+            report.append(" (Poor)\n");
+        }
+    }
+
+    private void generateAssetAllocationReport(PortfolioVersions.Snapshot portfolio, ReportWriter report) {
+        PortfolioAggregates totals = portfolio.getAssetTotals();
+        double totalStocks = totals.getTotalValue(ColumnarAssetManager.TYPE_STOCK);
+        double totalBonds = totals.getTotalValue(ColumnarAssetManager.TYPE_BOND);
+
+        double totalAssets = totalStocks + totalBonds;
+
+        double stockPercentage = (totalStocks / totalAssets) * 100;
+        double bondPercentage = (totalBonds / totalAssets) * 100;
+
+        report.append("ASSET ALLOCATION SUMMARY:\n");
+        report.append("Total Asset Value: $").appendCurrency(totalAssets).append("\n\n");
+
+        report.append("ALLOCATION BY ASSET CLASS:\n");
+        report.append("- Stocks: $").appendCurrency(totalStocks).append(" (").appendFixed2(stockPercentage).append("%)\n");
+        report.append("- Bonds: $").appendCurrency(totalBonds).append(" (").appendFixed2(bondPercentage).append("%)\n\n");
+        report.endSection();
+
+        report.append("TOP HOLDINGS:\n");
+        for (FinancialAsset asset : portfolio.topAssetsByValue(TOP_HOLDINGS)) {
+            report.append("- ").append(asset.getName()).append(": $").appendCurrency(asset.getValue()).append(" (")
+                    .appendFixed2((asset.getValue() / totalAssets) * 100).append("% of assets)\n");
+        }
+        report.append("\n");
+        report.endSection();
+
+        // Each section reads only its own type's rows
+        PortfolioVersions.Rows<FinancialAsset> stocks = portfolio.getAssets(ColumnarAssetManager.TYPE_STOCK);
+        PortfolioVersions.Rows<FinancialAsset> bonds = portfolio.getAssets(ColumnarAssetManager.TYPE_BOND);
+        int rows = stocks.size() + bonds.size();
+        int row = 0;
+        report.append("STOCKS BREAKDOWN:\n");
+        for (FinancialAsset asset : stocks) {
+            Stock stock = (Stock) asset;
+            report.progress(++row, rows);
+            report.append("- ").append(stock.getName())
+                    .append(" (").append(stock.getTicker()).append("): $")
+                    .appendCurrency(stock.getValue()).append(" (")
+                    .appendFixed2((stock.getValue() / totalStocks) * 100).append("% of stocks)\n");
+        }
+
+        report.endSection();
+
+        report.append("\nBONDS BREAKDOWN:\n");
+        for (FinancialAsset asset : bonds) {
+            Bond bond = (Bond) asset;
+            report.progress(++row, rows);
+            report.append("- ").append(bond.getName())
+                    .append(" (").append(bond.getInterestRate()).append("% interest): $")
+                    .appendCurrency(bond.getValue()).append(" (")
+                    .appendFixed2((bond.getValue() / totalBonds) * 100).append("% of bonds)\n");
+        }
+
+        report.endSection();
+
+        report.append("\nRECOMMENDATIONS:\n");
+        if (stockPercentage > 70) {
+            report.append("- Your portfolio is heavily weighted toward stocks. Consider increasing bond allocation for better risk management.\n");
+        } else if (bondPercentage > 70) {
+            report.append("- Your portfolio is heavily weighted toward bonds. Consider increasing stock allocation for potentially higher returns.\n");
+        } else {
+            report.append("- Your portfolio has a balanced allocation between stocks and bonds.\n");
+        }
+    }
+
+    private void generateDebtReport(PortfolioVersions.Snapshot portfolio, ReportWriter report) {
+        double totalDebt = portfolio.getLiabilityTotals().getTotalValue();
+        double monthlyPayments = portfolio.getLiabilityTotals().getTotalMonthlyPayments();
+
+        report.append("DEBT OVERVIEW:\n");
+        report.append("Total Debt: $").appendCurrency(totalDebt).append("\n");
+        report.append("Monthly Debt Payments: $").appendCurrency(monthlyPayments).append("\n\n");
+        report.endSection();
+
+        report.append("LOANS BREAKDOWN:\n");
+        int loans = portfolio.getLiabilities().size();
+        int row = 0;
+        for (Loan loan : portfolio.getLiabilities()) {
+            report.append("- ").append(loan.getName()).append(":\n");
+            report.append("  Current Balance: $").appendCurrency(loan.getValue()).append("\n");
+            report.append("  Interest Rate: ").append(loan.getInterestRate()).append("%\n");
+            LoanAnalytics.Result analysis = loanAnalytics.analyze(loan);
+            report.append("  Monthly Payment: $").appendCurrency(analysis.monthlyPayment).append("\n");
+            report.append("  Payments Made: ").append(loan.getPaymentsMade()).append(" of ").append(loan.getTerm()).append("\n");
+            report.append("  Remaining Payments: ").append(analysis.remainingPayments).append("\n");
+            report.append("  Payoff Date: ").appendDate(loanAnalytics.getPayoffDate(loan)).append("\n");
+            report.append("  Total Remaining Interest: $").appendCurrency(analysis.remainingInterest).append("\n\n");
+            report.progress(++row, loans);
+        }
+        report.endSection();
+
+        report.append("DEBT REPAYMENT STRATEGIES:\n");
+        report.append("1. Debt Snowball: Pay minimum on all debts, then extra on smallest balance first.\n");
+        report.append("2. Debt Avalanche: Pay minimum on all debts, then extra on highest interest rate first.\n");
+        report.append("3. Optimized: The cheapest of ").append(DebtRepaymentOptimizer.DEFAULT_ORDERS)
+                .append(" orders blending interest rate and balance.\n");
+        report.append("Each paid-off loan's minimum is rolled into the next.\n\n");
+
+        if (loans > DEBT_MAX_OPTIMIZED_LOANS) {
+            report.append("Repayment orders are compared for up to ").append(DEBT_MAX_OPTIMIZED_LOANS)
+                    .append(" loans; this portfolio has ").append(loans).append(".\n");
+            return;
+        }
+        DebtRepaymentOptimizer optimizer = DebtRepaymentOptimizer.of(portfolio.getLiabilities(), loanAnalytics);
+        if (optimizer.getLoanCount() == 0) {
+            report.append("No outstanding balances to repay.\n");
+            return;
+        }
+        int levels = debtBudgetLevels(optimizer.getLoanCount());
+        DebtRepaymentOptimizer.Result strategies = optimizer.run(optimizer.budgetLevels(levels));
+        report.append("Simulated ").append(levels).append(" extra budgets from $0.00 to $")
+                .appendCurrency(optimizer.getTotalMinimum()).append(" a month\n\n");
+        for (int step = 0; step < REPORTED_DEBT_BUDGETS; step++) {
+            int b = (int) Math.round((double) step * (levels - 1) / (REPORTED_DEBT_BUDGETS - 1));
+            report.append("Extra $").appendCurrency(strategies.budgets[b]).append(" a month:\n");
+            appendDebtOutcome(report, "  Snowball: ", strategies.snowball[b]);
+            appendDebtOutcome(report, "  Avalanche: ", strategies.avalanche[b]);
+            appendDebtOutcome(report, "  Optimized (" + Math.round(strategies.optimizedRateWeight[b] * 100)
+                    + "% rate weighting): ", strategies.optimized[b]);
+        }
+        report.endSection();
+
+        // Judged at the middle budget
+        int middle = levels / 2;
+        double saving = strategies.snowball[middle].interest - strategies.avalanche[middle].interest;
+        if (saving > 0.01 * strategies.snowball[middle].interest) {
+            report.append("\nRecommendation: Consider the Debt Avalanche method to minimize interest payments; at $")
+                    .appendCurrency(strategies.budgets[middle]).append(" extra a month it saves $")
+                    .appendCurrency(saving).append(".\n");
+        } else {
+            report.append("\nRecommendation: Consider the Debt Snowball method for psychological wins and momentum.\n");
+        }
+    }
+
+    static int debtBudgetLevels(int loans) {
+        long levels = (long) DEBT_BUDGET_LEVELS * DEBT_FULL_SEARCH_LOANS / Math.max(1, loans);
+        return (int) Math.max(REPORTED_DEBT_BUDGETS, Math.min(DEBT_BUDGET_LEVELS, levels));
+    }
+
+    private static void appendDebtOutcome(ReportWriter report, String label, DebtRepaymentOptimizer.Outcome outcome) {
+        report.append(label);
+        if (outcome.months == Integer.MAX_VALUE) {
+            report.append("never paid off\n");
+            return;
+        }
+        report.append("$").appendCurrency(outcome.interest).append(" interest, debt free by ")
+                .appendDate(outcome.getPayoffDate()).append("\n");
+    }
+
+    private void generateCashFlowReport(PortfolioVersions.Snapshot portfolio, ReportWriter report) {
+        // This would be more detailed in a real app with income tracking
+        double monthlyLiabilities = portfolio.getLiabilityTotals().getTotalMonthlyPayments();
+        double monthlyAssetIncome = portfolio.getAssetTotals().getAnnualBondIncome() / 12;
+
+        report.append("CASH FLOW ANALYSIS:\n\n");
+        report.append("MONTHLY INCOME:\n");
+        report.append("- Asset Generated Income: $").appendCurrency(monthlyAssetIncome).append("\n");
+        report.append("- Other Income: $0.00 (Add your income sources in a real application)\n");
+        report.append("Total Monthly Income: $").appendCurrency(monthlyAssetIncome).append("\n\n");
+
+        report.append("MONTHLY EXPENSES:\n");
+        report.append("- Debt Payments: $").appendCurrency(monthlyLiabilities).append("\n");
+        report.append("- Other Expenses: $0.00 (Add your expenses in a real application)\n");
+        report.append("Total Monthly Expenses: $").appendCurrency(monthlyLiabilities).append("\n\n");
+
+        double netCashFlow = monthlyAssetIncome - monthlyLiabilities;
+        report.append("NET MONTHLY CASH FLOW: $").appendCurrency(netCashFlow).append("\n");
+
+        if (netCashFlow < 0) {
+            report.append("\nWARNING: Your current expenses exceed your income. Consider reducing expenses or increasing income sources.\n");
+        } else {
+            report.append("\nYour monthly cash flow is positive. Consider allocating the surplus to savings or investments.\n");
+        }
+    }
+
+    private void generateProjectionReport(PortfolioVersions.Snapshot portfolio, ReportWriter report) {
+        MonteCarloProjection projection = MonteCarloProjection.of(portfolio.getAssetTotals(), portfolio.getLiabilities(),
+                loanAnalytics, PROJECTION_YEARS);
+        MonteCarloProjection.Result result = projection.run(projectionPaths, System.nanoTime(),
+                ForkJoinPool.commonPool(), report::progress);
+
+        report.append("MONTE CARLO PROJECTION:\n");
+        report.append("Simulated Paths: ").append(result.paths).append(" over ")
+                .append(PROJECTION_YEARS).append(" years (monthly steps)\n");
+        report.append("Starting Net Worth: $").appendCurrency(result.startingNetWorth).append("\n\n");
+
+        report.append("ASSUMPTIONS:\n");
+        report.append("- Stocks: ").appendFixed2(MonteCarloProjection.STOCK_RETURN * 100).append("% expected return, ")
+                .appendFixed2(MonteCarloProjection.STOCK_VOLATILITY * 100).append("% volatility\n");
+        report.append("- Bonds: ").appendFixed2(projection.getBondReturn() * 100).append("% expected return, ")
+                .appendFixed2(MonteCarloProjection.BOND_VOLATILITY * 100).append("% volatility\n");
+        report.append("- Stock/bond correlation: ").appendFixed2(MonteCarloProjection.CORRELATION).append("\n");
+        report.append("- Debt follows each loan's payment schedule\n\n");
+        report.endSection();
+
+        report.append("NET WORTH PERCENTILE BANDS:\n");
+        for (int c = 0; c < result.years.length; c++) {
+            report.append("Year ").append(result.years[c]).append(":\n");
+            for (int p = 0; p < MonteCarloProjection.PERCENTILES.length; p++) {
+                double percentile = MonteCarloProjection.PERCENTILES[p];
+                report.append(percentile == 50 ? "  Median: $" : "  " + (int) percentile + "th Percentile: $")
+                        .appendCurrency(result.bands[c][p]).append("\n");
+            }
+        }
+        report.endSection();
+
+        report.append("\nProbability of ending below today's net worth: ")
+                .appendFixed2(result.probabilityBelowStart * 100).append("%\n");
+        report.append("Simulated on ").append(ForkJoinPool.commonPool().getParallelism()).append(" threads\n");
+    }
+
+    public double calculateNetWorth() {
+        PortfolioVersions.Snapshot portfolio = versions.snapshot();
+        return portfolio.getAssetTotals().getTotalValue() - portfolio.getLiabilityTotals().getTotalValue();
+    }
+
+    // Forwards each chunk to the caller's writer and keeps a copy, giving up
+    // the copy once the report is too big to cache
+    private static final class CapturingSink implements ReportSink {
+        private final ReportWriter target;
+        private final long maxBytes;
+        private List<String> chunks = new ArrayList<>();
+        private long bytes;
+
+        CapturingSink(ReportWriter target, long maxBytes) {
+            this.target = target;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void write(CharSequence text) {
+            String chunk = text.toString();
+            if (chunks != null) {
+                bytes += ReportCache.sizeOf(chunk);
+                if (bytes <= maxBytes) {
+                    chunks.add(chunk);
+                } else {
+                    chunks = null;
+                }
+            }
+            target.append(chunk);
+            target.flush();
+        }
+
+        @Override
+        public void progress(int percent) {
+            target.progress(percent);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.print.PageFormat;
+import java.awt.print.Printable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Prints a file laid out by PaginatedReportSink, one layout page to each
+// printed page. Only where each page starts is kept; the printer asks for
+// pages one at a time and each is read back from the file then, so a
+// report of any length prints in constant memory.
+final class ReportPrintable implements Printable {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 10);
+
+    private final Path file;
+    // Byte offset of each page, then the end of the file
+    private final long[] pageStarts;
+
+    private ReportPrintable(Path file, long[] pageStarts) {
+        this.file = file;
+        this.pageStarts = pageStarts;
+    }
+
+    // Finds the pages by their form feeds, which UTF-8 never uses inside a character
+    static ReportPrintable open(Path file) throws IOException {
+        long[] starts = new long[16];
+        int pages = 1;
+        long position = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    position++;
+                    if (buffer.get() == '\f') {
+                        if (pages == starts.length) {
+                            starts = Arrays.copyOf(starts, pages * 2);
+                        }
+                        starts[pages++] = position;
+                    }
+                }
+                buffer.clear();
+            }
+        }
+        starts = Arrays.copyOf(starts, pages + 1);
+        starts[pages] = position;
+        return new ReportPrintable(file, starts);
+    }
+
+    public int getPageCount() {
+        return pageStarts.length - 1;
+    }
+
+    @Override
+    public int print(Graphics graphics, PageFormat format, int pageIndex) {
+        if (pageIndex < 0 || pageIndex >= getPageCount()) {
+            return NO_SUCH_PAGE;
+        }
+        String[] lines;
+        try {
+            lines = readPage(pageIndex);
+        } catch (IOException e) {
+            // Printable has no way to report it; the page prints blank
+            return PAGE_EXISTS;
+        }
+
+        Graphics2D g = (Graphics2D) graphics.create();
+        try {
+            g.translate(format.getImageableX(), format.getImageableY());
+            g.setFont(FONT);
+            g.setColor(Color.BLACK);
+            FontMetrics metrics = g.getFontMetrics();
+            // Shrink, never enlarge, so a full layout page fits the paper
+            int rows = PaginatedReportSink.HEADER_LINES + PaginatedReportSink.LINES_PER_PAGE;
+            double scale = Math.min(1, Math.min(
+                    format.getImageableWidth() / (metrics.charWidth('M') * (double) PaginatedReportSink.WIDTH),
+                    format.getImageableHeight() / (metrics.getHeight() * (double) rows)));
+            g.scale(scale, scale);
+            int y = metrics.getAscent();
+            for (String line : lines) {
+                g.drawString(line, 0, y);
+                y += metrics.getHeight();
+            }
+        } finally {
+            g.dispose();
+        }
+        return PAGE_EXISTS;
+    }
+
+    String[] readPage(int pageIndex) throws IOException {
+        long start = pageStarts[pageIndex];
+        ByteBuffer bytes = ByteBuffer.allocate((int) (pageStarts[pageIndex + 1] - start));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes, start + bytes.position()) < 0) {
+                    break;
+                }
+            }
+        }
+        bytes.flip();
+        String page = StandardCharsets.UTF_8.decode(bytes).toString();
+        int end = page.length();
+        while (end > 0 && (page.charAt(end - 1) == '\f' || page.charAt(end - 1) == '\n')) {
+            end--;
+        }
+        return page.substring(0, end).split("\n", -1);
+    }
+}
@@ -0,0 +1,22 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// Receives report text as it is produced
+interface ReportSink {
+    void write(CharSequence text);
+
+    // Percentage of the report generated so far, 0-100
+    default void progress(int percent) {
+    }
+
+    // Sink over any Appendable, such as a Writer; I/O errors surface as UncheckedIOException
+    static ReportSink of(Appendable out) {
+        return text -> {
+            try {
+                out.append(text);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+}
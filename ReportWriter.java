@@ -0,0 +1,82 @@
+import java.util.Date;
+
+// Buffers report text and passes it to a sink in chunks, so a long report
+// can be shown or saved while it is still being generated
+class ReportWriter {
+    private static final int FLUSH_THRESHOLD = 8192;
+    // Report progress at most this often when walking large collections
+    private static final int PROGRESS_STRIDE = 1024;
+
+    private final ReportSink sink;
+    private final StringBuilder buffer = new StringBuilder(FLUSH_THRESHOLD + 256);
+
+    public ReportWriter(ReportSink sink) {
+        this.sink = sink;
+    }
+
+    public ReportWriter append(String text) {
+        buffer.append(text);
+        return flushIfFull();
+    }
+
+    public ReportWriter append(char c) {
+        buffer.append(c);
+        return flushIfFull();
+    }
+
+    public ReportWriter append(int value) {
+        buffer.append(value);
+        return flushIfFull();
+    }
+
+    public ReportWriter append(double value) {
+        buffer.append(value);
+        return flushIfFull();
+    }
+
+    public ReportWriter appendCurrency(double amount) {
+        FastFormat.appendCurrency(buffer, amount);
+        return flushIfFull();
+    }
+
+    public ReportWriter appendFixed2(double value) {
+        FastFormat.appendFixed2(buffer, value);
+        return flushIfFull();
+    }
+
+    public ReportWriter appendDate(Date date) {
+        FastFormat.appendDate(buffer, date);
+        return flushIfFull();
+    }
+
+    // Called at the end of each report section so it shows up as one piece
+    public void endSection() {
+        flush();
+    }
+
+    // Progress through a sequence of items, reported every few thousand items
+    public void progress(int done, int total) {
+        if (total > 0 && (done % PROGRESS_STRIDE == 0 || done == total)) {
+            sink.progress((int) ((long) done * 100 / total));
+        }
+    }
+
+    // Progress of work that tracks its own percentage
+    public void progress(int percent) {
+        sink.progress(percent);
+    }
+
+    public void flush() {
+        if (buffer.length() > 0) {
+            sink.write(buffer);
+            buffer.setLength(0);
+        }
+    }
+
+    private ReportWriter flushIfFull() {
+        if (buffer.length() >= FLUSH_THRESHOLD) {
+            flush();
+        }
+        return this;
+    }
+}
@@ -0,0 +1,44 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Start-up milestones for the desktop app, in milliseconds since main().
+// "first frame" is the first paint of the loading placeholder and
+// "interactive" is the first view painted over a loaded portfolio. Each
+// mark is printed as it happens, with the JVM uptime alongside so class
+// loading before main() is visible too.
+final class StartupTimer {
+    private static long start = System.nanoTime();
+    private static final Map<String, Long> marks = new LinkedHashMap<>();
+
+    private StartupTimer() {
+    }
+
+    static synchronized void start() {
+        start = System.nanoTime();
+        marks.clear();
+    }
+
+    // Records the first occurrence of a milestone and returns its time
+    static synchronized long mark(String milestone) {
+        Long existing = marks.get(milestone);
+        if (existing != null) {
+            return existing;
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        marks.put(milestone, millis);
+        System.out.println("Startup: " + milestone + " after " + millis + " ms (JVM up "
+                + ManagementFactory.getRuntimeMXBean().getUptime() + " ms)");
+        return millis;
+    }
+
+    // -1 until the milestone has been reached
+    static synchronized long get(String milestone) {
+        Long millis = marks.get(milestone);
+        return millis == null ? -1 : millis;
+    }
+
+    static synchronized Map<String, Long> getMarks() {
+        return new LinkedHashMap<>(marks);
+    }
+}
@@ -3,20 +3,52 @@ import java.util.Date;
 class Stock extends FinancialAsset {
     private String ticker;
     private int shares;
-    private double pricePerShare;
+    private long priceCents;
 
     public Stock(String name, double value, Date purchaseDate, String ticker, int shares, double pricePerShare) {
         super(name, value, purchaseDate);
         this.ticker = ticker;
         this.shares = shares;
-        this.pricePerShare = pricePerShare;
+        this.priceCents = Money.toCents(pricePerShare);
         setType("Stock");
     }
 
+    @Override
+    Stock copy() {
+        Stock copy = new Stock(getName(), 0, getPurchaseDate(), ticker, shares, 0);
+        copy.copyState(this);
+        return copy;
+    }
+
+    @Override
+    protected void copyState(FinancialAsset from) {
+        super.copyState(from);
+        Stock stock = (Stock) from;
+        this.ticker = stock.ticker;
+        this.shares = stock.shares;
+        this.priceCents = stock.priceCents;
+    }
+
+    @Override
+    protected void revertState(FinancialAsset before, FinancialAsset after) {
+        super.revertState(before, after);
+        Stock was = (Stock) before;
+        Stock now = (Stock) after;
+        int liveShares = shares;
+        long livePrice = priceCents;
+        this.ticker = revertField(ticker, was.ticker, now.ticker);
+        this.shares = revertField(shares, was.shares, now.shares);
+        this.priceCents = revertField(priceCents, was.priceCents, now.priceCents);
+        // Shares may go back under a newer price; value follows whatever is left
+        if (shares != liveShares || priceCents != livePrice) {
+            storeValueCents(Math.multiplyExact(shares, priceCents));
+        }
+    }
+
     @Override
     public double calculateInterest() {
         // For stocks, we'll use an expected annual return
-        return getValue() * 0.07; // 7% estimated annual return
+        return Money.toDouble(Money.applyRate(getValueCents(), 7, 1)); // 7% estimated annual return
     }
 
     public String getTicker() {
@@ -24,7 +56,9 @@ class Stock extends FinancialAsset {
     }
 
     public void setTicker(String ticker) {
+        fireBeforeChange();
         this.ticker = ticker;
+        fireAfterChange();
     }
 
     public int getShares() {
@@ -32,18 +66,31 @@ class Stock extends FinancialAsset {
     }
 
     public void setShares(int shares) {
+        // Value follows shares and price; listeners see both change together
+        long valueCents = Math.multiplyExact(shares, priceCents);
+        fireBeforeChange();
         this.shares = shares;
-        // Update value based on shares and price
-        setValue(shares * pricePerShare);
+        storeValueCents(valueCents);
+        fireAfterChange();
     }
 
     public double getPricePerShare() {
-        return pricePerShare;
+        return Money.toDouble(priceCents);
     }
 
     public void setPricePerShare(double pricePerShare) {
-        this.pricePerShare = pricePerShare;
-        // Update value based on shares and price
-        setValue(shares * pricePerShare);
+        setPriceCents(Money.toCents(pricePerShare));
+    }
+
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    public void setPriceCents(long priceCents) {
+        long valueCents = Math.multiplyExact(shares, priceCents);
+        fireBeforeChange();
+        this.priceCents = priceCents;
+        storeValueCents(valueCents);
+        fireAfterChange();
     }
 }
@@ -27,5 +27,27 @@ class StockTest {
         stock.setPricePerShare(120);
         assertEquals(12000, stock.getValue(), "Stock value update failed after changing price per share");
     }
-}
 
+    @Test
+    void testListenersSeeOneConsistentChange() {
+        long[] seen = new long[4];
+        stock.setChangeListener(new AssetChangeListener() {
+            @Override
+            public void beforeChange(FinancialAsset asset) {
+                seen[0] = stock.getShares();
+                seen[1] = asset.getValueCents();
+            }
+
+            @Override
+            public void afterChange(FinancialAsset asset) {
+                seen[2] = stock.getShares();
+                seen[3] = asset.getValueCents();
+            }
+        });
+        long version = stock.getVersion();
+        stock.setShares(150);
+
+        assertArrayEquals(new long[]{100, 1_000_000, 150, 1_500_000}, seen, "Listeners saw a half-applied change");
+        assertEquals(version + 1, stock.getVersion(), "A share change should be one version");
+    }
+}
@@ -0,0 +1,108 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+// Replays a recorded tick file into an ingestor. Each line is
+// "epochMillis,TICKER,price", e.g. "1717243200000,AAPL,189.25". Replay can
+// follow the recorded timing, scaled by a speed factor, or run flat out.
+class TickFileFeed {
+    private final Path file;
+
+    public TickFileFeed(Path file) {
+        this.file = file;
+    }
+
+    // Replays the whole file and returns the number of ticks published.
+    // A speed of 2 plays twice as fast as recorded; 0 or less ignores timing.
+    public long replay(TickIngestor ingestor, double speed) throws IOException, InterruptedException {
+        // Share one String per ticker rather than one per line
+        Map<String, String> tickerNames = new HashMap<>();
+        long count = 0;
+        long firstTimestamp = Long.MIN_VALUE;
+        long startNanos = System.nanoTime();
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                int firstComma = line.indexOf(',');
+                int secondComma = line.indexOf(',', firstComma + 1);
+                if (firstComma < 0 || secondComma < 0) {
+                    throw new IOException("Malformed tick on line " + lineNumber + ": " + line);
+                }
+
+                long timestamp;
+                long priceCents;
+                try {
+                    timestamp = Long.parseLong(line, 0, firstComma, 10);
+                    priceCents = parseCents(line, secondComma + 1, line.length());
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed tick on line " + lineNumber + ": " + line, e);
+                }
+                String ticker = tickerNames.computeIfAbsent(line.substring(firstComma + 1, secondComma), t -> t);
+
+                if (speed > 0) {
+                    if (firstTimestamp == Long.MIN_VALUE) {
+                        firstTimestamp = timestamp;
+                    }
+                    long dueNanos = startNanos + (long) ((timestamp - firstTimestamp) * 1_000_000 / speed);
+                    long waitNanos = dueNanos - System.nanoTime();
+                    if (waitNanos > 1_000_000) {
+                        Thread.sleep(waitNanos / 1_000_000);
+                    }
+                }
+                ingestor.publish(timestamp, ticker, priceCents);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static void write(BufferedWriter out, long timestamp, String ticker, long priceCents) throws IOException {
+        out.write(Long.toString(timestamp));
+        out.write(',');
+        out.write(ticker);
+        out.write(',');
+        out.write(Long.toString(priceCents / 100));
+        out.write('.');
+        long fraction = Math.abs(priceCents % 100);
+        out.write((char) ('0' + fraction / 10));
+        out.write((char) ('0' + fraction % 10));
+        out.newLine();
+    }
+
+    // Non-negative decimal price with at most two fraction digits, in cents
+    static long parseCents(CharSequence text, int from, int to) {
+        long cents = 0;
+        int fractionDigits = -1;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9' && fractionDigits < 2) {
+                cents = Math.addExact(Math.multiplyExact(cents, 10), c - '0');
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else {
+                throw new NumberFormatException("Invalid price: " + text.subSequence(from, to));
+            }
+        }
+        if (to == from || fractionDigits == 0) {
+            throw new NumberFormatException("Invalid price: " + text.subSequence(from, to));
+        }
+        for (int i = Math.max(fractionDigits, 0); i < 2; i++) {
+            cents *= 10;
+        }
+        return cents;
+    }
+}
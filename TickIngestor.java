@@ -0,0 +1,143 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+// Applies price ticks to the stocks in a store. Feeds publish into a ring
+// buffer from any thread; a single ingest thread drains it in batches, keeps
+// only the latest price per ticker and applies the batch under the store
+// lock. Views hear about it through the store's row events, which the event
+// bus already coalesces to one repaint per frame, so the EDT never sees
+// more than the display can show.
+class TickIngestor implements AutoCloseable {
+    static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int MAX_BATCH = 1 << 14;
+    private static final long IDLE_PARK_NANOS = 200_000;
+
+    private final ColumnarAssetManager<FinancialAsset> store;
+    private final TickRingBuffer ring;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // Owned by the ingest thread; one entry per ticker seen on the feed
+    private final Map<String, TickerEntry> tickers = new HashMap<>();
+    private final List<TickerEntry> batch = new ArrayList<>();
+    private final TickRingBuffer.Handler collector = this::collect;
+
+    private volatile long ticksApplied;
+    private volatile long pricesApplied;
+    private volatile long batchesApplied;
+
+    public TickIngestor(ColumnarAssetManager<FinancialAsset> store) {
+        this(store, DEFAULT_CAPACITY);
+    }
+
+    public TickIngestor(ColumnarAssetManager<FinancialAsset> store, int capacity) {
+        this.store = store;
+        this.ring = new TickRingBuffer(capacity);
+        thread = new Thread(this::run, "tick-ingest");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Waits for ring space, so a replayed feed never loses ticks
+    public void publish(long timestamp, String ticker, long priceCents) {
+        ring.put(timestamp, ticker, priceCents);
+    }
+
+    // Drops the tick and returns false when the ring is full
+    public boolean offer(long timestamp, String ticker, long priceCents) {
+        return ring.offer(timestamp, ticker, priceCents);
+    }
+
+    // Blocks until every tick published so far has been applied
+    public void awaitApplied() throws InterruptedException {
+        long target = ring.claimed();
+        while (ticksApplied < target) {
+            if (!thread.isAlive()) {
+                throw new IllegalStateException("Tick ingestion has stopped");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    public long getTicksApplied() {
+        return ticksApplied;
+    }
+
+    // Stock repricings after coalescing; at most one per ticker per batch
+    public long getPricesApplied() {
+        return pricesApplied;
+    }
+
+    public long getBatchesApplied() {
+        return batchesApplied;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            int drained = ring.drain(collector, MAX_BATCH);
+            if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            applyBatch();
+            ticksApplied += drained;
+        }
+    }
+
+    // Keeps the newest price; the entry joins the batch on its first tick
+    private void collect(long timestamp, String ticker, long priceCents) {
+        TickerEntry entry = tickers.get(ticker);
+        if (entry == null) {
+            entry = new TickerEntry(ticker);
+            tickers.put(ticker, entry);
+        }
+        if (!entry.pending) {
+            entry.pending = true;
+            batch.add(entry);
+        }
+        entry.priceCents = priceCents;
+    }
+
+    private void applyBatch() {
+        int applied = 0;
+        synchronized (store) {
+            for (TickerEntry entry : batch) {
+                entry.pending = false;
+                for (FinancialAsset asset : store.findByTicker(entry.ticker)) {
+                    Stock stock = (Stock) asset;
+                    if (stock.getPriceCents() != entry.priceCents) {
+                        stock.setPriceCents(entry.priceCents);
+                        applied++;
+                    }
+                }
+            }
+        }
+        batch.clear();
+        pricesApplied += applied;
+        batchesApplied++;
+    }
+
+    private static final class TickerEntry {
+        final String ticker;
+        long priceCents;
+        boolean pending;
+
+        TickerEntry(String ticker) {
+            this.ticker = ticker;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+class TickIngestorTest {
+    private ColumnarAssetManager<FinancialAsset> store;
+    private Stock apple;
+    private Stock amazon;
+    private TickIngestor ingestor;
+
+    @BeforeEach
+    void setUp() {
+        store = new ColumnarAssetManager<>(FinancialAsset.class);
+        apple = new Stock("Apple", 10000, new Date(), "AAPL", 100, 100);
+        amazon = new Stock("Amazon", 5000, new Date(), "AMZN", 10, 500);
+        store.addAsset(apple);
+        store.addAsset(amazon);
+        ingestor = new TickIngestor(store, 1024);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingestor.close();
+    }
+
+    @Test
+    void testLatestPriceWins() throws InterruptedException {
+        for (int i = 1; i <= 5000; i++) {
+            ingestor.publish(i, "AAPL", 10000 + i);
+        }
+        ingestor.publish(5001, "MSFT", 42000);
+        ingestor.awaitApplied();
+
+        assertEquals(150.00, apple.getPricePerShare(), 0.001, "Latest tick was not applied");
+        assertEquals(20000, store.getAggregates().getTotalValue(ColumnarAssetManager.TYPE_STOCK), 0.001, "Aggregates not updated by ticks");
+        assertTrue(ingestor.getPricesApplied() < 5000, "Ticks were not coalesced per batch");
+    }
+
+    @Test
+    void testConcurrentProducers() throws InterruptedException {
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            String ticker = p % 2 == 0 ? "AAPL" : "AMZN";
+            producers[p] = new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    ingestor.publish(i, ticker, 20000);
+                }
+            });
+            producers[p].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        ingestor.awaitApplied();
+
+        assertEquals(80000, ingestor.getTicksApplied(), "Ticks were lost between producers");
+        assertEquals(200.00, amazon.getPricePerShare(), 0.001, "Price not applied from concurrent producers");
+    }
+
+    @Test
+    void testFileReplay() throws Exception {
+        Path file = Files.createTempFile("ticks", ".csv");
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(file)) {
+                TickFileFeed.write(out, 1000, "AAPL", 12345);
+                TickFileFeed.write(out, 1001, "AMZN", 50005);
+            }
+            long ticks = new TickFileFeed(file).replay(ingestor, 0);
+            ingestor.awaitApplied();
+
+            assertEquals(2, ticks, "Tick count is incorrect");
+            assertEquals(123.45, apple.getPricePerShare(), 0.001, "Replayed price is incorrect");
+            assertEquals(500.05, amazon.getPricePerShare(), 0.001, "Replayed price is incorrect");
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Bounded multi-producer, single-consumer queue of price ticks. Producers
+// claim a position with a CAS on the tail and publish it with a release
+// write of the slot's sequence; the consumer reads slots in order without
+// locks. Ticks are held in parallel arrays, so publishing allocates nothing.
+final class TickRingBuffer {
+    private static final VarHandle SEQUENCE = MethodHandles.arrayElementVarHandle(long[].class);
+
+    interface Handler {
+        void onTick(long timestamp, String ticker, long priceCents);
+    }
+
+    private final int capacity;
+    private final int mask;
+    // Slot i holds position p once sequences[i] == p + 1
+    private final long[] sequences;
+    private final long[] timestamps;
+    private final String[] tickers;
+    private final long[] priceCents;
+    private final AtomicLong tail = new AtomicLong();
+    // Written only by the consumer; producers read it to detect a full ring
+    private volatile long head;
+
+    TickRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.sequences = new long[capacity];
+        this.timestamps = new long[capacity];
+        this.tickers = new String[capacity];
+        this.priceCents = new long[capacity];
+    }
+
+    // Returns false without blocking when the ring is full
+    public boolean offer(long timestamp, String ticker, long priceCents) {
+        long position;
+        do {
+            position = tail.get();
+            if (position - head >= capacity) {
+                return false;
+            }
+        } while (!tail.compareAndSet(position, position + 1));
+
+        int index = (int) position & mask;
+        timestamps[index] = timestamp;
+        tickers[index] = ticker;
+        this.priceCents[index] = priceCents;
+        SEQUENCE.setRelease(sequences, index, position + 1);
+        return true;
+    }
+
+    // Waits for space rather than dropping the tick
+    public void put(long timestamp, String ticker, long priceCents) {
+        int spins = 0;
+        while (!offer(timestamp, ticker, priceCents)) {
+            if (++spins < 100) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(10_000);
+            }
+        }
+    }
+
+    // Consumer only: hands up to max published ticks to the handler, in order
+    public int drain(Handler handler, int max) {
+        long position = head;
+        int count = 0;
+        while (count < max) {
+            int index = (int) position & mask;
+            if ((long) SEQUENCE.getAcquire(sequences, index) != position + 1) {
+                break;
+            }
+            handler.onTick(timestamps[index], tickers[index], priceCents[index]);
+            position++;
+            count++;
+        }
+        if (count > 0) {
+            head = position;
+        }
+        return count;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // Positions claimed by producers so far, including any still being written
+    public long claimed() {
+        return tail.get();
+    }
+
+    public long consumed() {
+        return head;
+    }
+}
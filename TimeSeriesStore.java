@@ -0,0 +1,433 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Embedded, append-only store for named time series: daily net worth,
+// per-asset values and per-ticker prices. Points go into an open Gorilla
+// block per series; a full block is sealed into the current memory-mapped
+// segment file and never rewritten. Each sealed block keeps its time range,
+// count, min, max and sum in its header, so aggregations read whole blocks
+// from the header alone and decode only the blocks at the edges of a range.
+//
+// A block left partly filled by close() is reopened by the next append to
+// that series, and sealed again with the later points; the newer copy wins
+// when the segments are scanned. This keeps one-point-a-day series packed
+// however often the store is opened.
+//
+// Directory layout: "series" holds "id<TAB>name" lines, "segment-NNNNN.tsdb"
+// files hold the blocks, and "lock" keeps a second process out.
+class TimeSeriesStore implements AutoCloseable {
+    static final int BLOCK_POINTS = 512;
+    static final int SEGMENT_BYTES = 64 << 20;
+
+    // bitLength, seriesId, count, reserved, firstTimestamp, lastTimestamp, min, max, sum
+    private static final int HEADER_BYTES = 56;
+
+    private final Path directory;
+    private final FileChannel lockChannel;
+    private final BufferedWriter seriesFile;
+    private final Map<String, Series> seriesByName = new HashMap<>();
+    private final List<Series> seriesById = new ArrayList<>();
+    private final List<FileChannel> segmentChannels = new ArrayList<>();
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private int writePosition;
+    private boolean seriesDirty;
+
+    public TimeSeriesStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (lockChannel.tryLock() == null) {
+            lockChannel.close();
+            throw new IOException(directory + " is in use by another process");
+        }
+
+        Path seriesPath = directory.resolve("series");
+        if (Files.exists(seriesPath)) {
+            for (String line : Files.readAllLines(seriesPath, StandardCharsets.UTF_8)) {
+                int tab = line.indexOf('\t');
+                if (tab > 0) {
+                    register(Integer.parseInt(line.substring(0, tab)), line.substring(tab + 1));
+                }
+            }
+        }
+        seriesFile = Files.newBufferedWriter(seriesPath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        // Segments in name order, so later copies of a block replace earlier ones
+        TreeMap<String, Path> segmentFiles = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.tsdb")) {
+            for (Path file : files) {
+                segmentFiles.put(file.getFileName().toString(), file);
+            }
+        }
+        for (Path file : segmentFiles.values()) {
+            writePosition = scan(map(file), segments.size() - 1);
+        }
+        if (segments.isEmpty()) {
+            startSegment();
+        }
+        for (Series series : seriesById) {
+            if (series != null && !series.blocks.isEmpty()) {
+                BlockRef last = series.blocks.get(series.blocks.size() - 1);
+                series.lastTimestamp = last.lastTimestamp;
+                series.lastValue = valueAt(cursor(last), last.lastTimestamp);
+            }
+        }
+    }
+
+    // Appends a point. Timestamps within a series must not go backwards.
+    public synchronized void append(String name, long timestamp, double value) throws IOException {
+        Series series = seriesByName.get(name);
+        if (series == null) {
+            series = register(seriesById.size(), name);
+            seriesFile.write(series.id + "\t" + name);
+            seriesFile.newLine();
+            seriesDirty = true;
+        }
+        if (series.open == null) {
+            series.open = reopenLastBlock(series);
+        }
+        if (series.open.getCount() > 0 && timestamp < series.open.getLastTimestamp()) {
+            throw new IllegalArgumentException(name + ": timestamp " + timestamp
+                    + " is before " + series.open.getLastTimestamp());
+        }
+        series.open.append(timestamp, value);
+        series.lastTimestamp = timestamp;
+        series.lastValue = value;
+        if (series.open.getCount() == BLOCK_POINTS) {
+            seal(series);
+        }
+    }
+
+    public synchronized boolean contains(String name) {
+        return seriesByName.containsKey(name);
+    }
+
+    public synchronized int seriesCount() {
+        return seriesById.size();
+    }
+
+    // Long.MIN_VALUE when the series is empty or unknown
+    public synchronized long lastTimestamp(String name) {
+        Series series = seriesByName.get(name);
+        return series == null ? Long.MIN_VALUE : series.lastTimestamp;
+    }
+
+    // The latest value at or before the timestamp; NaN if there is none
+    public synchronized double valueAt(String name, long timestamp) {
+        Series series = seriesByName.get(name);
+        if (series == null || timestamp < series.firstTimestamp()) {
+            return Double.NaN;
+        }
+        if (timestamp >= series.lastTimestamp) {
+            return series.lastValue;
+        }
+        if (series.open != null && series.open.getCount() > 0 && timestamp >= series.open.getFirstTimestamp()) {
+            return valueAt(series.open.cursor(), timestamp);
+        }
+        // Last sealed block starting at or before the timestamp
+        int low = 0;
+        int high = series.blocks.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (series.blocks.get(mid).firstTimestamp <= timestamp) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return valueAt(cursor(series.blocks.get(low)), timestamp);
+    }
+
+    // Relative change between the values at two times, e.g. 0.025 for
+    // +2.5%; NaN when either end has no value or the start is zero
+    public double change(String name, long from, long to) {
+        double start = valueAt(name, from);
+        double end = valueAt(name, to);
+        return start == 0 ? Double.NaN : (end - start) / Math.abs(start);
+    }
+
+    // Calls the handler for each point with from <= timestamp <= to, in order
+    public synchronized void range(String name, long from, long to, PointHandler handler) {
+        Series series = seriesByName.get(name);
+        if (series == null) {
+            return;
+        }
+        for (BlockRef block : series.blocks) {
+            if (block.lastTimestamp >= from && block.firstTimestamp <= to) {
+                emit(cursor(block), from, to, handler);
+            }
+        }
+        if (series.open != null) {
+            emit(series.open.cursor(), from, to, handler);
+        }
+    }
+
+    // Count, min, max and sum over from <= timestamp <= to. Blocks wholly
+    // inside the range are answered from their headers.
+    public synchronized Aggregate aggregate(String name, long from, long to) {
+        Aggregate aggregate = new Aggregate();
+        Series series = seriesByName.get(name);
+        if (series == null) {
+            return aggregate;
+        }
+        for (BlockRef block : series.blocks) {
+            if (block.firstTimestamp >= from && block.lastTimestamp <= to) {
+                MappedByteBuffer segment = segments.get(block.segment);
+                aggregate.merge(segment.getInt(block.offset + 8), segment.getDouble(block.offset + 32),
+                        segment.getDouble(block.offset + 40), segment.getDouble(block.offset + 48));
+            } else if (block.lastTimestamp >= from && block.firstTimestamp <= to) {
+                emit(cursor(block), from, to, aggregate::add);
+            }
+        }
+        if (series.open != null) {
+            emit(series.open.cursor(), from, to, aggregate::add);
+        }
+        return aggregate;
+    }
+
+    // Bytes of segment space used, including superseded copies of reopened blocks
+    public synchronized long storedBytes() {
+        return (long) (segments.size() - 1) * SEGMENT_BYTES + writePosition;
+    }
+
+    // Seals every partly filled block so it survives a restart
+    public synchronized void flush() throws IOException {
+        for (Series series : seriesById) {
+            if (series.open != null && series.open.getCount() > 0) {
+                seal(series);
+            }
+        }
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        seriesFile.close();
+        for (FileChannel channel : segmentChannels) {
+            channel.close();
+        }
+        lockChannel.close();
+    }
+
+    private Series register(int id, String name) {
+        Series series = new Series(id);
+        while (seriesById.size() <= id) {
+            seriesById.add(null);
+        }
+        seriesById.set(id, series);
+        seriesByName.put(name, series);
+        return series;
+    }
+
+    // A partly filled sealed block is decoded into a fresh open block, so
+    // the next seal replaces it rather than leaving a short block behind
+    private GorillaBlock reopenLastBlock(Series series) {
+        GorillaBlock block = new GorillaBlock();
+        int last = series.blocks.size() - 1;
+        if (last >= 0 && series.blocks.get(last).count < BLOCK_POINTS) {
+            GorillaBlock.Cursor cursor = cursor(series.blocks.remove(last));
+            while (cursor.next()) {
+                block.append(cursor.timestamp(), cursor.value());
+            }
+        }
+        return block;
+    }
+
+    private void seal(Series series) throws IOException {
+        // Names reach the disk before any block that refers to them
+        if (seriesDirty) {
+            seriesFile.flush();
+            seriesDirty = false;
+        }
+        GorillaBlock block = series.open;
+        int words = GorillaBlock.wordCount(block.getBitLength());
+        int size = HEADER_BYTES + words * 8;
+        if (writePosition + size > SEGMENT_BYTES) {
+            startSegment();
+        }
+        MappedByteBuffer segment = segments.get(segments.size() - 1);
+        int offset = writePosition;
+        segment.putInt(offset + 4, series.id);
+        segment.putInt(offset + 8, block.getCount());
+        segment.putLong(offset + 16, block.getFirstTimestamp());
+        segment.putLong(offset + 24, block.getLastTimestamp());
+        segment.putDouble(offset + 32, block.getMin());
+        segment.putDouble(offset + 40, block.getMax());
+        segment.putDouble(offset + 48, block.getSum());
+        LongBuffer bits = block.words();
+        for (int i = 0; i < words; i++) {
+            segment.putLong(offset + HEADER_BYTES + i * 8, bits.get(i));
+        }
+        // The length goes in last; a zero length marks the end of the segment
+        segment.putInt(offset, block.getBitLength());
+        writePosition += size;
+
+        series.blocks.add(new BlockRef(segments.size() - 1, offset, block.getCount(),
+                block.getFirstTimestamp(), block.getLastTimestamp()));
+        // A partly filled block is reopened from the segment on the next append
+        series.open = block.getCount() < BLOCK_POINTS ? null : new GorillaBlock();
+    }
+
+    // Indexes the blocks in a segment and returns where the next one would go
+    private int scan(MappedByteBuffer segment, int segmentIndex) {
+        int offset = 0;
+        while (offset + HEADER_BYTES <= SEGMENT_BYTES) {
+            int bitLength = segment.getInt(offset);
+            if (bitLength == 0) {
+                break;
+            }
+            Series series = seriesById.get(segment.getInt(offset + 4));
+            BlockRef block = new BlockRef(segmentIndex, offset, segment.getInt(offset + 8),
+                    segment.getLong(offset + 16), segment.getLong(offset + 24));
+            int last = series.blocks.size() - 1;
+            if (last >= 0 && series.blocks.get(last).firstTimestamp == block.firstTimestamp) {
+                series.blocks.set(last, block);
+            } else {
+                series.blocks.add(block);
+            }
+            offset += HEADER_BYTES + GorillaBlock.wordCount(bitLength) * 8;
+        }
+        return offset;
+    }
+
+    private void startSegment() throws IOException {
+        String name = String.format("segment-%05d.tsdb", segments.size());
+        map(directory.resolve(name));
+        writePosition = 0;
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+        segmentChannels.add(channel);
+        segments.add(segment);
+        return segment;
+    }
+
+    private GorillaBlock.Cursor cursor(BlockRef block) {
+        MappedByteBuffer segment = segments.get(block.segment);
+        int words = GorillaBlock.wordCount(segment.getInt(block.offset));
+        LongBuffer bits = segment.slice(block.offset + HEADER_BYTES, words * 8).asLongBuffer();
+        return new GorillaBlock.Cursor(bits, block.count);
+    }
+
+    private static double valueAt(GorillaBlock.Cursor cursor, long timestamp) {
+        double value = Double.NaN;
+        while (cursor.next() && cursor.timestamp() <= timestamp) {
+            value = cursor.value();
+        }
+        return value;
+    }
+
+    private static void emit(GorillaBlock.Cursor cursor, long from, long to, PointHandler handler) {
+        while (cursor.next()) {
+            long timestamp = cursor.timestamp();
+            if (timestamp > to) {
+                return;
+            }
+            if (timestamp >= from) {
+                handler.onPoint(timestamp, cursor.value());
+            }
+        }
+    }
+
+    interface PointHandler {
+        void onPoint(long timestamp, double value);
+    }
+
+    static final class Aggregate {
+        private long count;
+        private double min = Double.NaN;
+        private double max = Double.NaN;
+        private double sum;
+
+        void add(long timestamp, double value) {
+            merge(1, value, value, value);
+        }
+
+        void merge(long count, double min, double max, double sum) {
+            if (this.count == 0) {
+                this.min = min;
+                this.max = max;
+            } else {
+                this.min = Math.min(this.min, min);
+                this.max = Math.max(this.max, max);
+            }
+            this.count += count;
+            this.sum += sum;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        public double getSum() {
+            return sum;
+        }
+
+        public double getAverage() {
+            return count == 0 ? Double.NaN : sum / count;
+        }
+    }
+
+    private static final class Series {
+        final int id;
+        final List<BlockRef> blocks = new ArrayList<>();
+        GorillaBlock open;
+        long lastTimestamp = Long.MIN_VALUE;
+        double lastValue = Double.NaN;
+
+        Series(int id) {
+            this.id = id;
+        }
+
+        long firstTimestamp() {
+            if (!blocks.isEmpty()) {
+                return blocks.get(0).firstTimestamp;
+            }
+            return open != null && open.getCount() > 0 ? open.getFirstTimestamp() : Long.MAX_VALUE;
+        }
+    }
+
+    private static final class BlockRef {
+        final int segment;
+        final int offset;
+        final int count;
+        final long firstTimestamp;
+        final long lastTimestamp;
+
+        BlockRef(int segment, int offset, int count, long firstTimestamp, long lastTimestamp) {
+            this.segment = segment;
+            this.offset = offset;
+            this.count = count;
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = lastTimestamp;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+class TimeSeriesStoreTest {
+    private static final long DAY = PortfolioHistory.DAY_MILLIS;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testQueriesAcrossSealedAndOpenBlocks() throws IOException {
+        try (TimeSeriesStore store = new TimeSeriesStore(dir)) {
+            // Two full blocks and part of a third
+            int days = TimeSeriesStore.BLOCK_POINTS * 2 + 100;
+            for (int day = 0; day < days; day++) {
+                store.append("net-worth", day * DAY, day * 10.0);
+            }
+
+            assertEquals(5000.0, store.valueAt("net-worth", 500 * DAY + 1), "Value in a sealed block is incorrect");
+            assertEquals(10500.0, store.valueAt("net-worth", 1050 * DAY), "Value in the open block is incorrect");
+            assertEquals((days - 1) * 10.0, store.valueAt("net-worth", Long.MAX_VALUE), "Latest value is incorrect");
+            assertTrue(Double.isNaN(store.valueAt("net-worth", -1)), "Value before the series should be NaN");
+            assertEquals(1.0, store.change("net-worth", 100 * DAY, 200 * DAY), 1e-12, "Change is incorrect");
+
+            TimeSeriesStore.Aggregate aggregate = store.aggregate("net-worth", 10 * DAY, 1100 * DAY);
+            assertEquals(1091, aggregate.getCount(), "Count is incorrect");
+            assertEquals(100.0, aggregate.getMin(), "Min is incorrect");
+            assertEquals(11000.0, aggregate.getMax(), "Max is incorrect");
+            assertEquals(5550.0, aggregate.getAverage(), 1e-9, "Average is incorrect");
+
+            List<Double> values = new ArrayList<>();
+            store.range("net-worth", 510 * DAY, 515 * DAY, (timestamp, value) -> values.add(value));
+            assertEquals(List.of(5100.0, 5110.0, 5120.0, 5130.0, 5140.0, 5150.0), values, "Range is incorrect");
+        }
+    }
+
+    @Test
+    void testReopensPartialBlocksAfterRestart() throws IOException {
+        // One point per session, as the desktop app records them
+        for (int day = 0; day < 20; day++) {
+            try (TimeSeriesStore store = new TimeSeriesStore(dir)) {
+                store.append("price:AAPL", day * DAY, 150 + day);
+                store.append("asset:Bond " + day, day * DAY, 1000);
+            }
+        }
+        try (TimeSeriesStore store = new TimeSeriesStore(dir)) {
+            assertEquals(21, store.seriesCount(), "Series count is incorrect");
+            assertEquals(19 * DAY, store.lastTimestamp("price:AAPL"), "Last timestamp is incorrect");
+            assertEquals(20, store.aggregate("price:AAPL", 0, Long.MAX_VALUE).getCount(), "Point count is incorrect");
+            assertEquals(155.0, store.valueAt("price:AAPL", 5 * DAY), "Value is incorrect");
+            assertThrows(IllegalArgumentException.class, () -> store.append("price:AAPL", 0, 1),
+                    "Appending into the past should fail");
+        }
+    }
+
+    @Test
+    void testHistoryRecordsOncePerDay() throws IOException {
+        ColumnarAssetManager<FinancialAsset> assets = new ColumnarAssetManager<>(FinancialAsset.class);
+        ColumnarAssetManager<Loan> liabilities = new ColumnarAssetManager<>(Loan.class);
+        Stock stock = new Stock("Apple Stock", 15000, new Date(), "AAPL", 100, 150.0);
+        assets.addAsset(stock);
+        liabilities.addAsset(new Loan("Car Loan", 5000, new Date(), 4.2, 60, 0));
+
+        try (PortfolioHistory history = new PortfolioHistory(new TimeSeriesStore(dir))) {
+            history.recordDay(1000, assets, liabilities);
+            history.recordDay(1000, assets, liabilities);
+            assertTrue(Double.isNaN(history.monthOverMonth(10000, 1000)), "A month of history is needed");
+
+            history.recordDay(1010, assets, liabilities);
+            assertEquals(10000.0, history.valueAt(PortfolioHistory.NET_WORTH, 1010), "Net worth is incorrect");
+            assertEquals(15000.0, history.getStore().valueAt("price:AAPL", 1010 * DAY), "Price should be stored in cents");
+            assertEquals(0.025, history.monthOverMonth(10250, 1040), 1e-12, "Month-over-month change is incorrect");
+        }
+    }
+}
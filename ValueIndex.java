@@ -0,0 +1,183 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Order-statistics treap over (value in cents, insertion sequence). Each node
+// carries its subtree size, so rank and select are O(log n) and top-N or
+// range queries cost O(log n) plus the number of results. The sequence
+// number breaks ties, so equal values still have distinct keys.
+class ValueIndex<T> {
+    private final SplittableRandom priorities = new SplittableRandom(0x5EED);
+    private Node<T> root;
+
+    private static final class Node<T> {
+        final long value;
+        final long seq;
+        final T item;
+        final int priority;
+        int size = 1;
+        Node<T> left;
+        Node<T> right;
+
+        Node(long value, long seq, T item, int priority) {
+            this.value = value;
+            this.seq = seq;
+            this.item = item;
+            this.priority = priority;
+        }
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public void add(long value, long seq, T item) {
+        Node<T> node = new Node<>(value, seq, item, priorities.nextInt());
+        Node<T>[] parts = split(root, value, seq);
+        root = merge(merge(parts[0], node), parts[1]);
+    }
+
+    public void remove(long value, long seq) {
+        Node<T>[] parts = split(root, value, seq);
+        // parts[1] starts with the key if present; drop its leftmost node
+        root = merge(parts[0], removeFirst(parts[1], value, seq));
+    }
+
+    // Largest values first
+    public List<T> top(int n) {
+        List<T> result = new ArrayList<>(Math.min(n, size()));
+        ArrayDeque<Node<T>> stack = new ArrayDeque<>();
+        Node<T> node = root;
+        while ((node != null || !stack.isEmpty()) && result.size() < n) {
+            while (node != null) {
+                stack.push(node);
+                node = node.right;
+            }
+            node = stack.pop();
+            result.add(node.item);
+            node = node.left;
+        }
+        return result;
+    }
+
+    // Items with minValue <= value <= maxValue, ascending
+    public List<T> range(long minValue, long maxValue) {
+        List<T> result = new ArrayList<>();
+        ArrayDeque<Node<T>> stack = new ArrayDeque<>();
+        Node<T> node = root;
+        while (node != null || !stack.isEmpty()) {
+            // Descend left only while the subtree can still hold values >= minValue
+            while (node != null) {
+                if (node.value < minValue) {
+                    node = node.right;
+                } else {
+                    stack.push(node);
+                    node = node.left;
+                }
+            }
+            if (stack.isEmpty()) {
+                break;
+            }
+            node = stack.pop();
+            if (node.value > maxValue) {
+                break;
+            }
+            result.add(node.item);
+            node = node.right;
+        }
+        return result;
+    }
+
+    // Number of items with a value below the given one
+    public int rank(long value) {
+        int rank = 0;
+        Node<T> node = root;
+        while (node != null) {
+            if (node.value < value) {
+                rank += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return rank;
+    }
+
+    // The k-th smallest item, counting from zero
+    public T select(int k) {
+        if (k < 0 || k >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + k + ", Size: " + size());
+        }
+        Node<T> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (k < leftSize) {
+                node = node.left;
+            } else if (k == leftSize) {
+                return node.item;
+            } else {
+                k -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int compare(Node<?> node, long value, long seq) {
+        int c = Long.compare(node.value, value);
+        return c != 0 ? c : Long.compare(node.seq, seq);
+    }
+
+    // Splits into keys below (value, seq) and keys at or above it
+    @SuppressWarnings("unchecked")
+    private static <T> Node<T>[] split(Node<T> node, long value, long seq) {
+        if (node == null) {
+            return (Node<T>[]) new Node<?>[2];
+        }
+        Node<T>[] parts;
+        if (compare(node, value, seq) < 0) {
+            parts = split(node.right, value, seq);
+            node.right = parts[0];
+            parts[0] = node;
+        } else {
+            parts = split(node.left, value, seq);
+            node.left = parts[1];
+            parts[1] = node;
+        }
+        node.size = size(node.left) + size(node.right) + 1;
+        return parts;
+    }
+
+    private static <T> Node<T> merge(Node<T> left, Node<T> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.size = size(left.left) + size(left.right) + 1;
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.size = size(right.left) + size(right.right) + 1;
+        return right;
+    }
+
+    private static <T> Node<T> removeFirst(Node<T> node, long value, long seq) {
+        if (node == null) {
+            return null;
+        }
+        if (node.left == null) {
+            return compare(node, value, seq) == 0 ? node.right : node;
+        }
+        node.left = removeFirst(node.left, value, seq);
+        node.size = size(node.left) + size(node.right) + 1;
+        return node;
+    }
+}
@@ -0,0 +1,34 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+class ValueIndexTest {
+    @Test
+    void testMatchesSortedReference() {
+        ValueIndex<long[]> index = new ValueIndex<>();
+        List<long[]> reference = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(1);
+        for (long seq = 0; seq < 5000; seq++) {
+            long[] entry = {random.nextInt(1000), seq};
+            index.add(entry[0], entry[1], entry);
+            reference.add(entry);
+        }
+        // Remove every third entry, including duplicates of surviving values
+        for (int i = reference.size() - 1; i >= 0; i -= 3) {
+            long[] entry = reference.remove(i);
+            index.remove(entry[0], entry[1]);
+        }
+        reference.sort(Comparator.<long[]>comparingLong(e -> e[0]).thenComparingLong(e -> e[1]));
+
+        assertEquals(reference.size(), index.size(), "Size is incorrect");
+        assertSame(reference.get(1234), index.select(1234), "Select is incorrect");
+        assertEquals(reference.get(reference.size() - 1), index.top(1).get(0), "Top entry is incorrect");
+        List<long[]> expectedRange = reference.stream().filter(e -> e[0] >= 250 && e[0] <= 260).collect(Collectors.toList());
+        assertEquals(expectedRange, index.range(250, 260), "Range is incorrect");
+        assertEquals(reference.stream().filter(e -> e[0] < 500).count(), index.rank(500), "Rank is incorrect");
+    }
+}
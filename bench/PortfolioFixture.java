@@ -0,0 +1,185 @@
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+
+// Deterministic synthetic portfolios shared by the benchmarks. JMH will not
+// generate benchmarks in the unnamed package, so the benchmark classes live
+// in a package and reach the model through this class via Handles.
+final class PortfolioFixture {
+    private static final long SEED = 20240601L;
+
+    private PortfolioFixture() {
+    }
+
+    // Without a report cache, so report benchmarks time generation, not replay
+    static FinancialManager manager(int size) {
+        return new FinancialManager(assets(size), loans(size), null);
+    }
+
+    static Loan mortgage() {
+        return new Loan("Mortgage", 350000, new Date(), 3.5, 360, 24);
+    }
+
+    static Bond bond() {
+        return new Bond("Government Bond", 25000, new Date(), 4.8, new Date());
+    }
+
+    static Stock stock() {
+        return new Stock("Apple Stock", 55000, new Date(), "AAPL", 100, 550.0);
+    }
+
+    static MonteCarloProjection projection(int size, int years) {
+        return MonteCarloProjection.of(assets(size), loans(size), new LoanAnalytics(), years);
+    }
+
+    static MonteCarloProjection.Result project(MonteCarloProjection projection, int paths) {
+        return projection.run(paths, SEED);
+    }
+
+    static DebtRepaymentOptimizer debtOptimizer(int loans) {
+        return DebtRepaymentOptimizer.of(loans(loans), new LoanAnalytics());
+    }
+
+    static DebtRepaymentOptimizer.Result optimizeDebt(DebtRepaymentOptimizer optimizer, int budgetLevels) {
+        return optimizer.run(optimizer.budgetLevels(budgetLevels));
+    }
+
+    // One stock per ticker "T0".."T<n-1>", with the ingestor running over them
+    static TickIngestor tickIngestor(int tickers) {
+        ColumnarAssetManager<FinancialAsset> stocks = new ColumnarAssetManager<>(FinancialAsset.class);
+        Date purchased = new Date();
+        for (int i = 0; i < tickers; i++) {
+            stocks.addAsset(new Stock("Stock " + i, 1000, purchased, "T" + i, 10, 100));
+        }
+        return new TickIngestor(stocks);
+    }
+
+    // Publishes random ticks across the tickers and waits until all are applied
+    static void ingestTicks(TickIngestor ingestor, int tickers, int ticks) throws InterruptedException {
+        String[] names = new String[tickers];
+        for (int i = 0; i < tickers; i++) {
+            names[i] = "T" + i;
+        }
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < ticks; i++) {
+            ingestor.publish(i, names[random.nextInt(tickers)], 1 + random.nextInt(1_000_000));
+        }
+        ingestor.awaitApplied();
+    }
+
+    // Streams the report into the consumer one chunk length at a time
+    static void writeReport(FinancialManager manager, String reportType, IntConsumer sink) {
+        manager.writeReport(reportType, new ReportWriter(text -> sink.accept(text.length())));
+    }
+
+    // A random walk, one point per second, as the chart would receive it
+    static ChartPanel.ChartData chartSeries(int points) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        double[] xs = new double[points];
+        double[] ys = new double[points];
+        double value = 100_000;
+        for (int i = 0; i < points; i++) {
+            value += random.nextDouble(-100, 100);
+            xs[i] = i;
+            ys[i] = value;
+        }
+        return new ChartPanel.ChartData(1, "Net Worth", Map.of(), xs, ys);
+    }
+
+    static BufferedImage renderChart(ChartPanel.ChartData data, int width, int height) {
+        return ChartPanel.render(data, width, height);
+    }
+
+    // Daily price walks in cents, as PortfolioHistory records them, in a
+    // fresh store under the temp directory
+    static TimeSeriesStore timeSeries(int series, int days) throws IOException {
+        TimeSeriesStore store = new TimeSeriesStore(Files.createTempDirectory("history"));
+        SplittableRandom random = new SplittableRandom(SEED);
+        long[] prices = new long[series];
+        for (int s = 0; s < series; s++) {
+            prices[s] = 1_000 + random.nextInt(100_000);
+        }
+        for (int day = 0; day < days; day++) {
+            for (int s = 0; s < series; s++) {
+                prices[s] = Math.max(100, prices[s] + random.nextInt(-200, 201));
+                store.append("price:T" + s, day * PortfolioHistory.DAY_MILLIS, prices[s]);
+            }
+        }
+        store.flush();
+        return store;
+    }
+
+    // Month-over-month change for a random series at the end of the history
+    static double monthOverMonth(TimeSeriesStore store, int series, int days) {
+        String name = "price:T" + ThreadLocalRandom.current().nextInt(series);
+        return store.change(name, (days - 1 - PortfolioHistory.MONTH_DAYS) * PortfolioHistory.DAY_MILLIS,
+                (days - 1) * PortfolioHistory.DAY_MILLIS);
+    }
+
+    static ColumnarAssetManager<FinancialAsset> assets(int size) {
+        ColumnarAssetManager<FinancialAsset> assets = new ColumnarAssetManager<>(FinancialAsset.class);
+        assets.addAssets(holdings(size));
+        return assets;
+    }
+
+    // The same holdings as assets(size), in the striped store
+    static ConcurrentAssetManager stripedAssets(int size) {
+        ConcurrentAssetManager assets = new ConcurrentAssetManager();
+        assets.addAssets(holdings(size));
+        return assets;
+    }
+
+    // Roughly 60% stocks and 40% bonds
+    static List<FinancialAsset> holdings(int size) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<FinancialAsset> holdings = new ArrayList<>(size);
+        Date purchased = new Date();
+        for (int i = 0; i < size; i++) {
+            if (random.nextInt(10) < 6) {
+                int shares = 1 + random.nextInt(500);
+                double price = 1 + random.nextInt(500_000) / 100.0;
+                holdings.add(new Stock("Stock " + i, shares * price, purchased, "T" + (i % 50_000), shares, price));
+            } else {
+                double value = 1_000 + random.nextInt(100_000);
+                double rate = 1 + random.nextInt(800) / 100.0;
+                holdings.add(new Bond("Bond " + i, value, purchased, rate, purchased));
+            }
+        }
+        return holdings;
+    }
+
+    // The total as PortfolioHistory and MonteCarloProjection read it off
+    // the EDT: a settled copy of the running aggregates, taken under the
+    // store's lock
+    static long columnarTotal(ColumnarAssetManager<FinancialAsset> assets) {
+        return assets.getAggregates().getTotalValueCents();
+    }
+
+    // Nudges a random holding by a cent either way, through its setter
+    static void revalue(List<FinancialAsset> holdings) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        FinancialAsset asset = holdings.get(random.nextInt(holdings.size()));
+        asset.setValueCents(asset.getValueCents() + (random.nextBoolean() ? 1 : -1));
+    }
+
+    static ColumnarAssetManager<Loan> loans(int size) {
+        SplittableRandom random = new SplittableRandom(SEED + 1);
+        ColumnarAssetManager<Loan> loans = new ColumnarAssetManager<>(Loan.class);
+        Date opened = new Date();
+        int[] terms = {36, 60, 120, 180, 360};
+        for (int i = 0; i < size; i++) {
+            int term = terms[random.nextInt(terms.length)];
+            double principal = 1_000 + random.nextInt(500_000);
+            double rate = 1 + random.nextInt(1_200) / 100.0;
+            loans.addAsset(new Loan("Loan " + i, principal, opened, rate, term, random.nextInt(term)));
+        }
+        return loans;
+    }
+}
@@ -0,0 +1,40 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Per-instance model calculations
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculationBenchmark {
+    private Object loan;
+    private Object bond;
+    private Object stock;
+
+    @Setup
+    public void setUp() throws Throwable {
+        loan = (Object) Handles.MORTGAGE.invokeExact();
+        bond = (Object) Handles.BOND.invokeExact();
+        stock = (Object) Handles.STOCK.invokeExact();
+    }
+
+    @Benchmark
+    public double loanMonthlyPayment() throws Throwable {
+        return (double) Handles.MONTHLY_PAYMENT.invokeExact(loan);
+    }
+
+    @Benchmark
+    public double bondInterest() throws Throwable {
+        return (double) Handles.INTEREST.invokeExact(bond);
+    }
+
+    @Benchmark
+    public double stockInterest() throws Throwable {
+        return (double) Handles.INTEREST.invokeExact(stock);
+    }
+}
@@ -0,0 +1,34 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// One full chart render: LTTB down to two points per pixel column, then
+// Java2D into an off-screen image. This is the whole cost of a data change;
+// repaints in between only blit the cached image.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Djava.awt.headless=true"})
+public class ChartBenchmark {
+    @Param({"100000", "10000000"})
+    public int points;
+
+    @Param({"800"})
+    public int width;
+
+    private Object series;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        series = (Object) Handles.CHART_SERIES.invokeExact(points);
+    }
+
+    @Benchmark
+    public Object render() throws Throwable {
+        return (Object) Handles.RENDER_CHART.invokeExact(series, width, 300);
+    }
+}
@@ -0,0 +1,66 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 90/10 read/write mix over one shared book: nine threads read the
+// portfolio total while one revalues random holdings through their
+// setters. "columnar" reads ColumnarAssetManager.getAggregates(), the
+// path the app's background readers take, which waits on the store's
+// monitor for a settled copy; "striped" is ConcurrentAssetManager with
+// optimistic reads. Compare the reader scores; the gap only opens up on a machine
+// with at least ten hardware threads.
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ContentionBenchmark {
+    @Param({"100000"})
+    public int size;
+
+    private Object columnar;
+    private Object striped;
+    private List<?> columnarHoldings;
+    private List<?> stripedHoldings;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        columnar = (Object) Handles.COLUMNAR_ASSETS.invokeExact(size);
+        striped = (Object) Handles.STRIPED_ASSETS.invokeExact(size);
+        // Copied, so the writer indexes a plain list rather than the store
+        columnarHoldings = List.copyOf((List<?>) Handles.ALL_ASSETS.invokeExact(columnar));
+        stripedHoldings = (List<?>) Handles.ALL_ASSETS.invokeExact(striped);
+    }
+
+    @Benchmark
+    @Group("columnar")
+    @GroupThreads(9)
+    public long columnarRead() throws Throwable {
+        return (long) Handles.COLUMNAR_TOTAL.invokeExact(columnar);
+    }
+
+    @Benchmark
+    @Group("columnar")
+    @GroupThreads(1)
+    public void columnarWrite() throws Throwable {
+        Handles.REVALUE.invokeExact((List) columnarHoldings);
+    }
+
+    @Benchmark
+    @Group("striped")
+    @GroupThreads(9)
+    public long stripedRead() throws Throwable {
+        return (long) Handles.STRIPED_TOTAL.invokeExact(striped);
+    }
+
+    @Benchmark
+    @Group("striped")
+    @GroupThreads(1)
+    public void stripedWrite() throws Throwable {
+        Handles.REVALUE.invokeExact((List) stripedHoldings);
+    }
+}
@@ -0,0 +1,33 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Snowball, avalanche and the blended search over every budget level, on
+// the common pool, as the debt report runs them
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+public class DebtOptimizerBenchmark {
+    @Param({"100", "1000"})
+    public int loans;
+
+    @Param({"200"})
+    public int budgetLevels;
+
+    private Object optimizer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        optimizer = (Object) Handles.DEBT_OPTIMIZER.invokeExact(loans);
+    }
+
+    @Benchmark
+    public Object optimize() throws Throwable {
+        return (Object) Handles.OPTIMIZE_DEBT.invokeExact(optimizer, budgetLevels);
+    }
+}
@@ -0,0 +1,80 @@
+package benchmarks;
+
+import javax.swing.JPanel;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+// Method handles onto the application classes, which live in the unnamed
+// package and so cannot be referenced by name from here. The handles are
+// static final, so the JIT inlines them like direct calls.
+final class Handles {
+    static final MethodHandle MANAGER = fixture("manager", MethodType.methodType(Object.class, int.class));
+    static final MethodHandle MORTGAGE = fixture("mortgage", MethodType.methodType(Object.class));
+    static final MethodHandle BOND = fixture("bond", MethodType.methodType(Object.class));
+    static final MethodHandle STOCK = fixture("stock", MethodType.methodType(Object.class));
+    static final MethodHandle PROJECTION = fixture("projection",
+            MethodType.methodType(Object.class, int.class, int.class));
+    static final MethodHandle PROJECT = fixture("project",
+            MethodType.methodType(Object.class, Object.class, int.class));
+    static final MethodHandle DEBT_OPTIMIZER = fixture("debtOptimizer",
+            MethodType.methodType(Object.class, int.class));
+    static final MethodHandle OPTIMIZE_DEBT = fixture("optimizeDebt",
+            MethodType.methodType(Object.class, Object.class, int.class));
+    static final MethodHandle TICK_INGESTOR = fixture("tickIngestor",
+            MethodType.methodType(Object.class, int.class));
+    static final MethodHandle INGEST_TICKS = fixture("ingestTicks",
+            MethodType.methodType(void.class, Object.class, int.class, int.class));
+    static final MethodHandle WRITE_REPORT = fixture("writeReport",
+            MethodType.methodType(void.class, Object.class, String.class, IntConsumer.class));
+    static final MethodHandle CHART_SERIES = fixture("chartSeries", MethodType.methodType(Object.class, int.class));
+    static final MethodHandle RENDER_CHART = fixture("renderChart",
+            MethodType.methodType(Object.class, Object.class, int.class, int.class));
+    static final MethodHandle TIME_SERIES = fixture("timeSeries",
+            MethodType.methodType(Object.class, int.class, int.class));
+    static final MethodHandle MONTH_OVER_MONTH = fixture("monthOverMonth",
+            MethodType.methodType(double.class, Object.class, int.class, int.class));
+    static final MethodHandle COLUMNAR_ASSETS = fixture("assets", MethodType.methodType(Object.class, int.class));
+    static final MethodHandle STRIPED_ASSETS = fixture("stripedAssets", MethodType.methodType(Object.class, int.class));
+    static final MethodHandle COLUMNAR_TOTAL = fixture("columnarTotal", MethodType.methodType(long.class, Object.class));
+    static final MethodHandle REVALUE = fixture("revalue", MethodType.methodType(void.class, List.class));
+
+    static final MethodHandle MONTHLY_PAYMENT = virtual("Loan", "calculateMonthlyPayment", double.class);
+    static final MethodHandle INTEREST = virtual("FinancialAsset", "calculateInterest", double.class);
+    static final MethodHandle NET_WORTH = virtual("FinancialManager", "calculateNetWorth", double.class);
+    static final MethodHandle STORED_BYTES = virtual("TimeSeriesStore", "storedBytes", long.class);
+    static final MethodHandle STRIPED_TOTAL = virtual("ConcurrentAssetManager", "getTotalValueCents", long.class);
+    static final MethodHandle ALL_ASSETS = virtual("AssetManager", "getAllAssets", List.class);
+    static final MethodHandle ASSETS_PANEL = virtual("FinancialManager", "createAssetsPanel", JPanel.class);
+
+    private Handles() {
+    }
+
+    private static MethodHandle fixture(String name, MethodType erasedType) {
+        try {
+            Class<?> fixture = Class.forName("PortfolioFixture");
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(fixture, MethodHandles.lookup());
+            for (java.lang.reflect.Method method : fixture.getDeclaredMethods()) {
+                if (method.getName().equals(name)) {
+                    return lookup.unreflect(method).asType(erasedType);
+                }
+            }
+            throw new NoSuchMethodException("PortfolioFixture." + name);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle virtual(String className, String name, Class<?> returnType) {
+        try {
+            Class<?> owner = Class.forName(className);
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+            return lookup.findVirtual(owner, name, MethodType.methodType(returnType))
+                    .asType(MethodType.methodType(returnType, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Full projection runs over 30 years of monthly steps on the common pool
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class MonteCarloBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int paths;
+
+    private Object projection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        projection = (Object) Handles.PROJECTION.invokeExact(100, 30);
+    }
+
+    @Benchmark
+    public Object project() throws Throwable {
+        return (Object) Handles.PROJECT.invokeExact(projection, paths);
+    }
+}
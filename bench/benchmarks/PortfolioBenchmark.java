@@ -0,0 +1,61 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.swing.JPanel;
+import java.util.concurrent.TimeUnit;
+
+// Portfolio-level reads, reports and panel construction across book sizes.
+// The largest size needs a big heap; narrow it with -p size=... when needed.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx16g", "-Djava.awt.headless=true"})
+public class PortfolioBenchmark {
+    @Param({"10", "1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Object manager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        manager = (Object) Handles.MANAGER.invokeExact(size);
+    }
+
+    @Benchmark
+    public double netWorth() throws Throwable {
+        return (double) Handles.NET_WORTH.invokeExact(manager);
+    }
+
+    @Benchmark
+    public void netWorthReport(Blackhole bh) throws Throwable {
+        writeReport("Net Worth Summary", bh);
+    }
+
+    @Benchmark
+    public void assetAllocationReport(Blackhole bh) throws Throwable {
+        writeReport("Asset Allocation", bh);
+    }
+
+    @Benchmark
+    public void debtReport(Blackhole bh) throws Throwable {
+        writeReport("Debt Overview", bh);
+    }
+
+    @Benchmark
+    public void cashFlowReport(Blackhole bh) throws Throwable {
+        writeReport("Cash Flow Analysis", bh);
+    }
+
+    @Benchmark
+    public JPanel assetsPanel() throws Throwable {
+        return (JPanel) Handles.ASSETS_PANEL.invokeExact(manager);
+    }
+
+    private void writeReport(String reportType, Blackhole bh) throws Throwable {
+        Handles.WRITE_REPORT.invokeExact(manager, reportType, (java.util.function.IntConsumer) bh::consume);
+    }
+}
@@ -0,0 +1,34 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// End-to-end tick throughput: publish into the ring until every tick has
+// been coalesced and applied to the store. Divide ticks by the score for
+// ticks per second.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TickIngestBenchmark {
+    @Param({"50000"})
+    public int tickers;
+
+    @Param({"500000"})
+    public int ticks;
+
+    private Object ingestor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        ingestor = (Object) Handles.TICK_INGESTOR.invokeExact(tickers);
+    }
+
+    @Benchmark
+    public void ingest() throws Throwable {
+        Handles.INGEST_TICKS.invokeExact(ingestor, tickers, ticks);
+    }
+}
@@ -0,0 +1,43 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Month-over-month change on a random series of a 20-year daily history.
+// Both ends come from the mapped segments: the start by decoding part of
+// one sealed block, the end from the cached latest value. Setup prints the
+// stored size, which is the other half of the story.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Djava.awt.headless=true"})
+public class TimeSeriesBenchmark {
+    @Param({"5000"})
+    public int series;
+
+    @Param({"7300"})
+    public int days;
+
+    private Object store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        store = (Object) Handles.TIME_SERIES.invokeExact(series, days);
+        long bytes = (long) Handles.STORED_BYTES.invokeExact(store);
+        System.out.printf("%n%d points in %.1f MB, %.2f bytes a point%n",
+                (long) series * days, bytes / 1e6, bytes / ((double) series * days));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        ((AutoCloseable) store).close();
+    }
+
+    @Benchmark
+    public double monthOverMonth() throws Throwable {
+        return (double) Handles.MONTH_OVER_MONTH.invokeExact(store, series, days);
+    }
+}